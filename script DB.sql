@@ -1,17 +1,51 @@
 drop table if exists imovel;
 
+-- dt_liberacao: dias desde 1970-01-01 (LocalDate.toEpochDay)
+-- valor: centavos
 create table imovel (
 	id integer primary key autoincrement,
 	inscricao integer not null unique,
-	dt_liberacao text not null,
-	valor decimal(10,2) not null,
+	dt_liberacao integer not null,
+	valor integer not null,
 	area integer not null,
 	categoria char not null
 );
 
-insert into imovel values(1, 12345678, "20200507", 1500000, 500, "A");
-insert into imovel values(2, 23456789, "20151221", 1000000, 200, "B");
-insert into imovel values(3, 34567890, "20030210",  800000, 150, "C");
-insert into imovel values(4, 45678901, "19750915",  500000,  80, "D");
-insert into imovel values(5, 56789012, "19670427",  230000,  40, "E");
-insert into imovel values(6, 67890123, "19950617",  120000,  60, "Z");
\ No newline at end of file
+-- Índices das consultas filtradas (ImovelDAO.busca)
+create index imovel_categoria on imovel (categoria, valor, dt_liberacao, area);
+create index imovel_dt_liberacao on imovel (dt_liberacao);
+create index imovel_valor on imovel (valor);
+create index imovel_area on imovel (area);
+
+insert into imovel values(1, 12345678, 18389, 150000000, 500, "A");
+insert into imovel values(2, 23456789, 16790, 100000000, 200, "B");
+insert into imovel values(3, 34567890, 12093,  80000000, 150, "C");
+insert into imovel values(4, 45678901,  2083,  50000000,  80, "D");
+insert into imovel values(5, 56789012,  -980,  23000000,  40, "E");
+insert into imovel values(6, 67890123,  9298,  12000000,  60, "Z");
+
+create table aliquota_exercicio (
+	exercicio integer primary key,
+	idade_maxima integer not null,
+	faixa_area integer not null,
+	perc_faixa_area real not null,
+	passo_idade integer not null,
+	desconto_passo_idade real not null
+);
+
+create table aliquota_categoria (
+	exercicio integer not null references aliquota_exercicio(exercicio),
+	categoria char not null,
+	multiplicador real not null default 1,
+	isenta integer not null default 0,
+	primary key (exercicio, categoria)
+);
+
+insert into aliquota_exercicio values(0, 170, 20, 0.05, 5, 0.03);
+insert into aliquota_categoria values(0, "A", 1.1, 0);
+insert into aliquota_categoria values(0, "B", 1.07, 0);
+insert into aliquota_categoria values(0, "C", 1.05, 0);
+insert into aliquota_categoria values(0, "Z", 1, 1);
+
+-- Versão do esquema (ver main.db.Migracao)
+pragma user_version = 4;
\ No newline at end of file
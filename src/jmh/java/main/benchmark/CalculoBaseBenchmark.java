@@ -0,0 +1,80 @@
+package main.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.dao.ImovelDAO;
+import main.model.CalculoIPTULote;
+import main.model.Imovel;
+
+/*
+ * Cálculo do IPTU de toda a base com tamanho imóveis: pelo cursor de DTOs (select * e um Imovel por linha)
+ * e pela projeção das colunas do cálculo lida direto para KernelIPTU
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculoBaseBenchmark {
+
+	@Param({"100000"})
+	public int tamanho;
+
+	private File arquivo;
+	private CalculoIPTULote calculo;
+
+	@Setup(Level.Trial)
+	public void criaBD() throws Exception {
+		arquivo = ImovelDAOBenchmark.abreBD("iptu-calculo");
+
+		List<Imovel> imoveis = new ArrayList<>(tamanho);
+
+		for (int i = 0; i < tamanho; i++)
+			imoveis.add(ImovelDAOBenchmark.imovel(ImovelDAOBenchmark.PRIMEIRA_INSCRICAO + i));
+
+		ImovelDAO.insertAll(imoveis);
+
+		calculo = new CalculoIPTULote(10f, 5f);
+	}
+
+	@TearDown(Level.Trial)
+	public void apagaBD() {
+		ImovelDAOBenchmark.fechaBD(arquivo);
+	}
+
+	@Benchmark
+	public long calculaPorDTO() {
+		LongAdder soma = new LongAdder();
+		calculo.calcula(ImovelDAO.stream(), (imovel, valor) -> soma.add(valor.parcelamento.getNumParcelas()));
+		return soma.sum();
+	}
+
+	@Benchmark
+	public long calculaPorColunas() {
+		LongAdder soma = new LongAdder();
+		calculo.calculaBase((inscricao, valor, valorAVista, numParcelas, valorParcela, n) -> {
+			for (int i = 0; i < n; i++)
+				soma.add(numParcelas[i]);
+		});
+		return soma.sum();
+	}
+}
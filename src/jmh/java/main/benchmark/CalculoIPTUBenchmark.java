@@ -0,0 +1,75 @@
+package main.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.model.IPTU;
+import main.model.Imovel;
+import main.model.Parcelamento;
+import main.model.ValorIPTU;
+import main.util.Money;
+
+/*
+ * Custo do cálculo do IPTU de um imóvel e das partes que o compõem
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculoIPTUBenchmark {
+
+	// Categorias com acréscimo (A), sem acréscimo (D) e isenta (Z)
+	@Param({"A", "D", "Z"})
+	public String categoria;
+
+	// Áreas que levam a 3, 5 e 10 parcelas
+	@Param({"40", "200", "2000"})
+	public int area;
+
+	private IPTU iptu;
+	private float valorIPTU;
+	private float[] valores;
+	private int i;
+
+	@Setup
+	public void prepara() {
+		Imovel imovel = new Imovel(12345678, LocalDate.of(2000, 1, 1), 300000f, area, categoria.charAt(0));
+		iptu = new IPTU(imovel, 2026);
+		valorIPTU = iptu.calculaValor(0f, 0f).valor;
+
+		valores = new float[1024];
+
+		for (int k = 0; k < valores.length; k++)
+			valores[k] = k * 7.12345f;
+	}
+
+	@Benchmark
+	public ValorIPTU calculaValor() {
+		return iptu.calculaValor(5f, 1f);
+	}
+
+	@Benchmark
+	public Parcelamento parcelamento() {
+		return new Parcelamento(valorIPTU, 1f);
+	}
+
+	@Benchmark
+	public float moneyRound() {
+		i = (i + 1) & (valores.length - 1);
+		return Money.round(valores[i]);
+	}
+}
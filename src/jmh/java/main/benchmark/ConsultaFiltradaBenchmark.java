@@ -0,0 +1,122 @@
+package main.benchmark;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.dao.FiltroImovel;
+import main.dao.ImovelDAO;
+import main.dao.Pagina;
+import main.db.DBConnection;
+import main.model.Imovel;
+
+/*
+ * Consulta filtrada por categoria e faixa de valor, ordenada por valor, sobre tamanho imóveis:
+ * ImovelDAO.busca e ImovelDAO.conta, que usam os índices da migração 4, contra o mesmo SQL
+ * com "not indexed", que obriga o SQLite a percorrer a tabela inteira
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsultaFiltradaBenchmark {
+
+	private static final char CATEGORIA = 'C';
+	private static final float VALOR_MINIMO = 100100f;
+	private static final float VALOR_MAXIMO = 100200f;
+	private static final int LIMITE = 100;
+
+	private static final String WHERE = " not indexed where categoria in (?) and valor between ? and ?";
+
+	@Param({"100000", "1000000"})
+	public int tamanho;
+
+	private File arquivo;
+	private FiltroImovel filtro;
+
+	@Setup(Level.Trial)
+	public void criaBD() throws Exception {
+		arquivo = ImovelDAOBenchmark.abreBD("iptu-consulta");
+
+		List<Imovel> imoveis = new ArrayList<>(ImovelDAO.TAMANHO_LOTE * 20);
+
+		for (int i = 0; i < tamanho; i++) {
+			imoveis.add(ImovelDAOBenchmark.imovel(ImovelDAOBenchmark.PRIMEIRA_INSCRICAO + i));
+
+			if (imoveis.size() == ImovelDAO.TAMANHO_LOTE * 20 || i == tamanho - 1) {
+				ImovelDAO.insertAll(imoveis);
+				imoveis.clear();
+			}
+		}
+
+		filtro = FiltroImovel.TODOS.comCategorias(CATEGORIA).comValor(VALOR_MINIMO, VALOR_MAXIMO)
+				.ordenadoPor(FiltroImovel.Ordem.VALOR, false);
+	}
+
+	@TearDown(Level.Trial)
+	public void apagaBD() {
+		ImovelDAOBenchmark.fechaBD(arquivo);
+	}
+
+	@Benchmark
+	public Pagina buscaComIndice() {
+		return ImovelDAO.busca(filtro, LIMITE);
+	}
+
+	@Benchmark
+	public int buscaSemIndice() throws Exception {
+		return executa("select * from imovel" + WHERE + " order by valor, id limit " + (LIMITE + 1), false);
+	}
+
+	@Benchmark
+	public long contaComIndice() {
+		return ImovelDAO.conta(filtro);
+	}
+
+	@Benchmark
+	public int contaSemIndice() throws Exception {
+		return executa("select count(*) from imovel" + WHERE, true);
+	}
+
+	/*
+	 * Executa o SQL com os mesmos parâmetros do filtro e lê todas as linhas
+	 */
+	private static int executa(String sql, boolean contagem) throws Exception {
+		try (Connection conn = DBConnection.get();
+			PreparedStatement stm = conn.prepareStatement(sql)) {
+
+			stm.setString(1, Character.toString(CATEGORIA));
+			stm.setLong(2, Math.round(VALOR_MINIMO * 100));
+			stm.setLong(3, Math.round(VALOR_MAXIMO * 100));
+
+			int linhas = 0;
+
+			try (ResultSet rs = stm.executeQuery()) {
+				while (rs.next())
+					linhas += contagem ? rs.getInt(1) : rs.getLong("valor") > 0 ? 1 : 0;
+			}
+
+			return linhas;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package main.benchmark;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.dao.ImovelDAO;
+import main.dao.Pagina;
+import main.db.DBConnection;
+import main.db.Migracao;
+import main.model.Imovel;
+import main.model.ImovelDTO;
+
+/*
+ * Consultas de ImovelDAO sobre um BD SQLite em arquivo temporário com tamanho imóveis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImovelDAOBenchmark {
+
+	static final int PRIMEIRA_INSCRICAO = 10000000;
+
+	@Param({"1000", "100000"})
+	public int tamanho;
+
+	private File arquivo;
+
+	@Setup(Level.Trial)
+	public void criaBD() throws Exception {
+		arquivo = abreBD("iptu-dao");
+
+		List<Imovel> imoveis = new ArrayList<>(tamanho);
+
+		for (int i = 0; i < tamanho; i++)
+			imoveis.add(imovel(PRIMEIRA_INSCRICAO + i));
+
+		ImovelDAO.insertAll(imoveis);
+	}
+
+	@TearDown(Level.Trial)
+	public void apagaBD() {
+		fechaBD(arquivo);
+	}
+
+	@Benchmark
+	public ImovelDTO getByID() {
+		return ImovelDAO.getByID(ThreadLocalRandom.current().nextInt(tamanho) + 1);
+	}
+
+	@Benchmark
+	public ImovelDTO getByInscricao() {
+		return ImovelDAO.getByInscricao(PRIMEIRA_INSCRICAO + ThreadLocalRandom.current().nextInt(tamanho));
+	}
+
+	/*
+	 * Página de 50 imóveis em uma profundidade aleatória: pela chave (page) e por OFFSET
+	 */
+	@Benchmark
+	public Pagina page() {
+		return ImovelDAO.page(ThreadLocalRandom.current().nextInt(tamanho), 50);
+	}
+
+	@Benchmark
+	public int pageComOffset() throws Exception {
+		try (Connection conn = DBConnection.get();
+			PreparedStatement stm = conn.prepareStatement("select * from imovel order by id limit 50 offset ?")) {
+
+			stm.setInt(1, ThreadLocalRandom.current().nextInt(tamanho));
+			int linhas = 0;
+
+			try (ResultSet rs = stm.executeQuery()) {
+				while (rs.next())
+					linhas += rs.getInt("id") > 0 ? 1 : 0;
+			}
+
+			return linhas;
+		}
+	}
+
+	/*
+	 * Cria um BD vazio, com o esquema atual, em um arquivo temporário e o configura em DBConnection
+	 */
+	static File abreBD(String prefixo) throws Exception {
+		File arquivo = File.createTempFile(prefixo, ".db");
+		arquivo.deleteOnExit();
+
+		DBConnection.set("org.sqlite.JDBC", "jdbc:sqlite:" + arquivo.getAbsolutePath());
+		Migracao.atualiza();
+
+		return arquivo;
+	}
+
+	static void fechaBD(File arquivo) {
+		DBConnection.close();
+		arquivo.delete();
+	}
+
+	static Imovel imovel(int inscricao) {
+		char categoria = (char) ('A' + inscricao % 26);
+		return new Imovel(inscricao, LocalDate.of(1950 + inscricao % 70, 1, 1), 100000f + inscricao % 1000, 20 + inscricao % 500, categoria);
+	}
+}
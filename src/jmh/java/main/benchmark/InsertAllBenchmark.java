@@ -0,0 +1,66 @@
+package main.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.dao.ImovelDAO;
+import main.dao.ResultadoLote;
+import main.model.Imovel;
+
+/*
+ * Vazão de inserção de imóveis em lote, por tamanho de lote
+ * Cada invocação grava InsertBenchmark.QUANTIDADE imóveis, então o resultado é dado em imóveis por segundo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertAllBenchmark {
+
+	@Param({"1", "100", "500"})
+	public int tamanhoLote;
+
+	private File arquivo;
+	private int proximaInscricao;
+
+	@Setup(Level.Trial)
+	public void criaBD() throws Exception {
+		arquivo = ImovelDAOBenchmark.abreBD("iptu-insert-all");
+		proximaInscricao = ImovelDAOBenchmark.PRIMEIRA_INSCRICAO;
+	}
+
+	@TearDown(Level.Trial)
+	public void apagaBD() {
+		ImovelDAOBenchmark.fechaBD(arquivo);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(InsertBenchmark.QUANTIDADE)
+	public ResultadoLote insertAll() {
+		List<Imovel> imoveis = new ArrayList<>(InsertBenchmark.QUANTIDADE);
+
+		for (int i = 0; i < InsertBenchmark.QUANTIDADE; i++)
+			imoveis.add(ImovelDAOBenchmark.imovel(proximaInscricao++));
+
+		return ImovelDAO.insertAll(imoveis, tamanhoLote);
+	}
+}
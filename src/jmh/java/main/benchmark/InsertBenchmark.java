@@ -0,0 +1,60 @@
+package main.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.dao.ImovelDAO;
+
+/*
+ * Vazão de inserção de imóveis um a um (a inserção em lote fica em InsertAllBenchmark)
+ * Cada invocação grava QUANTIDADE imóveis, então o resultado é dado em imóveis por segundo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+	static final int QUANTIDADE = 1000;
+
+	private File arquivo;
+	private int proximaInscricao;
+
+	@Setup(Level.Trial)
+	public void criaBD() throws Exception {
+		arquivo = ImovelDAOBenchmark.abreBD("iptu-insert");
+		proximaInscricao = ImovelDAOBenchmark.PRIMEIRA_INSCRICAO;
+	}
+
+	@TearDown(Level.Trial)
+	public void apagaBD() {
+		ImovelDAOBenchmark.fechaBD(arquivo);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUANTIDADE)
+	public int insert() {
+		int id = 0;
+
+		for (int i = 0; i < QUANTIDADE; i++)
+			id = ImovelDAO.insert(ImovelDAOBenchmark.imovel(proximaInscricao++));
+
+		return id;
+	}
+}
@@ -17,6 +17,8 @@ public class Main {
 	public static void main(String[] args) {
 		DBConnection.set(DRIVER, CONEXAO);
 		
+		// O esquema do BD é atualizado para a versão esperada pelo sistema quando o pool é criado
+		
 		// Recupera do BD por ID e por inscrição
 		//Imovel i1 = ImovelFactory.getByID(1);
 		//Imovel i2 = ImovelFactory.getByInscricao(23456789);
@@ -0,0 +1,73 @@
+package main.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+
+import main.db.DBConnection;
+import main.model.TabelaAliquotas;
+
+/*
+ * Classe responsável pela leitura das tabelas de alíquotas do IPTU
+ */
+public class AliquotaDAO {
+
+	/*
+	 * Recupera a tabela vigente no exercício: a de maior exercício menor ou igual ao informado
+	 * Retorna nulo se não houver tabela cadastrada até o exercício
+	 */
+	public static TabelaAliquotas getByExercicio(int exercicio) {
+		try (Connection conn = DBConnection.get();
+			PreparedStatement stm = conn.prepareStatement("select * from aliquota_exercicio where exercicio<=? order by exercicio desc limit 1")) {
+
+			stm.setInt(1, exercicio);
+
+			int vigencia, idadeMaxima, faixaArea, passoIdade;
+			float percFaixaArea, descontoPassoIdade;
+
+			try (ResultSet rs = stm.executeQuery()) {
+				if (!rs.next())
+					return null;
+
+				vigencia = rs.getInt("exercicio");
+				idadeMaxima = rs.getInt("idade_maxima");
+				faixaArea = rs.getInt("faixa_area");
+				percFaixaArea = rs.getFloat("perc_faixa_area");
+				passoIdade = rs.getInt("passo_idade");
+				descontoPassoIdade = rs.getFloat("desconto_passo_idade");
+			}
+
+			// Categorias sem linha na tabela não têm acréscimo nem isenção
+			float[] multiplicador = new float['Z' - 'A' + 1];
+			boolean[] isenta = new boolean['Z' - 'A' + 1];
+
+			Arrays.fill(multiplicador, 1f);
+
+			try (PreparedStatement cat = conn.prepareStatement("select * from aliquota_categoria where exercicio=?")) {
+				cat.setInt(1, vigencia);
+
+				try (ResultSet rs = cat.executeQuery()) {
+					while (rs.next()) {
+						char categoria = rs.getString("categoria").charAt(0);
+
+						if (categoria < 'A' || categoria > 'Z')
+							throw new IllegalArgumentException("Categoria inválida na tabela de alíquotas: " + categoria);
+
+						multiplicador[categoria - 'A'] = rs.getFloat("multiplicador");
+						isenta[categoria - 'A'] = rs.getInt("isenta") != 0;
+					}
+				}
+			}
+
+			return new TabelaAliquotas(vigencia, idadeMaxima, faixaArea, percFaixaArea, passoIdade,
+					descontoPassoIdade, multiplicador, isenta);
+		}
+		catch(IllegalArgumentException e) {
+			throw e;
+		}
+		catch(Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package main.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import main.util.Money;
+
+/*
+ * Critérios e ordenação de uma consulta de imóveis (ImovelDAO.busca, conta e stream)
+ *
+ * Os objetos são imutáveis: os métodos com* retornam uma cópia com o critério alterado
+ * Critérios nulos não restringem a consulta e os intervalos incluem os dois limites
+ */
+public class FiltroImovel {
+
+	/*
+	 * Colunas de ordenação
+	 * O ID desempata as demais, então a ordem é sempre total e a página seguinte
+	 * continua pela chave (coluna, id) do último imóvel da página anterior
+	 */
+	public enum Ordem {
+		ID("id"), INSCRICAO("inscricao"), DT_LIBERACAO("dt_liberacao"), VALOR("valor"), AREA("area");
+
+		final String coluna;
+
+		Ordem(String coluna) {
+			this.coluna = coluna;
+		}
+	}
+
+	/*
+	 * Todos os imóveis, em ordem de ID
+	 */
+	public static final FiltroImovel TODOS = new FiltroImovel(null, null, null, null, null, null, null, Ordem.ID, false);
+
+	// Categorias aceitas, uma por caractere
+	final String categorias;
+
+	// dt_liberacao em dias desde 1970-01-01 e valor em centavos, como gravados na tabela
+	final Long dtLiberacaoDe;
+	final Long dtLiberacaoAte;
+	final Long valorMinimo;
+	final Long valorMaximo;
+	final Integer areaMinima;
+	final Integer areaMaxima;
+
+	final Ordem ordem;
+	final boolean decrescente;
+
+	private FiltroImovel(String categorias, Long dtLiberacaoDe, Long dtLiberacaoAte, Long valorMinimo, Long valorMaximo,
+			Integer areaMinima, Integer areaMaxima, Ordem ordem, boolean decrescente) {
+		this.categorias = categorias;
+		this.dtLiberacaoDe = dtLiberacaoDe;
+		this.dtLiberacaoAte = dtLiberacaoAte;
+		this.valorMinimo = valorMinimo;
+		this.valorMaximo = valorMaximo;
+		this.areaMinima = areaMinima;
+		this.areaMaxima = areaMaxima;
+		this.ordem = ordem;
+		this.decrescente = decrescente;
+	}
+
+	/*
+	 * Imóveis de qualquer uma das categorias informadas (nenhuma: todas as categorias)
+	 */
+	public FiltroImovel comCategorias(char... categorias) {
+		String c = categorias.length == 0 ? null : new String(categorias);
+		return new FiltroImovel(c, dtLiberacaoDe, dtLiberacaoAte, valorMinimo, valorMaximo, areaMinima, areaMaxima, ordem, decrescente);
+	}
+
+	public FiltroImovel comDataLiberacao(LocalDate de, LocalDate ate) {
+		Long d = de == null ? null : de.toEpochDay();
+		Long a = ate == null ? null : ate.toEpochDay();
+
+		if (d != null && a != null && d > a)
+			throw new IllegalArgumentException("Intervalo de datas de liberação inválido");
+
+		return new FiltroImovel(categorias, d, a, valorMinimo, valorMaximo, areaMinima, areaMaxima, ordem, decrescente);
+	}
+
+	public FiltroImovel comValor(Float minimo, Float maximo) {
+		Long min = minimo == null ? null : Money.toCentavos(minimo);
+		Long max = maximo == null ? null : Money.toCentavos(maximo);
+
+		if (min != null && max != null && min > max)
+			throw new IllegalArgumentException("Intervalo de valores inválido");
+
+		return new FiltroImovel(categorias, dtLiberacaoDe, dtLiberacaoAte, min, max, areaMinima, areaMaxima, ordem, decrescente);
+	}
+
+	public FiltroImovel comArea(Integer minima, Integer maxima) {
+		if (minima != null && maxima != null && minima > maxima)
+			throw new IllegalArgumentException("Intervalo de áreas inválido");
+
+		return new FiltroImovel(categorias, dtLiberacaoDe, dtLiberacaoAte, valorMinimo, valorMaximo, minima, maxima, ordem, decrescente);
+	}
+
+	public FiltroImovel ordenadoPor(Ordem ordem, boolean decrescente) {
+		if (ordem == null)
+			throw new IllegalArgumentException("Ordem não foi definida");
+
+		return new FiltroImovel(categorias, dtLiberacaoDe, dtLiberacaoAte, valorMinimo, valorMaximo, areaMinima, areaMaxima, ordem, decrescente);
+	}
+
+	public Ordem getOrdem() {
+		return ordem;
+	}
+
+	public boolean isDecrescente() {
+		return decrescente;
+	}
+
+	/*
+	 * Cláusula WHERE (vazia sem critérios), com um parâmetro para cada categoria e cada limite definido,
+	 * na ordem em que preenche os atribui
+	 * Com continua, acrescenta a chave de continuação da ordenação: (coluna, id) depois da última linha
+	 */
+	String where(boolean continua) {
+		StringBuilder sql = new StringBuilder();
+
+		if (categorias != null) {
+			sql.append(" and categoria in (?");
+
+			for (int i = 1; i < categorias.length(); i++)
+				sql.append(",?");
+
+			sql.append(')');
+		}
+
+		limite(sql, "dt_liberacao", dtLiberacaoDe, dtLiberacaoAte);
+		limite(sql, "valor", valorMinimo, valorMaximo);
+		limite(sql, "area", areaMinima, areaMaxima);
+
+		if (continua) {
+			String op = decrescente ? " < " : " > ";
+
+			if (ordem == Ordem.ID)
+				sql.append(" and id").append(op).append('?');
+			else
+				sql.append(" and (").append(ordem.coluna).append(", id)").append(op).append("(?, ?)");
+		}
+
+		return sql.length() == 0 ? "" : " where" + sql.substring(4);
+	}
+
+	String orderBy() {
+		String direcao = decrescente ? " desc" : "";
+
+		if (ordem == Ordem.ID)
+			return " order by id" + direcao;
+
+		return " order by " + ordem.coluna + direcao + ", id" + direcao;
+	}
+
+	/*
+	 * Preenche os parâmetros de where(false) a partir do primeiro e retorna o próximo índice livre
+	 */
+	int preenche(PreparedStatement stm) throws SQLException {
+		int p = 1;
+
+		if (categorias != null)
+			for (int i = 0; i < categorias.length(); i++)
+				stm.setString(p++, Character.toString(categorias.charAt(i)));
+
+		for (Number n : new Number[] { dtLiberacaoDe, dtLiberacaoAte, valorMinimo, valorMaximo, areaMinima, areaMaxima })
+			if (n != null)
+				stm.setLong(p++, n.longValue());
+
+		return p;
+	}
+
+	private static void limite(StringBuilder sql, String coluna, Number minimo, Number maximo) {
+		if (minimo != null && maximo != null)
+			sql.append(" and ").append(coluna).append(" between ? and ?");
+		else if (minimo != null)
+			sql.append(" and ").append(coluna).append(" >= ?");
+		else if (maximo != null)
+			sql.append(" and ").append(coluna).append(" <= ?");
+	}
+
+	@Override
+	public String toString() {
+		return "FiltroImovel [categorias=" + categorias + ", dtLiberacao=" + dtLiberacaoDe + ".." + dtLiberacaoAte
+				+ ", valor=" + valorMinimo + ".." + valorMaximo + ", area=" + areaMinima + ".." + areaMaxima
+				+ ", ordem=" + ordem + (decrescente ? " desc" : "") + "]";
+	}
+}
@@ -0,0 +1,242 @@
+package main.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import main.db.DBConnection;
+
+/*
+ * Gravação em grupo (group commit): junta as gravações de várias threads e confirma todas
+ * em uma única transação, pagando um só fsync em vez de um por gravação
+ * Uma thread escritora espera até esperaMaxima milissegundos ou maxOperacoes gravações
+ * e grava o grupo; cada chamador só é liberado depois do commit, então continua valendo
+ * que uma gravação concluída está no BD
+ * Uma gravação recusada pelo SGBD falha sozinha; um erro na transação falha o grupo inteiro
+ */
+public class GravadorEmGrupo implements AutoCloseable {
+
+	/*
+	 * Comando executado pela thread escritora, na conexão da transação do grupo
+	 */
+	interface Operacao {
+		int executa(Connection conn) throws SQLException;
+	}
+
+	private static class Pedido {
+		final Operacao operacao;
+		final CompletableFuture<Integer> resultado = new CompletableFuture<>();
+
+		Pedido(Operacao operacao) {
+			this.operacao = operacao;
+		}
+	}
+
+	// Pedido que encerra a thread escritora, depois de gravar os anteriores
+	private static final Pedido FIM = new Pedido(null);
+
+	private final long esperaMaxima;
+	private final int maxOperacoes;
+	private final BlockingQueue<Pedido> fila = new LinkedBlockingQueue<>();
+	private final Thread escritor;
+	private volatile boolean fechado = false;
+
+	private final LongAdder transacoes = new LongAdder();
+	private final LongAdder operacoes = new LongAdder();
+
+	/*
+	 * esperaMaxima: tempo máximo, em milissegundos, que a primeira gravação do grupo espera por outras
+	 * maxOperacoes: quantidade de gravações que fecha o grupo antes do fim da espera
+	 */
+	public GravadorEmGrupo(long esperaMaxima, int maxOperacoes) {
+		if (esperaMaxima < 0)
+			throw new IllegalArgumentException("Espera máxima inválida");
+
+		if (maxOperacoes <= 0)
+			throw new IllegalArgumentException("Quantidade máxima de operações inválida");
+
+		this.esperaMaxima = esperaMaxima;
+		this.maxOperacoes = maxOperacoes;
+
+		this.escritor = new Thread(this::escreve, "gravador-em-grupo");
+		this.escritor.setDaemon(true);
+		this.escritor.start();
+	}
+
+	/*
+	 * Entrega a operação à thread escritora
+	 * O resultado é completado depois do commit do grupo
+	 */
+	CompletableFuture<Integer> submete(Operacao operacao) {
+		Pedido pedido = new Pedido(operacao);
+
+		synchronized (this) {
+			if (fechado)
+				throw new IllegalArgumentException("Gravador em grupo está fechado");
+
+			fila.add(pedido);
+		}
+
+		return pedido.resultado;
+	}
+
+	/*
+	 * Executa a operação no próximo grupo e espera o commit
+	 * Lança a exceção da operação ou da transação
+	 */
+	int grava(Operacao operacao) throws SQLException {
+		try {
+			return submete(operacao).join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof SQLException)
+				throw (SQLException) e.getCause();
+
+			throw new IllegalArgumentException(e.getCause());
+		}
+	}
+
+	/*
+	 * Quantidade de transações confirmadas pela thread escritora
+	 */
+	public long getTransacoes() {
+		return transacoes.sum();
+	}
+
+	/*
+	 * Quantidade de gravações confirmadas pela thread escritora
+	 */
+	public long getOperacoes() {
+		return operacoes.sum();
+	}
+
+	public long getEsperaMaxima() {
+		return esperaMaxima;
+	}
+
+	public int getMaxOperacoes() {
+		return maxOperacoes;
+	}
+
+	/*
+	 * Grava as operações pendentes e encerra a thread escritora
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (fechado)
+				return;
+
+			fechado = true;
+			fila.add(FIM);
+		}
+
+		try {
+			escritor.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void escreve() {
+		List<Pedido> grupo = new ArrayList<>(maxOperacoes);
+		boolean fim = false;
+
+		while (!fim) {
+			try {
+				Pedido pedido = fila.take();
+				long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaxima);
+
+				while (pedido != null) {
+					if (pedido == FIM) {
+						fim = true;
+						break;
+					}
+
+					grupo.add(pedido);
+
+					if (grupo.size() >= maxOperacoes)
+						break;
+
+					pedido = fila.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+				}
+			}
+			catch (InterruptedException e) {
+				fim = true;
+			}
+
+			if (!grupo.isEmpty())
+				grava(grupo);
+
+			grupo.clear();
+		}
+
+		// Fechado por interrupção: recusa as próximas operações, já que nenhuma thread
+		// vai consumir a fila, e não deixa chamadores esperando para sempre
+		synchronized (this) {
+			fechado = true;
+		}
+
+		for (Pedido pedido; (pedido = fila.poll()) != null; )
+			if (pedido != FIM)
+				pedido.resultado.completeExceptionally(new SQLException("Gravador em grupo foi fechado"));
+	}
+
+	/*
+	 * Grava o grupo em uma única transação e só então completa os resultados
+	 */
+	private void grava(List<Pedido> grupo) {
+		int[] resultados = new int[grupo.size()];
+		SQLException[] erros = new SQLException[grupo.size()];
+
+		try (Connection conn = DBConnection.get()) {
+			conn.setAutoCommit(false);
+
+			try {
+				// O SQLite desfaz só o comando que falhou, sem abortar a transação
+				for (int i = 0; i < resultados.length; i++) {
+					try {
+						resultados[i] = grupo.get(i).operacao.executa(conn);
+					}
+					catch (SQLException e) {
+						erros[i] = e;
+					}
+				}
+
+				conn.commit();
+			}
+			catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			}
+			finally {
+				conn.setAutoCommit(true);
+			}
+		}
+		catch (Exception e) {
+			for (Pedido pedido : grupo)
+				pedido.resultado.completeExceptionally(e);
+
+			return;
+		}
+
+		transacoes.increment();
+
+		for (int i = 0; i < resultados.length; i++) {
+			if (erros[i] != null)
+				grupo.get(i).resultado.completeExceptionally(erros[i]);
+			else {
+				operacoes.increment();
+				grupo.get(i).resultado.complete(resultados[i]);
+			}
+		}
+	}
+}
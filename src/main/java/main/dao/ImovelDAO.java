@@ -1,20 +1,75 @@
 package main.dao;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import main.db.DBConnection;
+import main.factory.ImovelFactory;
 import main.model.Imovel;
 import main.model.ImovelDTO;
+import main.util.Money;
 
 /*
  * Classe responsável pelas operações de SELECT INSERT, DELET e UPDATE na tabela do Imovel
  */
 public class ImovelDAO {
 	
+	// Quantidade padrão de linhas enviadas em cada executeBatch
+	public static final int TAMANHO_LOTE = 500;
+	
+	// Quantidade padrão de linhas buscadas do SGBD a cada ida ao cursor
+	public static final int FETCH_SIZE = 1000;
+	
+	// Maior quantidade de parâmetros em uma consulta (SQLITE_MAX_VARIABLE_NUMBER das versões antigas do SQLite)
+	public static final int LIMITE_PARAMETROS = 999;
+	
+	// Gravação em grupo de insert, update e delete: desligada (nulo) por padrão
+	private static volatile GravadorEmGrupo gravador = null;
+	
+	static final String INSERT = "insert into imovel (inscricao, dt_liberacao, valor, area, categoria) values (?,?,?,?,?)";
+	
+	// UPDATE de cada combinação de campos alterados, indexado pelos bits de Imovel.getAlterados
+	private static final String[] UPDATES = new String[Imovel.TODOS + 1];
+	
+	static {
+		String[] colunas = { "inscricao", "dt_liberacao", "valor", "area", "categoria" };
+		
+		for (int alterados = 1; alterados <= Imovel.TODOS; alterados++) {
+			StringBuilder sql = new StringBuilder("update imovel set ");
+			
+			for (int c = 0; c < colunas.length; c++)
+				if ((alterados & (1 << c)) != 0)
+					sql.append(colunas[c]).append("=?, ");
+			
+			sql.setLength(sql.length() - 2);
+			UPDATES[alterados] = sql.append(" where id=?").toString();
+		}
+	}
+	
+	// Projeção do cálculo do IPTU, lida pelo índice das colunas em leColunasCalculo
+	private static final String SELECT_CALCULO = "select inscricao, valor, area, unicode(categoria), dt_liberacao from imovel order by id";
+	
+	// INSERT ou UPDATE pela inscrição em um único comando, retornando o ID da linha
+	private static final String UPSERT = INSERT
+			+ " on conflict(inscricao) do update set dt_liberacao=excluded.dt_liberacao, valor=excluded.valor,"
+			+ " area=excluded.area, categoria=excluded.categoria returning id";
+	
 	/*
 	 * Recupera um imóvel com base no ID
 	 * Retorna um DTO com os dados do objeto recuperado ou
@@ -27,22 +82,7 @@ public class ImovelDAO {
 			stm.setInt(1, id);
 			
 			try (ResultSet rs = stm.executeQuery()) {
-			
-				ImovelDTO dto = new ImovelDTO();
-				
-				if (rs.next()) {
-				
-					DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyyMMdd");
-					
-					dto.id = rs.getInt("id");
-					dto.inscricao = rs.getInt("inscricao");
-					dto.dataLiberacao = LocalDate.from(df.parse(rs.getString("dt_liberacao")));
-					dto.valor = rs.getFloat("valor");
-					dto.area = rs.getInt("area");
-					dto.categoria = rs.getString("categoria").charAt(0);
-				}
-				
-				return dto;
+				return rs.next() ? leDTO(rs) : new ImovelDTO();
 			}
 		}
 		catch(Exception e) {
@@ -62,103 +102,914 @@ public class ImovelDAO {
 			stm.setInt(1, inscricao);
 			
 			try (ResultSet rs = stm.executeQuery()) {
+				return rs.next() ? leDTO(rs) : new ImovelDTO();
+			}
+		}
+		catch(Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
+	/*
+	 * Recupera os imóveis com os IDs informados, com consultas IN de até LIMITE_PARAMETROS IDs
+	 * Retorna um mapa do ID para o DTO; IDs que não existem no BD ficam fora do mapa
+	 */
+	public static Map<Integer, ImovelDTO> getByIDs(int[] ids) {
+		return buscaVarios("id", ids, true);
+	}
+	
+	/*
+	 * Recupera os imóveis com as inscrições informadas, com consultas IN de até LIMITE_PARAMETROS inscrições
+	 * Retorna um mapa da inscrição para o DTO; inscrições que não existem no BD ficam fora do mapa
+	 */
+	public static Map<Integer, ImovelDTO> getByInscricoes(int[] inscricoes) {
+		return buscaVarios("inscricao", inscricoes, false);
+	}
+	
+	/*
+	 * Percorre toda a tabela de imóveis, em ordem de ID, com um único cursor
+	 * O Stream mantém uma conexão emprestada até ser fechado: use try-with-resources
+	 */
+	public static Stream<ImovelDTO> stream() {
+		return stream(FETCH_SIZE);
+	}
+	
+	public static Stream<ImovelDTO> stream(int fetchSize) {
+		return abreCursor("select * from imovel order by id", fetchSize, stm -> {});
+	}
+	
+	/*
+	 * Percorre os imóveis de uma categoria, em ordem de ID, com um único cursor
+	 */
+	public static Stream<ImovelDTO> streamByCategoria(char categoria, int fetchSize) {
+		return abreCursor("select * from imovel where categoria=? order by id", fetchSize,
+				stm -> stm.setString(1, Character.toString(categoria)));
+	}
+	
+	/*
+	 * Recebe as colunas do cálculo do IPTU de cada imóvel lido por leColunasCalculo
+	 * valor em reais e dtLiberacao em dias desde 1970-01-01
+	 */
+	public interface LeitorCalculo {
+		void linha(int inscricao, float valor, int area, char categoria, long dtLiberacao);
+	}
+	
+	/*
+	 * Percorre a tabela inteira, em ordem de ID, lendo só as colunas usadas pelo cálculo do IPTU
+	 * e a inscrição, que identifica o resultado
+	 * As colunas são lidas pelo índice e entregues ao leitor como primitivos, sem criar DTO nem String
+	 * por linha: a categoria vem como código (unicode) em vez de texto
+	 * Retorna a quantidade de imóveis lidos
+	 */
+	public static long leColunasCalculo(int fetchSize, LeitorCalculo leitor) {
+		if (fetchSize <= 0)
+			throw new IllegalArgumentException("Fetch size inválido");
+		
+		try (Connection conn = DBConnection.get();
+			PreparedStatement stm = conn.prepareStatement(SELECT_CALCULO)) {
 			
-				ImovelDTO dto = new ImovelDTO();
-				
-				if (rs.next()) {
-				
-					DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyyMMdd");
-					
-					dto.id = rs.getInt("id");
-					dto.inscricao = rs.getInt("inscricao");
-					dto.dataLiberacao = LocalDate.from(df.parse(rs.getString("dt_liberacao")));
-					dto.valor = rs.getFloat("valor");
-					dto.area = rs.getInt("area");
-					dto.categoria = rs.getString("categoria").charAt(0);
+			stm.setFetchSize(fetchSize);
+			long linhas = 0;
+			
+			try (ResultSet rs = stm.executeQuery()) {
+				while (rs.next()) {
+					leitor.linha(rs.getInt(1), Money.fromCentavos(rs.getLong(2)), rs.getInt(3), (char) rs.getInt(4), rs.getLong(5));
+					linhas++;
 				}
+			}
+			
+			return linhas;
+		}
+		catch(SQLException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
+	/*
+	 * Página de até limit imóveis com ID maior que afterId, em ordem de ID (afterId = 0: primeira página)
+	 * A próxima página é page((int) pagina.ultimaChave, limit): a consulta vai direto à chave pela PK,
+	 * então o custo é o mesmo em qualquer profundidade, ao contrário de um OFFSET
+	 */
+	public static Pagina page(int afterId, int limit) {
+		return pagina("select * from imovel where id > ? order by id limit ?", "id", afterId, limit);
+	}
+	
+	/*
+	 * Página de até limit imóveis com inscrição maior que afterInscricao, em ordem de inscrição,
+	 * pelo índice único da inscrição (afterInscricao = 0: primeira página)
+	 */
+	public static Pagina pageByInscricao(int afterInscricao, int limit) {
+		return pagina("select * from imovel where inscricao > ? order by inscricao limit ?", "inscricao", afterInscricao, limit);
+	}
+	
+	/*
+	 * Percorre os imóveis que atendem ao filtro, na ordem do filtro, com um único cursor
+	 */
+	public static Stream<ImovelDTO> stream(FiltroImovel filtro, int fetchSize) {
+		return abreCursor("select * from imovel" + filtro.where(false) + filtro.orderBy(), fetchSize, filtro::preenche);
+	}
+	
+	/*
+	 * Primeira página de até limite imóveis que atendem ao filtro, na ordem do filtro
+	 */
+	public static Pagina busca(FiltroImovel filtro, int limite) {
+		return busca(filtro, null, limite);
+	}
+	
+	/*
+	 * Página seguinte à anterior (nula: primeira página), com o mesmo filtro usado para buscá-la
+	 * A consulta continua pela chave (coluna de ordenação, id) do último imóvel da anterior,
+	 * então cada página custa o mesmo, qualquer que seja a profundidade
+	 * Os índices da migração 4 atendem os critérios e as ordenações sem percorrer a tabela
+	 */
+	public static Pagina busca(FiltroImovel filtro, Pagina anterior, int limite) {
+		if (limite <= 0)
+			throw new IllegalArgumentException("Limite inválido");
+		
+		boolean continua = anterior != null && !anterior.isVazia();
+		String sql = "select * from imovel" + filtro.where(continua) + filtro.orderBy() + " limit ?";
+		
+		try (Connection conn = DBConnection.get();
+			PreparedStatement stm = conn.prepareStatement(sql)) {
+			
+			int p = filtro.preenche(stm);
+			
+			if (continua) {
+				if (filtro.ordem != FiltroImovel.Ordem.ID)
+					stm.setLong(p++, anterior.ultimaChave);
 				
-				return dto;
+				stm.setInt(p++, anterior.ultimoID);
 			}
+			
+			// Uma linha a mais indica se há próxima página
+			stm.setInt(p, limite + 1);
+			
+			return lePagina(stm, filtro.ordem.coluna, limite);
 		}
 		catch(Exception e) {
 			throw new IllegalArgumentException(e);
 		}
 	}
+	
+	private static Pagina pagina(String sql, String coluna, int depoisDe, int limite) {
+		if (limite <= 0)
+			throw new IllegalArgumentException("Limite inválido");
+		
+		try (Connection conn = DBConnection.get();
+			PreparedStatement stm = conn.prepareStatement(sql)) {
+			
+			stm.setInt(1, depoisDe);
+			stm.setInt(2, limite + 1);
+			
+			return lePagina(stm, coluna, limite);
+		}
+		catch(Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
+	/*
+	 * Quantidade de imóveis que atendem ao filtro
+	 */
+	public static long conta(FiltroImovel filtro) {
+		try (Connection conn = DBConnection.get();
+			PreparedStatement stm = conn.prepareStatement("select count(*) from imovel" + filtro.where(false))) {
+			
+			filtro.preenche(stm);
+			
+			try (ResultSet rs = stm.executeQuery()) {
+				return rs.next() ? rs.getLong(1) : 0;
+			}
+		}
+		catch(Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
 	/*
 	 * Insere um novo Imovel na tabela e retorna o ID gerado pelo SGBD
+	 * Com a gravação em grupo ligada, retorna depois do commit do grupo
 	 * Retorna ZERO, caso a inserção não seja bem sucedida
+	 * Dentro de DBConnection.inTransaction, a falha lança IllegalArgumentException e desfaz a transação
 	 */
 	public static int insert(Imovel imovel) {
-		int id = 0;
-		DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyyMMdd");
+		GravadorEmGrupo g = gravadorFora();
 		
-		try (Connection conn = DBConnection.get();
-			 PreparedStatement stm = conn.prepareStatement("insert into imovel (inscricao, dt_liberacao, valor, area, categoria) values (?,?,?,?,?)")) {		
-			
-			stm.setInt(1, imovel.getInscricao());
-			stm.setString(2, imovel.getDataLiberacao().format(df));
-			stm.setFloat(3, imovel.getValor());
-			stm.setInt(4, imovel.getArea());
-			stm.setString(5, Character.toString(imovel.getCategoria()));
+		try {
+			if (g != null)
+				return g.grava(conn -> insere(conn, imovel));
 			
-			stm.executeUpdate();
+			try (Connection conn = DBConnection.get()) {
+				return insere(conn, imovel);
+			}
+		}
+		catch(Exception e) {
+			falhaNaTransacao(e);
+			return 0;
+		}
+	}
+	
+	/*
+	 * Insere os imóveis em lotes de TAMANHO_LOTE linhas, todos em uma única transação
+	 */
+	public static ResultadoLote insertAll(Collection<Imovel> imoveis) {
+		return insertAll(imoveis, TAMANHO_LOTE);
+	}
+	
+	/*
+	 * Insere os imóveis em lotes de tamanhoLote linhas, todos em uma única transação
+	 * Dentro de DBConnection.inTransaction, usa a transação externa
+	 * O ID gerado para cada imóvel é gravado no objeto com setID e retornado no resultado
+	 * As linhas recusadas pelo SGBD (ex.: inscrição duplicada) são informadas em ResultadoLote.falhas
+	 * e não impedem a gravação das demais
+	 * O cache de ImovelFactory é atualizado depois do commit (ver Gravados)
+	 */
+	public static ResultadoLote insertAll(Collection<Imovel> imoveis, int tamanhoLote) {
+		if (tamanhoLote <= 0)
+			throw new IllegalArgumentException("Tamanho do lote inválido");
+		
+		Imovel[] lista = imoveis.toArray(new Imovel[0]);
+		ResultadoLote resultado = new ResultadoLote(lista.length);
+		
+		try (Connection conn = DBConnection.get();
+			 PreparedStatement stm = conn.prepareStatement(INSERT);
+			 PreparedStatement ultimoID = conn.prepareStatement("select last_insert_rowid()")) {
 			
-			// Recupera o ID gerado pelo SGBD
-			try (ResultSet rs = stm.getGeneratedKeys()) {
-	            if (rs.next())
-	                id = rs.getInt(1);
+			transacao(conn, () -> {
+				for (int inicio = 0; inicio < lista.length; inicio += tamanhoLote)
+					insereLote(conn, stm, ultimoID, lista, inicio, Math.min(inicio + tamanhoLote, lista.length), resultado);
+			});
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+		
+		// Fora de uma transação externa, só grava os IDs nos objetos depois do commit
+		Gravados gravados = new Gravados(lista.length);
+		
+		for (int i = 0; i < lista.length; i++)
+			if (resultado.ids[i] != 0) {
+				gravados.add(lista[i]);
+				lista[i].setID(resultado.ids[i]);
+				lista[i].limpaAlterados();
 			}
-
-			return id;
+		
+		gravados.termina(false);
+		return resultado;
+	}
+	
+	/*
+	 * Insere o imóvel ou, se a inscrição já existir, atualiza a linha existente
+	 * Retorna o ID da linha inserida ou atualizada, ou ZERO se a gravação falhar
+	 * Dentro de DBConnection.inTransaction, a falha lança IllegalArgumentException e desfaz a transação
+	 */
+	public static int upsert(Imovel imovel) {
+		try (Connection conn = DBConnection.get();
+			 PreparedStatement stm = conn.prepareStatement(UPSERT)) {
+			
+			return upsert(stm, imovel);
 		}
 		catch(Exception e) {
+			falhaNaTransacao(e);
 			return 0;
 		}
 	}
 	
 	/*
-	 * Atualiza os dados do Imovel na tabela e retorna true
-	 * Retorna false, caso a atualização não seja bem sucedida
+	 * Faz o upsert de cada imóvel, todos em uma única transação
+	 * Dentro de DBConnection.inTransaction, usa a transação externa
+	 * O ID de cada imóvel é gravado no objeto com setID e retornado no resultado
+	 * As linhas recusadas pelo SGBD são informadas em ResultadoLote.falhas e não impedem a gravação das demais
+	 * O cache de ImovelFactory é atualizado depois do commit (ver Gravados)
 	 */
-	public static boolean update(Imovel imovel) {
-		DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyyMMdd");
+	public static ResultadoLote upsertAll(Collection<Imovel> imoveis) {
+		Imovel[] lista = imoveis.toArray(new Imovel[0]);
+		ResultadoLote resultado = new ResultadoLote(lista.length);
 		
 		try (Connection conn = DBConnection.get();
-			 PreparedStatement stm = conn.prepareStatement("update imovel set inscricao=?, dt_liberacao=?, valor=?, area=?, categoria=? where id=?")) {		
+			 PreparedStatement stm = conn.prepareStatement(UPSERT)) {
 			
-			stm.setInt(1, imovel.getInscricao());
-			stm.setString(2, imovel.getDataLiberacao().format(df));
-			stm.setFloat(3, imovel.getValor());
-			stm.setInt(4, imovel.getArea());
-			stm.setString(5, Character.toString(imovel.getCategoria()));
-			stm.setInt(6, imovel.getID());
+			transacao(conn, () -> {
+				// O SQLite desfaz só o comando que falhou, sem abortar a transação
+				for (int i = 0; i < lista.length; i++) {
+					try {
+						resultado.ids[i] = upsert(stm, lista[i]);
+					}
+					catch (SQLException e) {
+						resultado.falhas.add(new ResultadoLote.Falha(i, lista[i], e.getMessage()));
+					}
+				}
+			});
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+		
+		// Fora de uma transação externa, só grava os IDs nos objetos depois do commit
+		Gravados gravados = new Gravados(lista.length);
+		
+		for (int i = 0; i < lista.length; i++)
+			if (resultado.ids[i] != 0) {
+				gravados.add(lista[i]);
+				lista[i].setID(resultado.ids[i]);
+				lista[i].limpaAlterados();
+			}
+		
+		gravados.termina(false);
+		return resultado;
+	}
+	
+	/*
+	 * Atualiza os campos alterados do Imovel (Imovel.getAlterados) na tabela e retorna true
+	 * Sem campos alterados, não acessa o BD
+	 * Com a gravação em grupo ligada, retorna depois do commit do grupo
+	 * Retorna false, caso a atualização não seja bem sucedida
+	 * Dentro de DBConnection.inTransaction, a falha lança IllegalArgumentException e desfaz a transação
+	 */
+	public static boolean update(Imovel imovel) {
+		int alterados = imovel.getAlterados();
+		
+		if (alterados == 0)
+			return true;
+		
+		GravadorEmGrupo g = gravadorFora();
+		
+		try {
+			if (g != null)
+				g.grava(conn -> atualiza(conn, imovel, alterados));
+			else
+				try (Connection conn = DBConnection.get()) {
+					atualiza(conn, imovel, alterados);
+				}
 			
-			stm.executeUpdate();
-
 			return true;
 		}
 		catch(Exception e) {
+			falhaNaTransacao(e);
 			return false;
 		}
 	}
 	
+	/*
+	 * Atualiza os campos alterados dos imóveis em uma única transação, com um executeBatch
+	 * para cada combinação de campos alterados
+	 * Dentro de DBConnection.inTransaction, usa a transação externa
+	 * Retorna a quantidade de imóveis atualizados; se algum falhar, nenhum é atualizado
+	 * O cache de ImovelFactory é atualizado depois do commit (ver Gravados)
+	 */
+	public static int updateAll(Collection<Imovel> imoveis) {
+		Map<Integer, List<Imovel>> porAlterados = new HashMap<>();
+		
+		for (Imovel imovel : imoveis)
+			if (imovel.getAlterados() != 0)
+				porAlterados.computeIfAbsent(imovel.getAlterados(), k -> new ArrayList<>()).add(imovel);
+		
+		if (porAlterados.isEmpty())
+			return 0;
+		
+		int total = 0;
+		
+		try (Connection conn = DBConnection.get()) {
+			transacao(conn, () -> {
+				for (Map.Entry<Integer, List<Imovel>> grupo : porAlterados.entrySet()) {
+					try (PreparedStatement stm = conn.prepareStatement(UPDATES[grupo.getKey()])) {
+						for (Imovel imovel : grupo.getValue()) {
+							int i = preencheAlterados(stm, imovel, grupo.getKey());
+							stm.setInt(i, imovel.getID());
+							stm.addBatch();
+						}
+						
+						stm.executeBatch();
+					}
+				}
+			});
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+		
+		Gravados gravados = new Gravados(imoveis.size());
+		
+		for (List<Imovel> grupo : porAlterados.values())
+			for (Imovel imovel : grupo) {
+				gravados.add(imovel);
+				imovel.limpaAlterados();
+				total++;
+			}
+		
+		gravados.termina(false);
+		return total;
+	}
+	
+	/*
+	 * Exclui os imóveis em uma única transação, com um único executeBatch
+	 * Dentro de DBConnection.inTransaction, usa a transação externa
+	 * O ID dos imóveis excluídos volta para ZERO; se algum falhar, nenhum é excluído
+	 * Os imóveis saem do cache de ImovelFactory depois do commit (ver Gravados)
+	 */
+	public static int deleteAll(Collection<Imovel> imoveis) {
+		List<Imovel> persistentes = new ArrayList<>(imoveis.size());
+		
+		for (Imovel imovel : imoveis)
+			if (imovel.getID() != 0)
+				persistentes.add(imovel);
+		
+		if (persistentes.isEmpty())
+			return 0;
+		
+		try (Connection conn = DBConnection.get();
+			 PreparedStatement stm = conn.prepareStatement("delete from imovel where id=?")) {
+			
+			transacao(conn, () -> {
+				for (Imovel imovel : persistentes) {
+					stm.setInt(1, imovel.getID());
+					stm.addBatch();
+				}
+				
+				stm.executeBatch();
+			});
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+		
+		Gravados gravados = new Gravados(persistentes.size());
+		
+		for (Imovel imovel : persistentes) {
+			gravados.add(imovel);
+			imovel.setID(0);
+		}
+		
+		gravados.termina(true);
+		return persistentes.size();
+	}
+	
 	/*
 	 * Exclui o Imovel da tabela e retorna true
+	 * Com a gravação em grupo ligada, retorna depois do commit do grupo
 	 * Retorna false, caso a exclusão não seja bem sucedida
+	 * Dentro de DBConnection.inTransaction, a falha lança IllegalArgumentException e desfaz a transação
 	 */
 	public static boolean delete(Imovel imovel) {
-		try (Connection conn = DBConnection.get();
-			 PreparedStatement stm = conn.prepareStatement("delete from imovel where id=?")) {		
-			
-			stm.setInt(1, imovel.getID());
+		int id = imovel.getID();
+		GravadorEmGrupo g = gravadorFora();
+		
+		try {
+			if (g != null)
+				g.grava(conn -> exclui(conn, id));
+			else
+				try (Connection conn = DBConnection.get()) {
+					exclui(conn, id);
+				}
 			
-			stm.executeUpdate();
-
 			return true;
 		}
 		catch(Exception e) {
+			falhaNaTransacao(e);
 			return false;
 		}
 	}
+	
+	/*
+	 * Liga a gravação em grupo de insert, update e delete: as gravações de threads concorrentes
+	 * são confirmadas juntas, em uma transação a cada esperaMaxima milissegundos ou maxOperacoes gravações
+	 * maxOperacoes ZERO desliga a gravação em grupo (padrão)
+	 * O gravador anterior grava as operações pendentes antes de ser descartado
+	 */
+	public static synchronized void setGravacaoEmGrupo(long esperaMaxima, int maxOperacoes) {
+		if (maxOperacoes < 0)
+			throw new IllegalArgumentException("Quantidade máxima de operações inválida");
+		
+		GravadorEmGrupo novo = maxOperacoes > 0 ? new GravadorEmGrupo(esperaMaxima, maxOperacoes) : null;
+		GravadorEmGrupo anterior = gravador;
+		
+		gravador = novo;
+		
+		if (anterior != null)
+			anterior.close();
+	}
+	
+	/*
+	 * Retorna o gravador em grupo ou nulo, se a gravação em grupo estiver desligada
+	 */
+	public static GravadorEmGrupo getGravadorEmGrupo() {
+		return gravador;
+	}
+	
+	/*
+	 * Gravador em grupo a usar, ou nulo para gravar na própria thread
+	 * Dentro de DBConnection.inTransaction, a gravação faz parte da transação da thread
+	 */
+	private static GravadorEmGrupo gravadorFora() {
+		GravadorEmGrupo g = gravador;
+		return g != null && !DBConnection.emTransacao() ? g : null;
+	}
+	
+	/*
+	 * Dentro de DBConnection.inTransaction, propaga a falha de uma gravação para que a transação
+	 * seja desfeita, em vez de retornar ZERO ou false e deixar o resto do trabalho ser confirmado
+	 */
+	private static void falhaNaTransacao(Exception e) {
+		if (!DBConnection.emTransacao())
+			return;
+		
+		if (e instanceof IllegalArgumentException)
+			throw (IllegalArgumentException) e;
+		
+		throw new IllegalArgumentException(e);
+	}
+	
+	private static int insere(Connection conn, Imovel imovel) throws SQLException {
+		try (PreparedStatement stm = conn.prepareStatement(INSERT)) {
+			preenche(stm, imovel);
+			
+			stm.executeUpdate();
+			
+			// Recupera o ID gerado pelo SGBD
+			try (ResultSet rs = stm.getGeneratedKeys()) {
+				return rs.next() ? rs.getInt(1) : 0;
+			}
+		}
+	}
+	
+	private static int atualiza(Connection conn, Imovel imovel, int alterados) throws SQLException {
+		try (PreparedStatement stm = conn.prepareStatement(UPDATES[alterados])) {
+			int i = preencheAlterados(stm, imovel, alterados);
+			stm.setInt(i, imovel.getID());
+			
+			return stm.executeUpdate();
+		}
+	}
+	
+	private static int exclui(Connection conn, int id) throws SQLException {
+		try (PreparedStatement stm = conn.prepareStatement("delete from imovel where id=?")) {
+			stm.setInt(1, id);
+			
+			return stm.executeUpdate();
+		}
+	}
+	
+	/*
+	 * Executa as linhas [inicio, fim) em um único executeBatch
+	 * Se alguma linha falhar, desfaz o lote e grava linha a linha para descobrir quais falharam
+	 */
+	private static void insereLote(Connection conn, PreparedStatement stm, PreparedStatement ultimoID,
+			Imovel[] lista, int inicio, int fim, ResultadoLote resultado) throws SQLException {
+		
+		Savepoint sp = conn.setSavepoint();
+		
+		try {
+			for (int i = inicio; i < fim; i++) {
+				preenche(stm, lista[i]);
+				stm.addBatch();
+			}
+			
+			stm.executeBatch();
+			
+			// A transação detém o lock de escrita, então os IDs do lote são consecutivos
+			int id = ultimoID(ultimoID);
+			
+			for (int i = fim - 1; i >= inicio; i--)
+				resultado.ids[i] = id--;
+			
+			conn.releaseSavepoint(sp);
+		}
+		catch (BatchUpdateException e) {
+			stm.clearBatch();
+			conn.rollback(sp);
+			
+			for (int i = inicio; i < fim; i++) {
+				try {
+					preenche(stm, lista[i]);
+					stm.executeUpdate();
+					
+					resultado.ids[i] = ultimoID(ultimoID);
+				}
+				catch (SQLException ex) {
+					resultado.falhas.add(new ResultadoLote.Falha(i, lista[i], ex.getMessage()));
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Preenche os parâmetros dos campos alterados, na ordem das colunas
+	 * Retorna o índice do próximo parâmetro
+	 */
+	private static int preencheAlterados(PreparedStatement stm, Imovel imovel, int alterados) throws SQLException {
+		int i = 1;
+		
+		if ((alterados & Imovel.INSCRICAO) != 0)
+			stm.setInt(i++, imovel.getInscricao());
+		
+		if ((alterados & Imovel.DATA_LIBERACAO) != 0)
+			stm.setLong(i++, imovel.getDataLiberacao().toEpochDay());
+		
+		if ((alterados & Imovel.VALOR) != 0)
+			stm.setLong(i++, Money.toCentavos(imovel.getValor()));
+		
+		if ((alterados & Imovel.AREA) != 0)
+			stm.setInt(i++, imovel.getArea());
+		
+		if ((alterados & Imovel.CATEGORIA) != 0)
+			stm.setString(i++, Character.toString(imovel.getCategoria()));
+		
+		return i;
+	}
+	
+	/*
+	 * Busca as chaves distintas em blocos de até LIMITE_PARAMETROS
+	 * Cada bloco usa um IN com quantidade de parâmetros arredondada para potência de 2,
+	 * completada com a última chave, para que poucos SQLs diferentes passem pelo cache de statements
+	 */
+	private static Map<Integer, ImovelDTO> buscaVarios(String coluna, int[] chaves, boolean porID) {
+		int[] distintas = IntStream.of(chaves).distinct().toArray();
+		Map<Integer, ImovelDTO> encontrados = new HashMap<>(distintas.length * 4 / 3 + 1);
+		
+		if (distintas.length == 0)
+			return encontrados;
+		
+		try (Connection conn = DBConnection.get()) {
+			for (int inicio = 0; inicio < distintas.length; inicio += LIMITE_PARAMETROS) {
+				int fim = Math.min(inicio + LIMITE_PARAMETROS, distintas.length);
+				int parametros = tamanhoIN(fim - inicio);
+				
+				try (PreparedStatement stm = conn.prepareStatement(sqlIN(coluna, parametros))) {
+					for (int i = 0; i < parametros; i++)
+						stm.setInt(i + 1, distintas[Math.min(inicio + i, fim - 1)]);
+					
+					try (ResultSet rs = stm.executeQuery()) {
+						while (rs.next()) {
+							ImovelDTO dto = leDTO(rs);
+							encontrados.put(porID ? dto.id : dto.inscricao, dto);
+						}
+					}
+				}
+			}
+			
+			return encontrados;
+		}
+		catch(Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
+	private static int tamanhoIN(int n) {
+		int tamanho = Integer.highestOneBit(n);
+		
+		if (tamanho < n)
+			tamanho <<= 1;
+		
+		return Math.min(tamanho, LIMITE_PARAMETROS);
+	}
+	
+	private static String sqlIN(String coluna, int parametros) {
+		StringBuilder sql = new StringBuilder(40 + 2 * parametros);
+		sql.append("select * from imovel where ").append(coluna).append(" in (?");
+		
+		for (int i = 1; i < parametros; i++)
+			sql.append(",?");
+		
+		return sql.append(')').toString();
+	}
+	
+	private static int upsert(PreparedStatement stm, Imovel imovel) throws SQLException {
+		preenche(stm, imovel);
+		
+		try (ResultSet rs = stm.executeQuery()) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+	
+	private static int ultimoID(PreparedStatement ultimoID) throws SQLException {
+		try (ResultSet rs = ultimoID.executeQuery()) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+	
+	/*
+	 * Comandos executados dentro de uma transação
+	 */
+	private interface Comandos {
+		void executa() throws SQLException;
+	}
+	
+	/*
+	 * Executa os comandos em uma transação própria da conexão
+	 * Dentro de DBConnection.inTransaction, os comandos fazem parte da transação externa,
+	 * que é confirmada ou desfeita por ela
+	 */
+	private static void transacao(Connection conn, Comandos comandos) throws SQLException {
+		if (DBConnection.emTransacao()) {
+			comandos.executa();
+			return;
+		}
+		
+		conn.setAutoCommit(false);
+		
+		try {
+			comandos.executa();
+			conn.commit();
+		}
+		catch (SQLException | RuntimeException e) {
+			conn.rollback();
+			throw e;
+		}
+		finally {
+			conn.setAutoCommit(true);
+		}
+	}
+	
+	/*
+	 * Imóveis alterados em memória por uma gravação em lote, com o ID e os campos alterados
+	 * de antes da gravação
+	 * Fora de DBConnection.inTransaction, a gravação já foi confirmada e o cache é atualizado na hora
+	 * Dentro, o cache espera o commit da transação externa e, se ela for desfeita, os imóveis
+	 * voltam ao ID e aos campos alterados anteriores, como em Imovel.save
+	 */
+	private static class Gravados {
+		private final Imovel[] imoveis;
+		private final int[] ids;
+		private final int[] mascaras;
+		private int n = 0;
+		
+		Gravados(int capacidade) {
+			imoveis = new Imovel[capacidade];
+			ids = new int[capacidade];
+			mascaras = new int[capacidade];
+		}
+		
+		void add(Imovel imovel) {
+			imoveis[n] = imovel;
+			ids[n] = imovel.getID();
+			mascaras[n] = imovel.getAlterados();
+			n++;
+		}
+		
+		void termina(boolean excluidos) {
+			if (n == 0)
+				return;
+			
+			Runnable cache = () -> {
+				for (int i = 0; i < n; i++)
+					if (excluidos)
+						ImovelFactory.removeDoCache(ids[i], imoveis[i].getInscricao());
+					else
+						ImovelFactory.atualizaCache(imoveis[i]);
+			};
+			
+			if (!DBConnection.emTransacao()) {
+				cache.run();
+				return;
+			}
+			
+			DBConnection.aoTerminar(cache, () -> {
+				for (int i = 0; i < n; i++) {
+					imoveis[i].setID(ids[i]);
+					imoveis[i].limpaAlterados();
+					imoveis[i].marcaAlterados(mascaras[i]);
+				}
+			});
+		}
+	}
+	
+	/*
+	 * Preenche os parâmetros da consulta de um cursor
+	 */
+	private interface Parametros {
+		void preenche(PreparedStatement stm) throws SQLException;
+	}
+	
+	/*
+	 * Abre a consulta e devolve um Stream que lê uma linha por vez do ResultSet
+	 * ResultSet, statement e conexão são fechados quando o Stream é fechado ou chega ao fim
+	 */
+	private static Stream<ImovelDTO> abreCursor(String sql, int fetchSize, Parametros parametros) {
+		if (fetchSize <= 0)
+			throw new IllegalArgumentException("Fetch size inválido");
+		
+		Cursor cursor = new Cursor();
+		
+		try {
+			cursor.conn = DBConnection.get();
+			cursor.stm = cursor.conn.prepareStatement(sql);
+			cursor.stm.setFetchSize(fetchSize);
+			parametros.preenche(cursor.stm);
+			cursor.rs = cursor.stm.executeQuery();
+		}
+		catch (Exception e) {
+			cursor.run();
+			throw new IllegalArgumentException(e);
+		}
+		
+		return StreamSupport.stream(cursor, false).onClose(cursor);
+	}
+	
+	/*
+	 * Cursor sobre um ResultSet aberto
+	 * run() fecha os recursos e pode ser chamado mais de uma vez
+	 */
+	private static class Cursor extends Spliterators.AbstractSpliterator<ImovelDTO> implements Runnable {
+		
+		Connection conn;
+		PreparedStatement stm;
+		ResultSet rs;
+		
+		Cursor() {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super ImovelDTO> action) {
+			if (rs == null)
+				return false;
+			
+			try {
+				if (!rs.next()) {
+					run();
+					return false;
+				}
+				
+				action.accept(leDTO(rs));
+				return true;
+			}
+			catch (SQLException e) {
+				run();
+				throw new IllegalArgumentException(e);
+			}
+		}
+		
+		@Override
+		public void run() {
+			fecha(rs);
+			fecha(stm);
+			fecha(conn);
+			
+			rs = null;
+			stm = null;
+			conn = null;
+		}
+		
+		private static void fecha(AutoCloseable recurso) {
+			try {
+				if (recurso != null)
+					recurso.close();
+			} catch (Exception e) {
+				// O cursor já está sendo descartado
+			}
+		}
+	}
+	
+	/*
+	 * Lê até limite linhas da consulta como uma página; a linha seguinte, se existir, só indica que há próxima
+	 * A chave de continuação é lida da coluna de ordenação como gravada, e não do DTO, que tem o valor em float
+	 */
+	private static Pagina lePagina(PreparedStatement stm, String colunaChave, int limite) throws SQLException {
+		List<ImovelDTO> imoveis = new ArrayList<>(Math.min(limite, FETCH_SIZE));
+		long chave = 0;
+		int id = 0;
+		
+		try (ResultSet rs = stm.executeQuery()) {
+			while (rs.next()) {
+				if (imoveis.size() == limite)
+					return new Pagina(imoveis, chave, id, true);
+				
+				ImovelDTO dto = leDTO(rs);
+				imoveis.add(dto);
+				chave = rs.getLong(colunaChave);
+				id = dto.id;
+			}
+		}
+		
+		return new Pagina(imoveis, chave, id, false);
+	}
+	
+	/*
+	 * Monta o DTO com os dados da linha corrente do ResultSet
+	 */
+	private static ImovelDTO leDTO(ResultSet rs) throws SQLException {
+		ImovelDTO dto = new ImovelDTO();
+		
+		// dt_liberacao é gravada em dias desde 1970-01-01 e valor em centavos
+		dto.id = rs.getInt("id");
+		dto.inscricao = rs.getInt("inscricao");
+		dto.dataLiberacao = LocalDate.ofEpochDay(rs.getLong("dt_liberacao"));
+		dto.valor = Money.fromCentavos(rs.getLong("valor"));
+		dto.area = rs.getInt("area");
+		dto.categoria = rs.getString("categoria").charAt(0);
+		
+		return dto;
+	}
+	
+	/*
+	 * Preenche os parâmetros 1 a 5 com os dados do imóvel, na ordem das colunas da tabela
+	 */
+	private static void preenche(PreparedStatement stm, Imovel imovel) throws SQLException {
+		stm.setInt(1, imovel.getInscricao());
+		stm.setLong(2, imovel.getDataLiberacao().toEpochDay());
+		stm.setLong(3, Money.toCentavos(imovel.getValor()));
+		stm.setInt(4, imovel.getArea());
+		stm.setString(5, Character.toString(imovel.getCategoria()));
+	}
 
 }
@@ -0,0 +1,682 @@
+package main.dao;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import main.db.DBConnection;
+import main.model.Imovel;
+import main.util.Money;
+
+/*
+ * Importação do cadastro de imóveis de um arquivo CSV para a tabela imovel
+ *
+ * Cada linha tem os campos inscricao, data de liberação (aaaa-mm-dd ou dd/mm/aaaa), valor
+ * (com ponto ou vírgula decimal), area e categoria, separados pelo separador (';' por padrão)
+ *
+ * A importação é feita em estágios ligados por filas limitadas, e os blocos lidos e os lotes
+ * convertidos são reaproveitados, então o uso de memória não depende do tamanho do arquivo
+ * (a conversão ainda cria alguns objetos de vida curta por linha, como a data e o texto do valor):
+ *   - leitura: lê o arquivo por um FileChannel, em blocos de linhas completas
+ *   - conversão: várias threads convertem e validam os blocos (regras de Imovel.validacao)
+ *   - gravação: a thread chamadora insere as linhas em executeBatch de tamanhoLote linhas
+ *     e confirma a transação a cada intervaloCommit linhas
+ * As linhas rejeitadas na conversão, na validação ou pelo SGBD (ex.: inscrição duplicada)
+ * são gravadas no relatório, com o número da linha e o motivo
+ * Se a importação for interrompida por um erro, as linhas já confirmadas continuam no BD
+ * Como confirma a transação durante a gravação, não pode ser chamada dentro de DBConnection.inTransaction
+ */
+public class ImportadorCSV {
+
+	// Tamanho padrão dos blocos lidos do arquivo
+	public static final int TAMANHO_BLOCO = 4 * 1024 * 1024;
+
+	// Quantidade padrão de linhas gravadas entre dois commits
+	public static final int INTERVALO_COMMIT = 50000;
+
+	// Leitura do FileChannel a cada chamada de read
+	private static final int TAMANHO_LEITURA = 1024 * 1024;
+
+	/*
+	 * Trecho do arquivo com linhas completas
+	 * Os blocos são reaproveitados: a conversão devolve o bloco à leitura depois de usá-lo
+	 */
+	private static class Bloco {
+		final byte[] dados;
+		int tamanho;
+		long primeiraLinha;
+
+		Bloco(int capacidade) {
+			this.dados = new byte[capacidade];
+		}
+	}
+
+	/*
+	 * Linhas válidas de um bloco, já no formato das colunas da tabela, e linhas rejeitadas
+	 * Os lotes também são reaproveitados: a gravação devolve o lote à conversão depois de usá-lo
+	 */
+	private static class Lote {
+		int n = 0;
+		long lidas = 0;
+		int[] inscricao;
+		long[] dtLiberacao;
+		long[] valor;
+		int[] area;
+		char[] categoria;
+		long[] linha;
+		final List<String> rejeitadas = new ArrayList<>();
+
+		// Áreas de trabalho da conversão de uma linha: início e fim de cada campo e texto do valor
+		final int[] campos = new int[10];
+		final char[] texto = new char[20];
+
+		Lote(int capacidade) {
+			aloca(capacidade);
+		}
+
+		/*
+		 * Esvazia o lote para as linhas de um novo bloco; os vetores só crescem
+		 */
+		void prepara(int linhas) {
+			n = 0;
+			lidas = 0;
+			rejeitadas.clear();
+
+			if (inscricao.length < linhas)
+				aloca(linhas);
+		}
+
+		private void aloca(int capacidade) {
+			inscricao = new int[capacidade];
+			dtLiberacao = new long[capacidade];
+			valor = new long[capacidade];
+			area = new int[capacidade];
+			categoria = new char[capacidade];
+			linha = new long[capacidade];
+		}
+	}
+
+	// Marcadores de fim da leitura e da conversão
+	private static final Bloco FIM_LEITURA = new Bloco(0);
+	private static final Lote FIM_CONVERSAO = new Lote(0);
+
+	private char separador = ';';
+	private boolean cabecalho = true;
+	private int paralelismo = Runtime.getRuntime().availableProcessors();
+	private int tamanhoBloco = TAMANHO_BLOCO;
+	private int tamanhoLote = ImovelDAO.TAMANHO_LOTE;
+	private int intervaloCommit = INTERVALO_COMMIT;
+	private Path relatorio = null;
+
+	public void setSeparador(char separador) {
+		if (separador == '.' || separador == ',' || separador == '-' || separador == '/' || Character.isDigit(separador))
+			throw new IllegalArgumentException("Separador inválido");
+
+		this.separador = separador;
+	}
+
+	/*
+	 * Indica se a primeira linha do arquivo é um cabeçalho, que não é importado
+	 */
+	public void setCabecalho(boolean cabecalho) {
+		this.cabecalho = cabecalho;
+	}
+
+	/*
+	 * Quantidade de threads que convertem e validam as linhas
+	 */
+	public void setParalelismo(int paralelismo) {
+		if (paralelismo <= 0)
+			throw new IllegalArgumentException("Paralelismo inválido");
+
+		this.paralelismo = paralelismo;
+	}
+
+	/*
+	 * Tamanho, em bytes, dos blocos lidos do arquivo; nenhuma linha pode ser maior que o bloco
+	 */
+	public void setTamanhoBloco(int tamanhoBloco) {
+		if (tamanhoBloco <= 0)
+			throw new IllegalArgumentException("Tamanho do bloco inválido");
+
+		this.tamanhoBloco = tamanhoBloco;
+	}
+
+	/*
+	 * Quantidade de linhas enviadas em cada executeBatch
+	 */
+	public void setTamanhoLote(int tamanhoLote) {
+		if (tamanhoLote <= 0)
+			throw new IllegalArgumentException("Tamanho do lote inválido");
+
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	/*
+	 * Quantidade de linhas gravadas entre dois commits
+	 */
+	public void setIntervaloCommit(int intervaloCommit) {
+		if (intervaloCommit <= 0)
+			throw new IllegalArgumentException("Intervalo de commit inválido");
+
+		this.intervaloCommit = intervaloCommit;
+	}
+
+	/*
+	 * Arquivo onde são gravadas as linhas rejeitadas (nulo: não grava o relatório)
+	 */
+	public void setRelatorio(Path relatorio) {
+		this.relatorio = relatorio;
+	}
+
+	/*
+	 * Importa o arquivo para a tabela imovel
+	 */
+	public ResultadoImportacao importa(Path arquivo) {
+		// A conexão da transação externa não pode ser confirmada a cada intervaloCommit linhas
+		if (DBConnection.emTransacao())
+			throw new IllegalArgumentException("A importação confirma as linhas durante a gravação e não pode ser feita dentro de uma transação");
+
+		long inicio = System.nanoTime();
+
+		BlockingQueue<Bloco> livres = new ArrayBlockingQueue<>(paralelismo * 2 + 1);
+		BlockingQueue<Bloco> lidos = new LinkedBlockingQueue<>();
+		BlockingQueue<Lote> convertidos = new ArrayBlockingQueue<>(paralelismo * 2);
+		AtomicReference<Exception> erro = new AtomicReference<>();
+
+		// Um lote para cada conversão em andamento, para cada vaga da fila e para a gravação
+		BlockingQueue<Lote> lotesLivres = new ArrayBlockingQueue<>(paralelismo * 3 + 1);
+
+		while (livres.remainingCapacity() > 0)
+			livres.add(new Bloco(tamanhoBloco));
+
+		while (lotesLivres.remainingCapacity() > 0)
+			lotesLivres.add(new Lote(0));
+
+		ExecutorService executor = Executors.newFixedThreadPool(paralelismo + 1, r -> {
+			Thread t = new Thread(r, "importacao-csv");
+			t.setDaemon(true);
+			return t;
+		});
+
+		try {
+			executor.execute(() -> le(arquivo, livres, lidos, erro));
+
+			for (int i = 0; i < paralelismo; i++)
+				executor.execute(() -> converte(livres, lidos, lotesLivres, convertidos, erro));
+
+			return grava(convertidos, lotesLivres, erro, inicio);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Estágio de leitura: enche os blocos livres e passa adiante só as linhas completas
+	 * O final incompleto de um bloco vai para o início do próximo
+	 */
+	private void le(Path arquivo, BlockingQueue<Bloco> livres, BlockingQueue<Bloco> lidos, AtomicReference<Exception> erro) {
+		try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(Math.min(tamanhoBloco, TAMANHO_LEITURA));
+			byte[] sobra = new byte[tamanhoBloco];
+			int nSobra = 0;
+			long linha = 1;
+			boolean fim = false;
+
+			while (!fim) {
+				Bloco bloco = livres.take();
+				System.arraycopy(sobra, 0, bloco.dados, 0, nSobra);
+				int n = nSobra;
+
+				while (n < bloco.dados.length) {
+					buffer.clear();
+					buffer.limit(Math.min(buffer.capacity(), bloco.dados.length - n));
+
+					int lidosAgora = canal.read(buffer);
+
+					if (lidosAgora < 0) {
+						fim = true;
+						break;
+					}
+
+					buffer.flip();
+					buffer.get(bloco.dados, n, lidosAgora);
+					n += lidosAgora;
+				}
+
+				// No fim do arquivo, a última linha pode não terminar com quebra de linha
+				int completas = fim ? n : ultimaQuebra(bloco.dados, n) + 1;
+
+				if (completas == 0 && !fim)
+					throw new IllegalArgumentException("Linha " + linha + " é maior que o bloco de leitura");
+
+				nSobra = n - completas;
+				System.arraycopy(bloco.dados, completas, sobra, 0, nSobra);
+
+				bloco.tamanho = completas;
+				bloco.primeiraLinha = linha;
+				linha += contaLinhas(bloco.dados, completas);
+
+				if (completas > 0)
+					lidos.put(bloco);
+				else
+					livres.put(bloco);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (Exception e) {
+			erro.compareAndSet(null, e);
+		}
+		finally {
+			for (int i = 0; i < paralelismo; i++)
+				lidos.add(FIM_LEITURA);
+		}
+	}
+
+	/*
+	 * Estágio de conversão: converte e valida as linhas de cada bloco
+	 */
+	private void converte(BlockingQueue<Bloco> livres, BlockingQueue<Bloco> lidos, BlockingQueue<Lote> lotesLivres,
+			BlockingQueue<Lote> convertidos, AtomicReference<Exception> erro) {
+		try {
+			for (Bloco bloco = lidos.take(); bloco != FIM_LEITURA; bloco = lidos.take()) {
+				Lote lote = lotesLivres.take();
+
+				try {
+					converte(bloco, lote);
+				}
+				finally {
+					livres.put(bloco);
+				}
+
+				convertidos.put(lote);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (Exception e) {
+			erro.compareAndSet(null, e);
+		}
+		finally {
+			try {
+				convertidos.put(FIM_CONVERSAO);
+			}
+			catch (InterruptedException e) {
+				// Interrompido pela gravação, que já desistiu da importação
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void converte(Bloco bloco, Lote lote) {
+		byte[] d = bloco.dados;
+		lote.prepara(contaLinhas(d, bloco.tamanho) + 1);
+		long numero = bloco.primeiraLinha;
+		int i = 0;
+
+		while (i < bloco.tamanho) {
+			int fim = i;
+
+			while (fim < bloco.tamanho && d[fim] != '\n')
+				fim++;
+
+			int fimConteudo = fim > i && d[fim - 1] == '\r' ? fim - 1 : fim;
+
+			// Ignora o cabeçalho e as linhas em branco
+			if (fimConteudo > i && !(numero == 1 && cabecalho)) {
+				lote.lidas++;
+
+				String motivo = converteLinha(d, i, fimConteudo, numero, lote);
+
+				if (motivo != null)
+					lote.rejeitadas.add(numero + "" + separador + motivo + separador
+							+ new String(d, i, fimConteudo - i, StandardCharsets.UTF_8));
+			}
+
+			numero++;
+			i = fim + 1;
+		}
+	}
+
+	/*
+	 * Converte e valida a linha [inicio, fim) e, se ela for válida, a acrescenta ao lote
+	 * Retorna o motivo da rejeição ou nulo, se a linha foi aceita
+	 */
+	private String converteLinha(byte[] d, int inicio, int fim, long numero, Lote lote) {
+		int[] campos = lote.campos;
+		int n = 0;
+		int c = inicio;
+
+		// Início e fim de cada campo
+		while (n < campos.length) {
+			int f = c;
+
+			while (f < fim && d[f] != separador)
+				f++;
+
+			campos[n++] = c;
+			campos[n++] = f;
+
+			if (f >= fim)
+				break;
+
+			c = f + 1;
+		}
+
+		if (n != campos.length || campos[9] != fim)
+			return "Quantidade de campos inválida";
+
+		int inscricao = inteiro(d, campos[0], campos[1]);
+
+		if (inscricao < 0)
+			return "Inscrição inválida";
+
+		LocalDate dataLiberacao = data(d, campos[2], campos[3]);
+
+		if (dataLiberacao == null)
+			return "Data de liberação inválida";
+
+		float valor = valor(d, campos[4], campos[5], lote.texto);
+
+		if (Float.isNaN(valor))
+			return "Valor inválido";
+
+		int area = inteiro(d, campos[6], campos[7]);
+
+		if (area < 0)
+			return "Área inválida";
+
+		if (campos[9] - campos[8] != 1)
+			return "Categoria inválida";
+
+		char categoria = (char) (d[campos[8]] & 0xFF);
+
+		String motivo = Imovel.validacao(inscricao, dataLiberacao, valor, area, categoria);
+
+		if (motivo != null)
+			return motivo;
+
+		int i = lote.n++;
+		lote.inscricao[i] = inscricao;
+		lote.dtLiberacao[i] = dataLiberacao.toEpochDay();
+		lote.valor[i] = Money.toCentavos(valor);
+		lote.area[i] = area;
+		lote.categoria[i] = categoria;
+		lote.linha[i] = numero;
+
+		return null;
+	}
+
+	/*
+	 * Estágio de gravação: insere os lotes convertidos, na thread chamadora
+	 */
+	private ResultadoImportacao grava(BlockingQueue<Lote> convertidos, BlockingQueue<Lote> lotesLivres,
+			AtomicReference<Exception> erro, long inicio) {
+		long lidas = 0;
+		long importadas = 0;
+		long rejeitadas = 0;
+		long commits = 0;
+		long pendentes = 0;
+		int fins = 0;
+
+		try (Connection conn = DBConnection.get();
+			 PreparedStatement stm = conn.prepareStatement(ImovelDAO.INSERT);
+			 BufferedWriter rel = relatorio != null ? Files.newBufferedWriter(relatorio, StandardCharsets.UTF_8) : null) {
+
+			if (rel != null) {
+				rel.write("linha" + separador + "motivo" + separador + "conteudo");
+				rel.newLine();
+			}
+
+			conn.setAutoCommit(false);
+
+			try {
+				while (fins < paralelismo && erro.get() == null) {
+					Lote lote = convertidos.take();
+
+					if (lote == FIM_CONVERSAO) {
+						fins++;
+						continue;
+					}
+
+					lidas += lote.lidas;
+					rejeitadas += lote.rejeitadas.size();
+
+					if (rel != null)
+						for (String rejeitada : lote.rejeitadas) {
+							rel.write(rejeitada);
+							rel.newLine();
+						}
+
+					for (int i = 0; i < lote.n; i += tamanhoLote) {
+						int fim = Math.min(i + tamanhoLote, lote.n);
+						int falhas = insere(conn, stm, lote, i, fim, rel);
+
+						importadas += fim - i - falhas;
+						rejeitadas += falhas;
+						pendentes += fim - i;
+
+						if (pendentes >= intervaloCommit) {
+							conn.commit();
+							commits++;
+							pendentes = 0;
+						}
+					}
+
+					lotesLivres.add(lote);
+				}
+
+				if (erro.get() != null)
+					throw erro.get();
+
+				conn.commit();
+				commits++;
+			}
+			catch (Exception e) {
+				conn.rollback();
+				throw e;
+			}
+			finally {
+				conn.setAutoCommit(true);
+			}
+		}
+		catch (IllegalArgumentException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		return new ResultadoImportacao(lidas, importadas, rejeitadas, commits,
+				(System.nanoTime() - inicio) / 1000000, relatorio);
+	}
+
+	/*
+	 * Insere as linhas [inicio, fim) do lote em um único executeBatch
+	 * Se alguma linha falhar, desfaz o lote e grava linha a linha para descobrir quais falharam
+	 * Retorna a quantidade de linhas rejeitadas pelo SGBD
+	 */
+	private int insere(Connection conn, PreparedStatement stm, Lote lote, int inicio, int fim, BufferedWriter rel)
+			throws SQLException, IOException {
+
+		Savepoint sp = conn.setSavepoint();
+
+		try {
+			for (int i = inicio; i < fim; i++) {
+				preenche(stm, lote, i);
+				stm.addBatch();
+			}
+
+			stm.executeBatch();
+			conn.releaseSavepoint(sp);
+
+			return 0;
+		}
+		catch (BatchUpdateException e) {
+			stm.clearBatch();
+			conn.rollback(sp);
+
+			int falhas = 0;
+
+			for (int i = inicio; i < fim; i++) {
+				try {
+					preenche(stm, lote, i);
+					stm.executeUpdate();
+				}
+				catch (SQLException ex) {
+					falhas++;
+
+					if (rel != null) {
+						rel.write(lote.linha[i] + "" + separador + ex.getMessage() + separador + linha(lote, i));
+						rel.newLine();
+					}
+				}
+			}
+
+			return falhas;
+		}
+	}
+
+	private static void preenche(PreparedStatement stm, Lote lote, int i) throws SQLException {
+		stm.setInt(1, lote.inscricao[i]);
+		stm.setLong(2, lote.dtLiberacao[i]);
+		stm.setLong(3, lote.valor[i]);
+		stm.setInt(4, lote.area[i]);
+		stm.setString(5, Character.toString(lote.categoria[i]));
+	}
+
+	/*
+	 * Linha do CSV refeita a partir das colunas, para o relatório
+	 */
+	private String linha(Lote lote, int i) {
+		return "" + lote.inscricao[i] + separador + LocalDate.ofEpochDay(lote.dtLiberacao[i]) + separador
+				+ lote.valor[i] / 100 + "." + String.format("%02d", lote.valor[i] % 100) + separador
+				+ lote.area[i] + separador + lote.categoria[i];
+	}
+
+	/*
+	 * Inteiro não negativo com até 9 dígitos; retorna -1 se o campo não for um inteiro
+	 */
+	private static int inteiro(byte[] d, int inicio, int fim) {
+		if (fim <= inicio || fim - inicio > 9)
+			return -1;
+
+		int valor = 0;
+
+		for (int i = inicio; i < fim; i++) {
+			int digito = d[i] - '0';
+
+			if (digito < 0 || digito > 9)
+				return -1;
+
+			valor = valor * 10 + digito;
+		}
+
+		return valor;
+	}
+
+	/*
+	 * Data no formato aaaa-mm-dd ou dd/mm/aaaa; retorna nulo se o campo não for uma data
+	 */
+	private static LocalDate data(byte[] d, int inicio, int fim) {
+		if (fim - inicio != 10)
+			return null;
+
+		int ano, mes, dia;
+
+		if (d[inicio + 4] == '-' && d[inicio + 7] == '-') {
+			ano = inteiro(d, inicio, inicio + 4);
+			mes = inteiro(d, inicio + 5, inicio + 7);
+			dia = inteiro(d, inicio + 8, inicio + 10);
+		}
+		else if (d[inicio + 2] == '/' && d[inicio + 5] == '/') {
+			dia = inteiro(d, inicio, inicio + 2);
+			mes = inteiro(d, inicio + 3, inicio + 5);
+			ano = inteiro(d, inicio + 6, inicio + 10);
+		}
+		else
+			return null;
+
+		try {
+			return LocalDate.of(ano, mes, dia);
+		}
+		catch (DateTimeException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Valor decimal com ponto ou vírgula; retorna NaN se o campo não for um número
+	 * A conversão é a mesma de Float.parseFloat, para gravar o mesmo valor que um Imovel criado no sistema
+	 */
+	private static float valor(byte[] d, int inicio, int fim, char[] texto) {
+		if (fim <= inicio || fim - inicio > texto.length)
+			return Float.NaN;
+
+		int tamanho = fim - inicio;
+		boolean decimal = false;
+
+		for (int i = inicio; i < fim; i++) {
+			char c = (char) d[i];
+
+			if (c == ',' || c == '.') {
+				if (decimal)
+					return Float.NaN;
+
+				decimal = true;
+				c = '.';
+			}
+			else if (c < '0' || c > '9')
+				return Float.NaN;
+
+			texto[i - inicio] = c;
+		}
+
+		if (tamanho == 1 && decimal)
+			return Float.NaN;
+
+		return Float.parseFloat(new String(texto, 0, tamanho));
+	}
+
+	private static int ultimaQuebra(byte[] d, int n) {
+		for (int i = n - 1; i >= 0; i--)
+			if (d[i] == '\n')
+				return i;
+
+		return -1;
+	}
+
+	private static int contaLinhas(byte[] d, int n) {
+		int linhas = 0;
+
+		for (int i = 0; i < n; i++)
+			if (d[i] == '\n')
+				linhas++;
+
+		return linhas;
+	}
+}
@@ -0,0 +1,42 @@
+package main.dao;
+
+import java.util.List;
+
+import main.model.ImovelDTO;
+
+/*
+ * Uma página de imóveis de uma consulta paginada por chave (keyset)
+ * A página seguinte começa depois da chave do último imóvel desta página, e não em um OFFSET,
+ * então o custo de buscá-la não depende de quantas páginas já foram lidas
+ */
+public class Pagina {
+
+	public final List<ImovelDTO> imoveis;
+
+	// Chave de continuação: valor da coluna de ordenação (como gravado no BD) e ID do último imóvel da página
+	public final long ultimaChave;
+	public final int ultimoID;
+
+	public final boolean temProxima;
+
+	public Pagina(List<ImovelDTO> imoveis, long ultimaChave, int ultimoID, boolean temProxima) {
+		this.imoveis = imoveis;
+		this.ultimaChave = ultimaChave;
+		this.ultimoID = ultimoID;
+		this.temProxima = temProxima;
+	}
+
+	public boolean isVazia() {
+		return imoveis.isEmpty();
+	}
+
+	public int getTamanho() {
+		return imoveis.size();
+	}
+
+	@Override
+	public String toString() {
+		return "Pagina [tamanho=" + imoveis.size() + ", ultimaChave=" + ultimaChave + ", ultimoID=" + ultimoID
+				+ ", temProxima=" + temProxima + "]";
+	}
+}
@@ -0,0 +1,43 @@
+package main.dao;
+
+import java.nio.file.Path;
+
+/*
+ * Resultado de uma importação de imóveis de arquivo CSV
+ * As linhas rejeitadas, com o motivo, ficam no relatório (se ele foi pedido)
+ */
+public class ResultadoImportacao {
+
+	public final long lidas;
+	public final long importadas;
+	public final long rejeitadas;
+	public final long commits;
+	public final long milissegundos;
+	public final Path relatorio;
+
+	public ResultadoImportacao(long lidas, long importadas, long rejeitadas, long commits, long milissegundos, Path relatorio) {
+		this.lidas = lidas;
+		this.importadas = importadas;
+		this.rejeitadas = rejeitadas;
+		this.commits = commits;
+		this.milissegundos = milissegundos;
+		this.relatorio = relatorio;
+	}
+
+	public boolean temRejeitadas() {
+		return rejeitadas > 0;
+	}
+
+	/*
+	 * Linhas importadas por minuto
+	 */
+	public double getVazao() {
+		return milissegundos > 0 ? importadas * 60000d / milissegundos : importadas;
+	}
+
+	@Override
+	public String toString() {
+		return "ResultadoImportacao [lidas=" + lidas + ", importadas=" + importadas + ", rejeitadas=" + rejeitadas
+				+ ", commits=" + commits + ", milissegundos=" + milissegundos + "]";
+	}
+}
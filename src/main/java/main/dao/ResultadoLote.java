@@ -0,0 +1,49 @@
+package main.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import main.model.Imovel;
+
+/*
+ * Resultado de uma operação em lote no BD
+ * ids[i] é o ID gerado para o i-ésimo imóvel do lote ou ZERO, caso a linha tenha falhado
+ */
+public class ResultadoLote {
+
+	/*
+	 * Linha do lote que não foi gravada e o motivo informado pelo SGBD
+	 */
+	public static class Falha {
+
+		public final int indice;
+		public final Imovel imovel;
+		public final String motivo;
+
+		public Falha(int indice, Imovel imovel, String motivo) {
+			this.indice = indice;
+			this.imovel = imovel;
+			this.motivo = motivo;
+		}
+
+		@Override
+		public String toString() {
+			return "Falha [indice=" + indice + ", inscricao=" + imovel.getInscricao() + ", motivo=" + motivo + "]";
+		}
+	}
+
+	public final int[] ids;
+	public final List<Falha> falhas = new ArrayList<>();
+
+	public ResultadoLote(int tamanho) {
+		this.ids = new int[tamanho];
+	}
+
+	public int getGravados() {
+		return ids.length - falhas.size();
+	}
+
+	public boolean temFalhas() {
+		return !falhas.isEmpty();
+	}
+}
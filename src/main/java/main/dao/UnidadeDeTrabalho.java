@@ -0,0 +1,165 @@
+package main.dao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import main.db.DBConnection;
+import main.db.IPersistent;
+import main.factory.ImovelFactory;
+import main.model.Imovel;
+
+/*
+ * Unidade de trabalho: acumula os objetos a salvar e a excluir e grava todos em uma única
+ * transação no commit(), com poucos executeBatch em vez de um comando por objeto
+ * Se alguma gravação falhar, nada é gravado e os objetos voltam ao estado anterior ao commit()
+ * Não é thread-safe: cada thread deve usar a sua
+ */
+public class UnidadeDeTrabalho {
+
+	private final Set<IPersistent> salvar = new LinkedHashSet<>();
+	private final Set<IPersistent> excluir = new LinkedHashSet<>();
+
+	/*
+	 * Marca o objeto para ser inserido ou atualizado no commit()
+	 */
+	public void salva(IPersistent objeto) {
+		if (objeto == null)
+			throw new IllegalArgumentException("Objeto não foi definido");
+
+		excluir.remove(objeto);
+		salvar.add(objeto);
+	}
+
+	/*
+	 * Marca o objeto para ser excluído no commit()
+	 */
+	public void exclui(IPersistent objeto) {
+		if (objeto == null)
+			throw new IllegalArgumentException("Objeto não foi definido");
+
+		salvar.remove(objeto);
+		excluir.add(objeto);
+	}
+
+	/*
+	 * Grava as alterações pendentes em uma única transação
+	 * Os imóveis novos são inseridos com insertAll, os alterados atualizados com updateAll
+	 * e os excluídos removidos com deleteAll; os demais objetos usam save() e delete()
+	 * Dentro de DBConnection.inTransaction, participa da transação externa: o cache só é atualizado
+	 * depois do commit dela e, se ela for desfeita, os objetos voltam ao estado anterior
+	 */
+	public void commit() {
+		List<Imovel> novos = new ArrayList<>();
+		List<Imovel> alterados = new ArrayList<>();
+		List<Imovel> removidos = new ArrayList<>();
+		List<IPersistent> outrosSalvar = new ArrayList<>();
+		List<IPersistent> outrosExcluir = new ArrayList<>();
+
+		for (IPersistent objeto : salvar) {
+			if (!(objeto instanceof Imovel))
+				outrosSalvar.add(objeto);
+			else if (objeto.getID() == 0)
+				novos.add((Imovel) objeto);
+			else if (((Imovel) objeto).isAlterado())
+				alterados.add((Imovel) objeto);
+		}
+
+		for (IPersistent objeto : excluir) {
+			if (!(objeto instanceof Imovel))
+				outrosExcluir.add(objeto);
+			else if (objeto.getID() != 0)
+				removidos.add((Imovel) objeto);
+		}
+
+		// Estado dos imóveis antes do commit, restaurado se a transação for desfeita
+		List<Imovel> imoveis = new ArrayList<>(novos.size() + alterados.size() + removidos.size());
+		imoveis.addAll(novos);
+		imoveis.addAll(alterados);
+		imoveis.addAll(removidos);
+
+		int[] ids = new int[imoveis.size()];
+		int[] mascaras = new int[imoveis.size()];
+
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = imoveis.get(i).getID();
+			mascaras[i] = imoveis.get(i).getAlterados();
+		}
+
+		// Dentro de uma transação externa, nada é confirmado ao fim deste commit
+		boolean externa = DBConnection.emTransacao();
+
+		Runnable desfaz = () -> {
+			for (int i = 0; i < ids.length; i++) {
+				Imovel imovel = imoveis.get(i);
+				imovel.setID(ids[i]);
+				imovel.limpaAlterados();
+				imovel.marcaAlterados(mascaras[i]);
+			}
+		};
+
+		// O cache só reflete o BD depois da confirmação da transação
+		Runnable atualizaCache = () -> {
+			for (Imovel imovel : novos)
+				ImovelFactory.atualizaCache(imovel);
+
+			for (Imovel imovel : alterados)
+				ImovelFactory.atualizaCache(imovel);
+
+			for (int i = novos.size() + alterados.size(); i < ids.length; i++)
+				ImovelFactory.removeDoCache(ids[i], imoveis.get(i).getInscricao());
+		};
+
+		try {
+			DBConnection.inTransaction(() -> {
+				if (!novos.isEmpty()) {
+					ResultadoLote resultado = ImovelDAO.insertAll(novos);
+
+					if (resultado.temFalhas())
+						throw new IllegalArgumentException("Imóvel não foi inserido: " + resultado.falhas.get(0));
+				}
+
+				if (!alterados.isEmpty())
+					ImovelDAO.updateAll(alterados);
+
+				for (IPersistent objeto : outrosSalvar)
+					objeto.save();
+
+				if (!removidos.isEmpty())
+					ImovelDAO.deleteAll(removidos);
+
+				for (IPersistent objeto : outrosExcluir)
+					objeto.delete();
+			});
+		}
+		catch (RuntimeException e) {
+			desfaz.run();
+			throw e;
+		}
+
+		// Na transação externa, o cache espera o commit dela e o rollback dela restaura os objetos
+		if (externa)
+			DBConnection.aoTerminar(atualizaCache, desfaz);
+		else
+			atualizaCache.run();
+
+		descarta();
+	}
+
+	/*
+	 * Esquece as alterações pendentes, sem gravar nada
+	 */
+	public void descarta() {
+		salvar.clear();
+		excluir.clear();
+	}
+
+	public boolean isVazia() {
+		return salvar.isEmpty() && excluir.isEmpty();
+	}
+
+	public int getPendentes() {
+		return salvar.size() + excluir.size();
+	}
+}
@@ -0,0 +1,346 @@
+package main.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool limitado de conexões JDBC.
+ *
+ * As conexões entregues por {@link #borrow()} são proxies da conexão física:
+ * chamar close() devolve a conexão ao pool em vez de fechá-la.
+ *
+ * Opcionalmente, cada conexão física mantém um cache de PreparedStatements,
+ * que sobrevive à devolução da conexão ao pool.
+ */
+public class ConnectionPool {
+
+	private final int minSize;
+	private final int maxSize;
+	private final long borrowTimeout;
+	private final int statementCacheSize;
+	private final Callable<Connection> opener;
+
+	// Conexões físicas livres: a última devolvida é a primeira emprestada
+	private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+
+	// Todas as conexões físicas abertas pelo pool, livres ou emprestadas
+	private final Set<Connection> all = ConcurrentHashMap.newKeySet();
+
+	// Cache de statements de cada conexão física
+	private final Map<Connection, StatementCache> statements = new ConcurrentHashMap<>();
+	private final LongAdder statementHits = new LongAdder();
+	private final LongAdder statementMisses = new LongAdder();
+
+	// Uma permissão por conexão que ainda pode ser emprestada
+	private final Semaphore permits;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Cria o pool e abre as conexões mínimas.
+	 *
+	 * @param minSize Quantidade de conexões abertas na criação do pool.
+	 * @param maxSize Quantidade máxima de conexões emprestadas ao mesmo tempo.
+	 * @param borrowTimeout Tempo máximo de espera por uma conexão, em milissegundos.
+	 * @param opener Abre uma nova conexão física.
+	 */
+	public ConnectionPool(int minSize, int maxSize, long borrowTimeout, Callable<Connection> opener) throws SQLException {
+		this(minSize, maxSize, borrowTimeout, 0, opener);
+	}
+
+	/**
+	 * Cria o pool com cache de PreparedStatements em cada conexão.
+	 *
+	 * @param statementCacheSize Quantidade de statements guardados por conexão (ZERO desliga o cache).
+	 */
+	public ConnectionPool(int minSize, int maxSize, long borrowTimeout, int statementCacheSize, Callable<Connection> opener) throws SQLException {
+		if (minSize < 0 || maxSize <= 0 || minSize > maxSize)
+			throw new IllegalArgumentException("Tamanho do pool inválido");
+
+		if (borrowTimeout < 0)
+			throw new IllegalArgumentException("Tempo de espera do pool inválido");
+
+		if (statementCacheSize < 0)
+			throw new IllegalArgumentException("Tamanho do cache de statements inválido");
+
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.borrowTimeout = borrowTimeout;
+		this.statementCacheSize = statementCacheSize;
+		this.opener = opener;
+		this.permits = new Semaphore(maxSize, true);
+
+		try {
+			for (int i = 0; i < minSize; i++)
+				idle.offer(open());
+		}
+		catch (SQLException | RuntimeException e) {
+			try {
+				close();
+			} catch (SQLException ex) {
+				e.addSuppressed(ex);
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Empresta uma conexão do pool, esperando no máximo o tempo configurado.
+	 * Conexões livres são validadas antes de serem entregues.
+	 *
+	 * @return Conexão que volta ao pool quando for fechada.
+	 */
+	public Connection borrow() throws SQLException {
+		return borrow(borrowTimeout);
+	}
+
+	/**
+	 * Empresta uma conexão do pool, esperando no máximo o tempo informado.
+	 *
+	 * @param timeout Tempo máximo de espera por uma conexão, em milissegundos.
+	 * @see #borrow()
+	 */
+	public Connection borrow(long timeout) throws SQLException {
+		if (closed)
+			throw new SQLException("Pool de conexões fechado");
+
+		try {
+			if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+				throw new SQLTimeoutException("Tempo de espera por conexão esgotado (" + timeout + " ms)");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Espera por conexão interrompida", e);
+		}
+
+		try {
+			Connection physical;
+
+			// Descarta as conexões livres que não respondem mais
+			while ((physical = idle.pollFirst()) != null) {
+				if (DBConnection.isValid(physical))
+					return wrap(physical);
+
+				destroy(physical);
+			}
+
+			return wrap(open());
+		}
+		catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Fecha o pool e todas as conexões abertas por ele, inclusive as que
+	 * ainda estão emprestadas.
+	 * Todas as conexões são descartadas mesmo que alguma falhe ao fechar; nesse caso, a falha é
+	 * lançada no final.
+	 */
+	public void close() throws SQLException {
+		closed = true;
+
+		idle.clear();
+
+		SQLException falha = null;
+
+		for (Connection physical : all) {
+			try {
+				discard(physical);
+			} catch (Exception e) {
+				if (falha == null)
+					falha = new SQLException("Falha ao fechar as conexões do pool", e);
+				else
+					falha.addSuppressed(e);
+			}
+		}
+
+		if (falha != null)
+			throw falha;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getBorrowTimeout() {
+		return borrowTimeout;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * Quantidade de PreparedStatements reaproveitados do cache das conexões.
+	 */
+	public long getStatementCacheHits() {
+		return statementHits.sum();
+	}
+
+	/**
+	 * Quantidade de PreparedStatements que precisaram ser preparados pelo SGBD.
+	 */
+	public long getStatementCacheMisses() {
+		return statementMisses.sum();
+	}
+
+	/**
+	 * Quantidade de conexões físicas livres no pool.
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * Quantidade de conexões emprestadas no momento.
+	 */
+	public int getActiveCount() {
+		return maxSize - permits.availablePermits();
+	}
+
+	/*
+	 * Devolve a conexão física ao pool
+	 * Se a conexão ficou em transação aberta, desfaz a transação antes de devolver
+	 */
+	private void release(Connection physical) {
+		try {
+			if (closed || physical.isClosed()) {
+				destroy(physical);
+				return;
+			}
+
+			if (!physical.getAutoCommit()) {
+				physical.rollback();
+				physical.setAutoCommit(true);
+			}
+
+			idle.offerFirst(physical);
+		}
+		catch (Exception e) {
+			destroy(physical);
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	private Connection open() throws SQLException {
+		try {
+			Connection physical = opener.call();
+
+			if (physical == null)
+				throw new SQLException("Não foi possível abrir a conexão");
+
+			all.add(physical);
+
+			if (statementCacheSize > 0)
+				statements.put(physical, new StatementCache(physical, statementCacheSize, statementHits, statementMisses));
+
+			return physical;
+		}
+		catch (SQLException | RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new SQLException(e);
+		}
+	}
+
+	private void destroy(Connection physical) {
+		try {
+			discard(physical);
+		} catch (Exception e) {
+			// A conexão já está sendo descartada
+		}
+	}
+
+	private void discard(Connection physical) throws Exception {
+		all.remove(physical);
+
+		StatementCache cache = statements.remove(physical);
+
+		if (cache != null)
+			cache.close();
+
+		physical.close();
+	}
+
+	private Connection wrap(Connection physical) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new PooledConnection(physical, statements.get(physical)));
+	}
+
+	/*
+	 * Conexão emprestada: repassa as chamadas para a conexão física,
+	 * exceto close(), que devolve a conexão ao pool, e prepareStatement(sql), que usa o cache
+	 */
+	private class PooledConnection implements InvocationHandler {
+
+		private final Connection physical;
+		private final StatementCache cache;
+		private volatile boolean returned = false;
+
+		PooledConnection(Connection physical, StatementCache cache) {
+			this.physical = physical;
+			this.cache = cache;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				synchronized (this) {
+					if (!returned) {
+						returned = true;
+						release(physical);
+					}
+				}
+				return null;
+			case "isClosed":
+				return returned || physical.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "PooledConnection[" + physical + "]";
+			}
+
+			if (returned)
+				throw new SQLException("Conexão já devolvida ao pool");
+
+			// Só o prepareStatement(sql) simples é guardado: as outras variações mudam o statement
+			if (cache != null && "prepareStatement".equals(method.getName()) && args.length == 1)
+				return cache.prepare((String) args[0], (Connection) proxy);
+
+			try {
+				return method.invoke(physical, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
@@ -1,81 +1,492 @@
 package main.db;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
- * Classe singleton que retorna uma conexão JDBC.
+ * Classe singleton que retorna conexões JDBC de um pool limitado.
+ * As conexões retornadas por {@link #get()} devem ser fechadas pelo chamador,
+ * o que as devolve ao pool.
+ *
+ * Dentro de {@link #inTransaction(Callable)}, {@link #get()} retorna sempre a conexão
+ * da transação, então as operações dos DAOs fazem parte da mesma transação.
+ *
+ * Em BDs SQLite, a criação do pool aplica as migrações pendentes do esquema ({@link Migracao}).
  */
 public class DBConnection {
 
+	// Configuração padrão do pool de conexões
+	public static final int MIN_POOL_SIZE = 1;
+	public static final int MAX_POOL_SIZE = 10;
+	public static final long BORROW_TIMEOUT = 30000;
+	public static final int STATEMENT_CACHE_SIZE = 32;
+
 	private static String driver = null;
 	private static String connectionString = null;
-	private static Connection conn = null;
+	private static volatile ConnectionPool pool = null;
+
+	// PRAGMAs aplicados em cada conexão aberta
+	private static PerfilSQLite perfil = PerfilSQLite.PADRAO;
+
+	private static int minPoolSize = MIN_POOL_SIZE;
+	private static volatile int maxPoolSize = MAX_POOL_SIZE;
+	private static long borrowTimeout = BORROW_TIMEOUT;
+	private static int statementCacheSize = STATEMENT_CACHE_SIZE;
+
+	// Conexão da transação aberta por inTransaction na thread
+	private static final ThreadLocal<Connection> transacao = new ThreadLocal<>();
+
+	// Ações registradas por aoTerminar, executadas depois do commit ou do rollback da transação da thread
+	private static final ThreadLocal<List<Runnable>> aoConfirmar = new ThreadLocal<>();
+	private static final ThreadLocal<List<Runnable>> aoDesfazer = new ThreadLocal<>();
 
 	/**
-     * Cria ou retorna uma conexão criada previamente.
-     * @return Conexão JDBC.
+     * Empresta uma conexão do pool, criando o pool se necessário.
+     * @return Conexão JDBC ou nulo, se não for possível abrir a conexão.
      */
-    public static synchronized Connection get() {
+    public static Connection get() {
+    	Connection t = transacao.get();
+
+    	if (t != null)
+    		return t;
+
     	try {
-	        if (conn == null || conn.isClosed()) {
-	        	if (driver == null || driver.isBlank())
-	        		throw new IllegalArgumentException("Driver não foi definido");
-	        	
-	        	if (connectionString == null || connectionString.isBlank())
-	        		throw new IllegalArgumentException("ConnectionString não foi definida");
-	        	
-	        	try {
-	        		Class.forName(driver);
-	        	} catch (Exception e) {
-	        		throw new IllegalArgumentException("Driver inválido");
-	            }
-	                
-	            try {
-	            	conn = DriverManager.getConnection(connectionString, "", "");
-		        } catch (Exception e) {
-		            return null;
-		        }
-	        }
-	        
-	        return conn;
+    		ConnectionPool p = pool;
+
+    		if (p == null || p.isClosed())
+    			p = createPool();
+
+    		if (p == null)
+    			return null;
+
+    		try {
+    			return p.borrow();
+    		} catch (SQLTimeoutException e) {
+    			throw new IllegalArgumentException(e);
+    		} catch (Exception e) {
+    			return null;
+    		}
+    	}
+    	catch (IllegalArgumentException e) {
+    		throw e;
     	}
     	catch (Exception e) {
     		throw new IllegalArgumentException(e);
         }
     }
 
+	/**
+	 * Executa o trabalho em uma única transação: confirma se ele terminar normalmente
+	 * e desfaz se ele lançar exceção.
+	 * As conexões obtidas por {@link #get()} na mesma thread durante o trabalho são a conexão
+	 * da transação; fechá-las não tem efeito. Uma chamada aninhada participa da transação externa.
+	 *
+	 * @return Resultado do trabalho.
+	 */
+	public static <T> T inTransaction(Callable<T> trabalho) {
+		if (transacao.get() != null)
+			return executa(trabalho);
+
+		Connection conn = get();
+
+		if (conn == null)
+			throw new IllegalArgumentException("Não foi possível abrir a conexão com o BD");
+
+		List<Runnable> confirmar = new ArrayList<>();
+		List<Runnable> desfazer = new ArrayList<>();
+		T resultado;
+
+		try {
+			conn.setAutoCommit(false);
+			transacao.set(naTransacao(conn));
+			aoConfirmar.set(confirmar);
+			aoDesfazer.set(desfazer);
+
+			resultado = executa(trabalho);
+
+			conn.commit();
+		}
+		catch (Exception e) {
+			try {
+				conn.rollback();
+			} catch (Exception ex) {
+				e.addSuppressed(ex);
+			}
+
+			// Desfaz em memória na ordem inversa do registro
+			for (int i = desfazer.size() - 1; i >= 0; i--)
+				try {
+					desfazer.get(i).run();
+				} catch (RuntimeException ex) {
+					e.addSuppressed(ex);
+				}
+
+			if (e instanceof IllegalArgumentException)
+				throw (IllegalArgumentException) e;
+
+			throw new IllegalArgumentException(e);
+		}
+		finally {
+			transacao.remove();
+			aoConfirmar.remove();
+			aoDesfazer.remove();
+
+			// Devolve a conexão ao pool, que restaura o autocommit
+			try {
+				conn.close();
+			} catch (Exception e) {
+				// O pool descarta a conexão
+			}
+		}
+
+		for (Runnable acao : confirmar)
+			acao.run();
+
+		return resultado;
+	}
+
+	/**
+	 * Executa o trabalho em uma única transação.
+	 * @see #inTransaction(Callable)
+	 */
+	public static void inTransaction(Runnable trabalho) {
+		inTransaction(() -> {
+			trabalho.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Verifica se a thread está dentro de {@link #inTransaction(Callable)}.
+	 * Nesse caso, quem obtém a conexão por {@link #get()} não deve confirmar nem desfazer a transação.
+	 */
+	public static boolean emTransacao() {
+		return transacao.get() != null;
+	}
+
+	/**
+	 * Registra o que fazer em memória quando a transação da thread terminar: confirmar roda
+	 * depois do commit e desfazer roda depois do rollback. Chamadas aninhadas registram na transação externa.
+	 * Fora de {@link #inTransaction(Callable)}, confirmar roda na hora.
+	 *
+	 * @param confirmar Ação executada depois do commit, ou nulo.
+	 * @param desfazer Ação executada depois do rollback, ou nulo.
+	 */
+	public static void aoTerminar(Runnable confirmar, Runnable desfazer) {
+		List<Runnable> c = aoConfirmar.get();
+
+		if (c == null) {
+			if (confirmar != null)
+				confirmar.run();
+
+			return;
+		}
+
+		if (confirmar != null)
+			c.add(confirmar);
+
+		if (desfazer != null)
+			aoDesfazer.get().add(desfazer);
+	}
+
 	/**
 	 * Define o driver e a string de conexão.
-	 * 
+	 * O pool existente é descartado e recriado na próxima chamada a {@link #get()}.
+	 *
 	 * @param driver Nome do driver.
 	 * @param connectionString String de conexão.
 	 */
-	public static void set(String driver, String connectionString) {
+	public static synchronized void set(String driver, String connectionString) {
 		DBConnection.driver = driver;
 		DBConnection.connectionString = connectionString;
+
+		discardPool();
+	}
+
+	/**
+	 * Verifica se o driver e a string de conexão foram definidos.
+	 */
+	public static synchronized boolean isConfigurado() {
+		return driver != null && !driver.isBlank() && connectionString != null && !connectionString.isBlank();
+	}
+
+	/**
+	 * Define o driver, a string de conexão e o perfil de desempenho do SQLite.
+	 *
+	 * @param perfil PRAGMAs aplicados em cada conexão aberta pelo pool.
+	 */
+	public static synchronized void set(String driver, String connectionString, PerfilSQLite perfil) {
+		setPerfil(perfil);
+		set(driver, connectionString);
+	}
+
+	/**
+	 * Define o perfil de desempenho do SQLite aplicado em cada conexão aberta.
+	 * O pool existente é descartado e recriado na próxima chamada a {@link #get()}.
+	 */
+	public static synchronized void setPerfil(PerfilSQLite perfil) {
+		if (perfil == null)
+			throw new IllegalArgumentException("Perfil do SQLite não foi definido");
+
+		DBConnection.perfil = perfil;
+
+		discardPool();
+	}
+
+	public static PerfilSQLite getPerfil() {
+		return perfil;
+	}
+
+	/**
+	 * Define o tamanho do pool e o tempo máximo de espera por uma conexão.
+	 * O pool existente é descartado e recriado na próxima chamada a {@link #get()}.
+	 *
+	 * @param minSize Quantidade de conexões abertas na criação do pool.
+	 * @param maxSize Quantidade máxima de conexões emprestadas ao mesmo tempo.
+	 * @param borrowTimeout Tempo máximo de espera por uma conexão, em milissegundos.
+	 */
+	public static synchronized void setPool(int minSize, int maxSize, long borrowTimeout) {
+		if (minSize < 0 || maxSize <= 0 || minSize > maxSize)
+			throw new IllegalArgumentException("Tamanho do pool inválido");
+
+		if (borrowTimeout < 0)
+			throw new IllegalArgumentException("Tempo de espera do pool inválido");
+
+		DBConnection.minPoolSize = minSize;
+		DBConnection.maxPoolSize = maxSize;
+		DBConnection.borrowTimeout = borrowTimeout;
+
+		discardPool();
+	}
+
+	/**
+	 * Quantidade máxima de conexões emprestadas ao mesmo tempo.
+	 */
+	public static int getMaxPoolSize() {
+		return maxPoolSize;
 	}
-	
+
+	/**
+	 * Define quantos PreparedStatements cada conexão do pool mantém em cache.
+	 * O pool existente é descartado e recriado na próxima chamada a {@link #get()}.
+	 *
+	 * @param size Quantidade de statements por conexão (ZERO desliga o cache).
+	 */
+	public static synchronized void setStatementCache(int size) {
+		if (size < 0)
+			throw new IllegalArgumentException("Tamanho do cache de statements inválido");
+
+		DBConnection.statementCacheSize = size;
+
+		discardPool();
+	}
+
+	/**
+	 * Quantidade de PreparedStatements reaproveitados do cache desde a criação do pool.
+	 */
+	public static long getStatementCacheHits() {
+		ConnectionPool p = pool;
+		return p != null ? p.getStatementCacheHits() : 0;
+	}
+
+	/**
+	 * Quantidade de PreparedStatements preparados pelo SGBD desde a criação do pool.
+	 */
+	public static long getStatementCacheMisses() {
+		ConnectionPool p = pool;
+		return p != null ? p.getStatementCacheMisses() : 0;
+	}
+
+	/**
+	 * Verifica se o pool consegue entregar uma conexão válida.
+	 * Espera no máximo 500 ms por uma conexão livre; se todas estiverem emprestadas, o pool está em uso.
+	 */
 	public static boolean isAlive() {
-		try {
-			return conn != null && ! conn.isClosed() && conn.isValid(500);
+		ConnectionPool p = pool;
+
+		if (p == null || p.isClosed())
+			return false;
+
+		try (Connection c = p.borrow(500)) {
+			return isValid(c);
+		} catch (SQLTimeoutException e) {
+			return true;
 		} catch (Exception e) {
 			return false;
 		}
 	}
 
 	/**
-	 * Fecha a conexão JDBC.
+	 * Fecha o pool e todas as suas conexões JDBC.
+	 * Lança IllegalArgumentException se alguma conexão falhar ao fechar (o pool é descartado assim mesmo).
 	 */
 	public static synchronized void close() {
-		if (conn == null)
+		if (pool == null)
 			throw new IllegalArgumentException("Conexão com BD não existe");
 
 		try {
-			if (!conn.isClosed())
-				conn.close();
+			pool.close();
 		} catch (Exception e) {
 			throw new IllegalArgumentException(e);
 		}
 	}
+
+	/*
+	 * Verifica se a conexão está aberta e respondendo
+	 * Usado também pelo pool para validar as conexões livres antes de emprestá-las
+	 */
+	static boolean isValid(Connection conn) {
+		try {
+			return conn != null && ! conn.isClosed() && conn.isValid(500);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Cria o pool caso ele ainda não exista ou tenha sido fechado
+	 * Retorna nulo se não for possível abrir as conexões iniciais
+	 */
+	private static synchronized ConnectionPool createPool() {
+		if (pool != null && !pool.isClosed())
+			return pool;
+
+    	if (driver == null || driver.isBlank())
+    		throw new IllegalArgumentException("Driver não foi definido");
+
+    	if (connectionString == null || connectionString.isBlank())
+    		throw new IllegalArgumentException("ConnectionString não foi definida");
+
+    	try {
+    		Class.forName(driver);
+    	} catch (Exception e) {
+    		throw new IllegalArgumentException("Driver inválido");
+        }
+
+    	ConnectionPool p;
+
+    	try {
+    		p = new ConnectionPool(minPoolSize, maxPoolSize, borrowTimeout, statementCacheSize, DBConnection::open);
+    	} catch (Exception e) {
+    		return null;
+    	}
+
+    	// Nenhuma conexão é entregue antes de o esquema estar na versão do sistema
+    	if (connectionString.startsWith("jdbc:sqlite:"))
+    		atualizaEsquema(p);
+
+    	pool = p;
+    	return pool;
+	}
+
+	/*
+	 * Aplica as migrações pendentes do esquema (ver Migracao) com uma conexão do pool recém-criado
+	 * Um BD com esquema mais novo que o do sistema, ou uma migração que falha, impede a abertura do pool:
+	 * ler o formato antigo de dt_liberacao e valor daria resultados errados sem nenhum erro
+	 */
+	private static void atualizaEsquema(ConnectionPool p) {
+		try (Connection conn = p.borrow()) {
+			Migracao.atualiza(conn);
+		}
+		catch (Exception e) {
+			try {
+				p.close();
+			} catch (Exception ex) {
+				e.addSuppressed(ex);
+			}
+
+			if (e instanceof IllegalArgumentException)
+				throw (IllegalArgumentException) e;
+
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/*
+	 * Abre uma nova conexão física com o BD e aplica o perfil do SQLite
+	 */
+	private static Connection open() throws Exception {
+		Connection conn = DriverManager.getConnection(connectionString, "", "");
+
+		if (conn == null)
+			return null;
+
+		try {
+			perfil.aplica(conn);
+		}
+		catch (Exception e) {
+			conn.close();
+			throw e;
+		}
+
+		return conn;
+	}
+
+	private static <T> T executa(Callable<T> trabalho) {
+		try {
+			return trabalho.call();
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/*
+	 * Conexão entregue dentro de inTransaction: close() não tem efeito, e confirmar, desfazer
+	 * ou voltar ao autocommit fica a cargo de inTransaction
+	 */
+	private static Connection naTransacao(Connection conn) {
+		InvocationHandler handler = (Object proxy, Method method, Object[] args) -> {
+			switch (method.getName()) {
+			case "close":
+				return null;
+			case "commit":
+				throw new SQLException("A transação é confirmada por DBConnection.inTransaction");
+			case "rollback":
+				if (args == null)
+					throw new SQLException("A transação é desfeita por DBConnection.inTransaction");
+				break;
+			case "setAutoCommit":
+				if ((Boolean) args[0])
+					throw new SQLException("Autocommit não pode ser ligado dentro de DBConnection.inTransaction");
+				return null;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			}
+
+			try {
+				return method.invoke(conn, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		};
+
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, handler);
+	}
+
+	private static void discardPool() {
+		if (pool != null)
+			try {
+				pool.close();
+			} catch (Exception e) {
+				// O pool antigo já foi descartado, mesmo com a falha
+			}
+
+		pool = null;
+	}
 }
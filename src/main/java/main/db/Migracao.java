@@ -0,0 +1,154 @@
+package main.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Migrações versionadas do esquema do BD.
+ *
+ * A versão do esquema fica gravada em PRAGMA user_version. Cada migração leva o
+ * esquema da versão anterior para a seguinte e é executada em uma transação própria.
+ */
+public class Migracao {
+
+	/*
+	 * MIGRACOES[v - 1] contém os comandos que levam o esquema da versão v - 1 para a versão v
+	 * Novas migrações devem ser sempre acrescentadas no final
+	 */
+	private static final String[][] MIGRACOES = {
+		// 1: esquema original, com dt_liberacao em texto yyyyMMdd e valor decimal
+		{
+			"create table if not exists imovel ("
+					+ "id integer primary key autoincrement,"
+					+ "inscricao integer not null unique,"
+					+ "dt_liberacao text not null,"
+					+ "valor decimal(10,2) not null,"
+					+ "area integer not null,"
+					+ "categoria char not null)"
+		},
+		// 2: dt_liberacao em dias desde 1970-01-01 e valor em centavos
+		{
+			"create table imovel_v2 ("
+					+ "id integer primary key autoincrement,"
+					+ "inscricao integer not null unique,"
+					+ "dt_liberacao integer not null,"
+					+ "valor integer not null,"
+					+ "area integer not null,"
+					+ "categoria char not null)",
+			"insert into imovel_v2 (id, inscricao, dt_liberacao, valor, area, categoria) "
+					+ "select id, inscricao, "
+					+ "cast(julianday(substr(dt_liberacao, 1, 4) || '-' || substr(dt_liberacao, 5, 2) || '-' || substr(dt_liberacao, 7, 2)) - 2440587.5 as integer), "
+					+ "cast(round(valor * 100) as integer), area, categoria from imovel",
+			// O AUTOINCREMENT continua de onde a tabela antiga parou, mesmo que os últimos IDs tenham sido excluídos
+			"update sqlite_sequence set seq = (select max(seq) from sqlite_sequence where name in ('imovel', 'imovel_v2')) "
+					+ "where name = 'imovel_v2'",
+			"insert into sqlite_sequence (name, seq) select 'imovel_v2', seq from sqlite_sequence "
+					+ "where name = 'imovel' and not exists (select 1 from sqlite_sequence where name = 'imovel_v2')",
+			"drop table imovel",
+			"alter table imovel_v2 rename to imovel"
+		},
+		// 3: tabela de alíquotas por exercício, com as regras originais valendo desde o exercício 0
+		{
+			"create table aliquota_exercicio ("
+					+ "exercicio integer primary key,"
+					+ "idade_maxima integer not null,"
+					+ "faixa_area integer not null,"
+					+ "perc_faixa_area real not null,"
+					+ "passo_idade integer not null,"
+					+ "desconto_passo_idade real not null)",
+			"create table aliquota_categoria ("
+					+ "exercicio integer not null references aliquota_exercicio(exercicio),"
+					+ "categoria char not null,"
+					+ "multiplicador real not null default 1,"
+					+ "isenta integer not null default 0,"
+					+ "primary key (exercicio, categoria))",
+			"insert into aliquota_exercicio values (0, 170, 20, 0.05, 5, 0.03)",
+			"insert into aliquota_categoria values (0, 'A', 1.1, 0), (0, 'B', 1.07, 0), (0, 'C', 1.05, 0), (0, 'Z', 1, 1)"
+		},
+		// 4: índices das consultas filtradas de ImovelDAO.busca
+		// O de categoria cobre as colunas do cálculo, então contagens e leituras dessas colunas por categoria não vão à tabela
+		{
+			"create index imovel_categoria on imovel (categoria, valor, dt_liberacao, area)",
+			"create index imovel_dt_liberacao on imovel (dt_liberacao)",
+			"create index imovel_valor on imovel (valor)",
+			"create index imovel_area on imovel (area)"
+		}
+	};
+
+	/**
+	 * Versão do esquema esperada pelo código.
+	 */
+	public static final int VERSAO = MIGRACOES.length;
+
+	/**
+	 * Atualiza o esquema do BD configurado em {@link DBConnection}.
+	 * @return Versão do esquema após a atualização.
+	 */
+	public static int atualiza() {
+		try (Connection conn = DBConnection.get()) {
+			return atualiza(conn);
+		}
+		catch (IllegalArgumentException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Executa, em ordem, as migrações que ainda não foram aplicadas no BD da conexão.
+	 * @return Versão do esquema após a atualização.
+	 */
+	public static int atualiza(Connection conn) {
+		try {
+			int versao = getVersao(conn);
+
+			if (versao > VERSAO)
+				throw new IllegalArgumentException("Versão do esquema do BD (" + versao + ") é mais nova que a do sistema (" + VERSAO + ")");
+
+			boolean autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+
+			try (Statement stm = conn.createStatement()) {
+				for (; versao < VERSAO; versao++) {
+					for (String sql : MIGRACOES[versao])
+						stm.execute(sql);
+
+					stm.execute("pragma user_version = " + (versao + 1));
+					conn.commit();
+				}
+			}
+			catch (Exception e) {
+				conn.rollback();
+				throw e;
+			}
+			finally {
+				conn.setAutoCommit(autoCommit);
+			}
+
+			return versao;
+		}
+		catch (IllegalArgumentException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Retorna a versão do esquema gravada no BD (ZERO para um BD sem migrações).
+	 */
+	public static int getVersao(Connection conn) {
+		try (Statement stm = conn.createStatement();
+			 ResultSet rs = stm.executeQuery("pragma user_version")) {
+
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
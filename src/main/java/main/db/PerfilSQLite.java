@@ -0,0 +1,190 @@
+package main.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuração de desempenho do SQLite, aplicada por PRAGMAs em cada conexão aberta pelo pool.
+ *
+ * Os objetos são imutáveis: os métodos com* retornam uma cópia com a opção alterada.
+ * Opções nulas não são aplicadas e ficam com o valor padrão do SQLite.
+ */
+public class PerfilSQLite {
+
+	public enum JournalMode { DELETE, TRUNCATE, PERSIST, MEMORY, WAL, OFF }
+
+	public enum Synchronous { OFF, NORMAL, FULL, EXTRA }
+
+	public enum TempStore { DEFAULT, FILE, MEMORY }
+
+	/**
+	 * Nenhum PRAGMA: comportamento padrão do SQLite.
+	 */
+	public static final PerfilSQLite PADRAO = new PerfilSQLite("padrao", null, null, null, null, null, null);
+
+	/**
+	 * Carga em lote (ex.: atualização noturna): WAL sem fsync a cada transação e cache grande.
+	 * Uma queda de energia pode perder as últimas transações, mas não corrompe o BD.
+	 */
+	public static final PerfilSQLite CARGA_EM_LOTE = new PerfilSQLite("bulk-load",
+			JournalMode.WAL, Synchronous.OFF, 0L, 128 * 1024, TempStore.MEMORY, 30000);
+
+	/**
+	 * Consultas com poucas escritas: WAL para que as leituras não esperem pelos escritores,
+	 * leitura do arquivo por mmap e fsync só nos checkpoints.
+	 */
+	public static final PerfilSQLite LEITURA = new PerfilSQLite("read-mostly",
+			JournalMode.WAL, Synchronous.NORMAL, 256L * 1024 * 1024, 64 * 1024, TempStore.MEMORY, 5000);
+
+	private final String nome;
+	private final JournalMode journalMode;
+	private final Synchronous synchronous;
+	private final Long mmapSize;
+	private final Integer cacheKiB;
+	private final TempStore tempStore;
+	private final Integer busyTimeout;
+
+	private PerfilSQLite(String nome, JournalMode journalMode, Synchronous synchronous, Long mmapSize,
+			Integer cacheKiB, TempStore tempStore, Integer busyTimeout) {
+		this.nome = nome;
+		this.journalMode = journalMode;
+		this.synchronous = synchronous;
+		this.mmapSize = mmapSize;
+		this.cacheKiB = cacheKiB;
+		this.tempStore = tempStore;
+		this.busyTimeout = busyTimeout;
+	}
+
+	/**
+	 * Retorna o perfil com o nome informado ("padrao", "bulk-load" ou "read-mostly").
+	 */
+	public static PerfilSQLite porNome(String nome) {
+		for (PerfilSQLite p : new PerfilSQLite[] { PADRAO, CARGA_EM_LOTE, LEITURA })
+			if (p.nome.equalsIgnoreCase(nome))
+				return p;
+
+		throw new IllegalArgumentException("Perfil do SQLite inválido: " + nome);
+	}
+
+	public PerfilSQLite comJournalMode(JournalMode journalMode) {
+		return new PerfilSQLite(nome, journalMode, synchronous, mmapSize, cacheKiB, tempStore, busyTimeout);
+	}
+
+	public PerfilSQLite comSynchronous(Synchronous synchronous) {
+		return new PerfilSQLite(nome, journalMode, synchronous, mmapSize, cacheKiB, tempStore, busyTimeout);
+	}
+
+	/**
+	 * @param bytes Tamanho máximo do arquivo lido por mmap (ZERO desliga o mmap).
+	 */
+	public PerfilSQLite comMmapSize(long bytes) {
+		if (bytes < 0)
+			throw new IllegalArgumentException("mmap_size inválido");
+
+		return new PerfilSQLite(nome, journalMode, synchronous, bytes, cacheKiB, tempStore, busyTimeout);
+	}
+
+	/**
+	 * @param kib Tamanho do cache de páginas de cada conexão, em KiB.
+	 */
+	public PerfilSQLite comCacheKiB(int kib) {
+		if (kib <= 0)
+			throw new IllegalArgumentException("cache_size inválido");
+
+		return new PerfilSQLite(nome, journalMode, synchronous, mmapSize, kib, tempStore, busyTimeout);
+	}
+
+	public PerfilSQLite comTempStore(TempStore tempStore) {
+		return new PerfilSQLite(nome, journalMode, synchronous, mmapSize, cacheKiB, tempStore, busyTimeout);
+	}
+
+	/**
+	 * @param millis Tempo de espera por um BD bloqueado por outra conexão, em milissegundos.
+	 */
+	public PerfilSQLite comBusyTimeout(int millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("busy_timeout inválido");
+
+		return new PerfilSQLite(nome, journalMode, synchronous, mmapSize, cacheKiB, tempStore, millis);
+	}
+
+	/**
+	 * Comandos PRAGMA do perfil, na ordem em que são aplicados.
+	 * busy_timeout vem primeiro para valer também na troca do journal_mode.
+	 */
+	public List<String> getPragmas() {
+		List<String> pragmas = new ArrayList<>();
+
+		if (busyTimeout != null)
+			pragmas.add("pragma busy_timeout = " + busyTimeout);
+
+		if (journalMode != null)
+			pragmas.add("pragma journal_mode = " + journalMode);
+
+		if (synchronous != null)
+			pragmas.add("pragma synchronous = " + synchronous);
+
+		if (mmapSize != null)
+			pragmas.add("pragma mmap_size = " + mmapSize);
+
+		// Valor negativo: tamanho em KiB, e não em páginas
+		if (cacheKiB != null)
+			pragmas.add("pragma cache_size = " + (-cacheKiB));
+
+		if (tempStore != null)
+			pragmas.add("pragma temp_store = " + tempStore);
+
+		return pragmas;
+	}
+
+	/**
+	 * Aplica os PRAGMAs do perfil na conexão.
+	 */
+	public void aplica(Connection conn) throws SQLException {
+		List<String> pragmas = getPragmas();
+
+		if (pragmas.isEmpty())
+			return;
+
+		try (Statement stm = conn.createStatement()) {
+			for (String pragma : pragmas)
+				stm.execute(pragma);
+		}
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public JournalMode getJournalMode() {
+		return journalMode;
+	}
+
+	public Synchronous getSynchronous() {
+		return synchronous;
+	}
+
+	public Long getMmapSize() {
+		return mmapSize;
+	}
+
+	public Integer getCacheKiB() {
+		return cacheKiB;
+	}
+
+	public TempStore getTempStore() {
+		return tempStore;
+	}
+
+	public Integer getBusyTimeout() {
+		return busyTimeout;
+	}
+
+	@Override
+	public String toString() {
+		return "PerfilSQLite [" + nome + ": " + String.join("; ", getPragmas()) + "]";
+	}
+}
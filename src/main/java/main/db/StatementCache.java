@@ -0,0 +1,199 @@
+package main.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Cache de PreparedStatements de uma conexão física, indexado pelo texto do SQL
+ * O statement entregue ao chamador é um proxy: fechá-lo limpa os parâmetros e o devolve ao cache
+ * Um statement em uso não é entregue de novo: um segundo prepare do mesmo SQL recebe um statement
+ * novo, fora do cache. Quando o cache está cheio, o statement usado há mais tempo é fechado (LRU)
+ */
+class StatementCache {
+
+	/*
+	 * Statement físico guardado no cache
+	 * descartado indica que ele saiu do cache enquanto estava em uso e deve ser fechado ao ser devolvido
+	 */
+	private static class Entrada {
+		final PreparedStatement physical;
+		final int fetchSize;
+		boolean emUso = false;
+		boolean descartado = false;
+
+		Entrada(PreparedStatement physical) throws SQLException {
+			this.physical = physical;
+			this.fetchSize = physical.getFetchSize();
+		}
+	}
+
+	private final Connection physical;
+	private final int capacidade;
+	private final LongAdder hits;
+	private final LongAdder misses;
+
+	// Statements por SQL, em ordem de acesso: o primeiro é o usado há mais tempo
+	private final LinkedHashMap<String, Entrada> statements;
+
+	/*
+	 * hits e misses são compartilhados pelos caches de todas as conexões do pool
+	 */
+	StatementCache(Connection physical, int capacidade, LongAdder hits, LongAdder misses) {
+		this.physical = physical;
+		this.capacidade = capacidade;
+		this.hits = hits;
+		this.misses = misses;
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+				if (size() <= StatementCache.this.capacidade)
+					return false;
+
+				descarta(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/*
+	 * Retorna o statement do SQL, reaproveitando o do cache se ele estiver livre
+	 * connection é a conexão emprestada, retornada por getConnection() do statement
+	 */
+	synchronized PreparedStatement prepare(String sql, Connection connection) throws SQLException {
+		Entrada e = statements.get(sql);
+
+		if (e != null && !e.emUso) {
+			hits.increment();
+		}
+		else {
+			misses.increment();
+			PreparedStatement stm = physical.prepareStatement(sql);
+
+			// Com o statement do cache em uso, o novo é fechado normalmente ao final
+			if (e != null)
+				return stm;
+
+			try {
+				e = new Entrada(stm);
+			}
+			catch (SQLException ex) {
+				fecha(stm);
+				throw ex;
+			}
+
+			statements.put(sql, e);
+		}
+
+		e.emUso = true;
+
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new CachedStatement(e, connection));
+	}
+
+	/*
+	 * Fecha todos os statements do cache
+	 */
+	synchronized void close() {
+		for (Entrada e : statements.values())
+			fecha(e.physical);
+
+		statements.clear();
+	}
+
+	synchronized int size() {
+		return statements.size();
+	}
+
+	private synchronized void devolve(Entrada e) {
+		e.emUso = false;
+
+		try {
+			if (e.descartado) {
+				fecha(e.physical);
+				return;
+			}
+
+			e.physical.clearParameters();
+			e.physical.clearBatch();
+
+			// Cursores longos (ImovelDAO.stream) alteram o fetch size
+			if (e.physical.getFetchSize() != e.fetchSize)
+				e.physical.setFetchSize(e.fetchSize);
+		}
+		catch (SQLException ex) {
+			// Statement que não pode ser reaproveitado sai do cache
+			statements.values().remove(e);
+			fecha(e.physical);
+		}
+	}
+
+	private void descarta(Entrada e) {
+		if (e.emUso)
+			e.descartado = true;
+		else
+			fecha(e.physical);
+	}
+
+	private static void fecha(PreparedStatement stm) {
+		try {
+			stm.close();
+		} catch (Exception e) {
+			// O statement já está sendo descartado
+		}
+	}
+
+	/*
+	 * Statement entregue ao chamador: repassa as chamadas para o statement físico,
+	 * exceto close(), que devolve o statement ao cache
+	 */
+	private class CachedStatement implements InvocationHandler {
+
+		private final Entrada entrada;
+		private final Connection connection;
+		private boolean closed = false;
+
+		CachedStatement(Entrada entrada, Connection connection) {
+			this.entrada = entrada;
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!closed) {
+					closed = true;
+					devolve(entrada);
+				}
+				return null;
+			case "isClosed":
+				return closed || entrada.physical.isClosed();
+			case "getConnection":
+				return connection;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "CachedStatement[" + entrada.physical + "]";
+			}
+
+			if (closed)
+				throw new SQLException("Statement já devolvido ao cache");
+
+			try {
+				return method.invoke(entrada.physical, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
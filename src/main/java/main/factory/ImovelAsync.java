@@ -0,0 +1,231 @@
+package main.factory;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import main.db.DBConnection;
+import main.model.Imovel;
+
+/*
+ * Versão assíncrona de ImovelFactory e das gravações do Imovel
+ * Cada chamada roda o JDBC bloqueante em uma thread virtual (Java 21+) ou, em versões
+ * anteriores do Java, em um pool de threads do tamanho do limite de concorrência
+ * Um semáforo limita as chamadas simultâneas ao BD, por padrão ao tamanho do pool de conexões,
+ * para que as threads esperem no semáforo e não no empréstimo de conexões
+ */
+public class ImovelAsync {
+
+	/*
+	 * Executor e semáforo, trocados juntos por setConcorrencia
+	 */
+	private static class Execucao {
+		final ExecutorService executor;
+		final Semaphore permissoes;
+		final int limite;
+
+		// Limite padrão, que acompanha o tamanho do pool de conexões
+		final boolean padrao;
+
+		Execucao(int limite, boolean padrao) {
+			this.limite = limite;
+			this.padrao = padrao;
+			this.permissoes = new Semaphore(limite, true);
+			this.executor = criaExecutor(limite);
+		}
+	}
+
+	private static volatile Execucao execucao = null;
+
+	// Limite definido por setConcorrencia; ZERO usa o tamanho do pool de conexões
+	private static int concorrencia = 0;
+
+	/*
+	 * Recupera o Imovel pelo ID (ImovelFactory.getByID)
+	 * O resultado é nulo se o objeto não existir no BD
+	 */
+	public static CompletableFuture<Imovel> getByIDAsync(int id) {
+		return executa(() -> ImovelFactory.getByID(id));
+	}
+
+	/*
+	 * Recupera o Imovel pela inscrição (ImovelFactory.getByInscricao)
+	 */
+	public static CompletableFuture<Imovel> getByInscricaoAsync(int inscricao) {
+		return executa(() -> ImovelFactory.getByInscricao(inscricao));
+	}
+
+	/*
+	 * Recupera os imóveis com os IDs informados (ImovelFactory.getByIDs)
+	 */
+	public static CompletableFuture<ResultadoBusca> getByIDsAsync(int[] ids) {
+		int[] copia = ids.clone();
+		return executa(() -> ImovelFactory.getByIDs(copia));
+	}
+
+	public static CompletableFuture<ResultadoBusca> getByIDsAsync(Collection<Integer> ids) {
+		return getByIDsAsync(ids.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/*
+	 * Recupera os imóveis com as inscrições informadas (ImovelFactory.getByInscricoes)
+	 */
+	public static CompletableFuture<ResultadoBusca> getByInscricoesAsync(int[] inscricoes) {
+		int[] copia = inscricoes.clone();
+		return executa(() -> ImovelFactory.getByInscricoes(copia));
+	}
+
+	/*
+	 * Salva o imóvel (Imovel.save) e completa com o próprio imóvel
+	 * O imóvel não deve ser alterado até o resultado ser completado
+	 * Não pode ser chamado dentro de DBConnection.inTransaction (ver foraDaTransacao)
+	 */
+	public static CompletableFuture<Imovel> saveAsync(Imovel imovel) {
+		foraDaTransacao();
+
+		return executa(() -> {
+			imovel.save();
+			return imovel;
+		});
+	}
+
+	/*
+	 * Exclui o imóvel (Imovel.delete) e completa com o próprio imóvel
+	 * Não pode ser chamado dentro de DBConnection.inTransaction (ver foraDaTransacao)
+	 */
+	public static CompletableFuture<Imovel> deleteAsync(Imovel imovel) {
+		foraDaTransacao();
+
+		return executa(() -> {
+			imovel.delete();
+			return imovel;
+		});
+	}
+
+	/*
+	 * Executa uma operação qualquer no BD respeitando o limite de concorrência
+	 * Exceções da operação completam o resultado com erro
+	 * A operação roda em outra thread, fora da transação de quem chamou: gravações feitas por ela
+	 * são confirmadas mesmo que a transação de quem chamou seja desfeita
+	 */
+	public static <T> CompletableFuture<T> executa(Supplier<T> operacao) {
+		while (true) {
+			Execucao e = getExecucao();
+
+			try {
+				return CompletableFuture.supplyAsync(() -> {
+					try {
+						e.permissoes.acquire();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new IllegalArgumentException(ex);
+					}
+
+					try {
+						return operacao.get();
+					}
+					finally {
+						e.permissoes.release();
+					}
+				}, e.executor);
+			}
+			catch (RejectedExecutionException ex) {
+				// O executor foi encerrado por uma troca concorrente: submete no novo
+				if (execucao == e)
+					throw ex;
+			}
+		}
+	}
+
+	/*
+	 * Define quantas operações podem usar o BD ao mesmo tempo
+	 * ZERO volta ao padrão: o tamanho do pool de conexões (DBConnection.getMaxPoolSize),
+	 * que é acompanhado quando o pool é redimensionado
+	 * As operações já submetidas terminam no executor anterior
+	 */
+	public static synchronized void setConcorrencia(int limite) {
+		if (limite < 0)
+			throw new IllegalArgumentException("Limite de concorrência inválido");
+
+		concorrencia = limite;
+		troca(limite > 0 ? new Execucao(limite, false) : new Execucao(DBConnection.getMaxPoolSize(), true));
+	}
+
+	public static int getConcorrencia() {
+		return getExecucao().limite;
+	}
+
+	/*
+	 * Quantidade de operações usando o BD no momento
+	 */
+	public static int getEmExecucao() {
+		Execucao e = getExecucao();
+		return e.limite - e.permissoes.availablePermits();
+	}
+
+	/*
+	 * A gravação roda em outra thread, com outra conexão, e seria confirmada mesmo que a transação
+	 * de quem chamou fosse desfeita; dentro de uma transação, use Imovel.save ou Imovel.delete
+	 */
+	private static void foraDaTransacao() {
+		if (DBConnection.emTransacao())
+			throw new IllegalArgumentException("Gravação assíncrona não pode ser feita dentro de uma transação");
+	}
+
+	/*
+	 * Execução atual; com o limite padrão, é recriada quando o tamanho do pool de conexões muda
+	 */
+	private static Execucao getExecucao() {
+		Execucao e = execucao;
+
+		if (e != null && (!e.padrao || e.limite == DBConnection.getMaxPoolSize()))
+			return e;
+
+		synchronized (ImovelAsync.class) {
+			e = execucao;
+
+			if (e == null || (e.padrao && e.limite != DBConnection.getMaxPoolSize()))
+				e = troca(concorrencia > 0 ? new Execucao(concorrencia, false)
+						: new Execucao(DBConnection.getMaxPoolSize(), true));
+
+			return e;
+		}
+	}
+
+	/*
+	 * Publica a nova execução antes de encerrar a anterior, para que uma submissão recusada
+	 * pelo executor anterior encontre a nova em executa
+	 */
+	private static Execucao troca(Execucao nova) {
+		Execucao anterior = execucao;
+		execucao = nova;
+
+		if (anterior != null)
+			anterior.executor.shutdown();
+
+		return nova;
+	}
+
+	/*
+	 * Thread virtual por tarefa, quando o Java tiver (21+)
+	 * Nas versões anteriores, threads de plataforma limitadas ao limite de concorrência,
+	 * já que mais threads só ficariam esperando no semáforo
+	 */
+	private static ExecutorService criaExecutor(int limite) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(limite, r -> {
+				Thread t = new Thread(r, "imovel-async");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package main.factory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import main.model.Imovel;
+
+/*
+ * Mapa de identidade dos imóveis recuperados do BD, limitado a uma quantidade de objetos
+ * Quando o limite é atingido, o imóvel usado há mais tempo é removido (LRU)
+ * Cada imóvel é indexado pelo ID e pela inscrição: uma entrada carregada por um
+ * dos dois atende às consultas pelo outro
+ */
+public class ImovelCache {
+
+	/*
+	 * Imóvel armazenado e a inscrição com que foi indexado
+	 * A inscrição do objeto pode mudar pelo setter antes de ele ser salvo
+	 */
+	private static class Entrada {
+		final Imovel imovel;
+		final int inscricao;
+
+		Entrada(Imovel imovel) {
+			this.imovel = imovel;
+			this.inscricao = imovel.getInscricao();
+		}
+	}
+
+	private final int capacidade;
+
+	// Entradas por ID, em ordem de acesso: a primeira é a usada há mais tempo
+	private final LinkedHashMap<Integer, Entrada> porID;
+	private final HashMap<Integer, Integer> idPorInscricao = new HashMap<>();
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public ImovelCache(int capacidade) {
+		if (capacidade <= 0)
+			throw new IllegalArgumentException("Capacidade do cache inválida");
+
+		this.capacidade = capacidade;
+		this.porID = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Entrada> eldest) {
+				if (size() <= ImovelCache.this.capacidade)
+					return false;
+
+				idPorInscricao.remove(eldest.getValue().inscricao, eldest.getKey());
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/*
+	 * Retorna o imóvel com o ID ou nulo, se ele não estiver no cache
+	 */
+	public synchronized Imovel getByID(int id) {
+		Entrada e = porID.get(id);
+		return conta(e);
+	}
+
+	/*
+	 * Retorna o imóvel com a inscrição ou nulo, se ele não estiver no cache
+	 */
+	public synchronized Imovel getByInscricao(int inscricao) {
+		Integer id = idPorInscricao.get(inscricao);
+		Entrada e = id != null ? porID.get(id) : null;
+		return conta(e);
+	}
+
+	/*
+	 * Guarda o imóvel recuperado do BD, a não ser que outro objeto com o mesmo ID já esteja no cache
+	 * Retorna o objeto que ficou no cache, para que todos os chamadores recebam a mesma instância
+	 */
+	public synchronized Imovel putIfAbsent(Imovel imovel) {
+		Entrada e = porID.get(imovel.getID());
+
+		if (e != null)
+			return e.imovel;
+
+		put(imovel);
+		return imovel;
+	}
+
+	/*
+	 * Guarda o imóvel, substituindo o objeto e a inscrição indexados com o mesmo ID
+	 */
+	public synchronized void put(Imovel imovel) {
+		if (imovel.getID() == 0)
+			throw new IllegalArgumentException("Imóvel não persistente não pode ir para o cache");
+
+		remove(imovel.getID());
+
+		Entrada e = new Entrada(imovel);
+		idPorInscricao.put(e.inscricao, imovel.getID());
+		porID.put(imovel.getID(), e);
+	}
+
+	/*
+	 * Remove o imóvel com o ID do cache
+	 */
+	public synchronized void remove(int id) {
+		Entrada e = porID.remove(id);
+
+		if (e != null)
+			idPorInscricao.remove(e.inscricao, id);
+	}
+
+	public synchronized void clear() {
+		porID.clear();
+		idPorInscricao.clear();
+	}
+
+	public int getCapacidade() {
+		return capacidade;
+	}
+
+	public synchronized int size() {
+		return porID.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	private Imovel conta(Entrada e) {
+		if (e == null) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return e.imovel;
+	}
+}
@@ -1,8 +1,18 @@
 package main.factory;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
 
 import main.dao.ImovelDAO;
+import main.db.DBConnection;
 import main.model.Imovel;
 import main.model.ImovelDTO;
 
@@ -11,6 +21,16 @@ import main.model.ImovelDTO;
  */
 public class ImovelFactory {
 	
+	// Cache dos imóveis recuperados do BD: desligado (nulo) por padrão
+	private static volatile ImovelCache cache = null;
+	
+	// Consultas em andamento por ID e por inscrição, compartilhadas pelas chamadas simultâneas
+	private static final ConcurrentHashMap<Integer, CompletableFuture<ImovelDTO>> buscandoID = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<Integer, CompletableFuture<ImovelDTO>> buscandoInscricao = new ConcurrentHashMap<>();
+	
+	// Chamadas que usaram a consulta de outra thread em vez de consultar o BD
+	private static final LongAdder coalescidas = new LongAdder();
+	
 	/*
 	 * Retorna um objeto não persistete com os dados passado no parâmetro
 	 */
@@ -20,23 +40,239 @@ public class ImovelFactory {
 	
 	/*
 	 * Recupera o Imovel do BD usando o ID
+	 * Se o cache estiver ligado, procura primeiro no cache
 	 * Se objeto não existir no BD retorna nulo.
+	 * Dentro de DBConnection.inTransaction, consulta o BD sem usar o cache (ver naTransacao)
 	 */
 	public static Imovel getByID(int id) {
-		ImovelDTO dto = ImovelDAO.getByID(id);
+		if (naTransacao())
+			return carrega(ImovelDAO.getByID(id), null);
+		
+		ImovelCache c = cache;
+		
+		if (c != null) {
+			Imovel imovel = c.getByID(id);
+			
+			if (imovel != null)
+				return imovel;
+		}
 		
-		// Se o DTO retornou com ID = 0, então não recuperou o objeto do BD
-		return dto.id != 0 ? new Imovel(dto) : null;
+		return carrega(buscaUnica(buscandoID, id, ImovelDAO::getByID), c);
 	}
 
 	/*
 	 * Recupera o Imovel do BD usando a inscricao
+	 * Se o cache estiver ligado, procura primeiro no cache
 	 * Se objeto não existir no BD retorna nulo.
+	 * Dentro de DBConnection.inTransaction, consulta o BD sem usar o cache (ver naTransacao)
 	 */
 	public static Imovel getByInscricao(int inscricao) {
-		ImovelDTO dto = ImovelDAO.getByInscricao(inscricao);
+		if (naTransacao())
+			return carrega(ImovelDAO.getByInscricao(inscricao), null);
+		
+		ImovelCache c = cache;
+		
+		if (c != null) {
+			Imovel imovel = c.getByInscricao(inscricao);
+			
+			if (imovel != null)
+				return imovel;
+		}
+		
+		return carrega(buscaUnica(buscandoInscricao, inscricao, ImovelDAO::getByInscricao), c);
+	}
+	
+	/*
+	 * Recupera do BD os imóveis com os IDs informados, com poucas consultas
+	 * Se o cache estiver ligado, só busca no BD os IDs que não estão no cache
+	 */
+	public static ResultadoBusca getByIDs(int[] ids) {
+		return buscaVarios(ids, true);
+	}
+	
+	public static ResultadoBusca getByIDs(Collection<Integer> ids) {
+		return buscaVarios(toArray(ids), true);
+	}
+	
+	/*
+	 * Recupera do BD os imóveis com as inscrições informadas, com poucas consultas
+	 * Se o cache estiver ligado, só busca no BD as inscrições que não estão no cache
+	 */
+	public static ResultadoBusca getByInscricoes(int[] inscricoes) {
+		return buscaVarios(inscricoes, false);
+	}
+	
+	public static ResultadoBusca getByInscricoes(Collection<Integer> inscricoes) {
+		return buscaVarios(toArray(inscricoes), false);
+	}
+	
+	/*
+	 * Liga o cache de imóveis com a capacidade informada
+	 * Capacidade ZERO desliga o cache
+	 */
+	public static void setCache(int capacidade) {
+		if (capacidade < 0)
+			throw new IllegalArgumentException("Capacidade do cache inválida");
+		
+		cache = capacidade > 0 ? new ImovelCache(capacidade) : null;
+	}
+	
+	/*
+	 * Retorna o cache de imóveis ou nulo, se ele estiver desligado
+	 */
+	public static ImovelCache getCache() {
+		return cache;
+	}
+	
+	/*
+	 * Quantidade de chamadas a getByID e getByInscricao atendidas pela consulta
+	 * que outra thread já estava fazendo para a mesma chave
+	 */
+	public static long getCoalescidas() {
+		return coalescidas.sum();
+	}
+	
+	/*
+	 * Atualiza o cache depois que o imóvel foi inserido ou atualizado no BD
+	 */
+	public static void atualizaCache(Imovel imovel) {
+		ImovelCache c = cache;
+		
+		// Quem chegar depois da gravação não deve receber uma consulta iniciada antes dela
+		buscandoID.remove(imovel.getID());
+		buscandoInscricao.remove(imovel.getInscricao());
+		
+		if (c != null && imovel.getID() != 0)
+			c.put(imovel);
+	}
+	
+	/*
+	 * Remove o imóvel do cache, depois que ele foi excluído do BD ou não pôde ser salvo
+	 * Descarta também as consultas em andamento pelo ID e pela inscrição
+	 */
+	public static void removeDoCache(int id, int inscricao) {
+		ImovelCache c = cache;
+		
+		buscandoID.remove(id);
+		buscandoInscricao.remove(inscricao);
+		
+		if (c != null)
+			c.remove(id);
+	}
+	
+	/*
+	 * Procura cada chave no cache e busca as restantes no BD de uma vez
+	 * Chaves repetidas são consideradas uma só
+	 */
+	private static ResultadoBusca buscaVarios(int[] chaves, boolean porID) {
+		ImovelCache c = naTransacao() ? null : cache;
+		Map<Integer, Imovel> imoveis = new LinkedHashMap<>(chaves.length * 4 / 3 + 1);
+		int[] faltantes = new int[chaves.length];
+		int n = 0;
+		
+		for (int chave : chaves) {
+			if (imoveis.containsKey(chave))
+				continue;
+			
+			Imovel imovel = null;
+			
+			if (c != null)
+				imovel = porID ? c.getByID(chave) : c.getByInscricao(chave);
+			
+			// A ordem do mapa segue a ordem pedida, inclusive para as chaves buscadas no BD
+			imoveis.put(chave, imovel);
+			
+			if (imovel == null)
+				faltantes[n++] = chave;
+		}
+		
+		if (n > 0) {
+			int[] busca = Arrays.copyOf(faltantes, n);
+			Map<Integer, ImovelDTO> dtos = porID ? ImovelDAO.getByIDs(busca) : ImovelDAO.getByInscricoes(busca);
+			
+			for (int chave : busca) {
+				ImovelDTO dto = dtos.get(chave);
+				
+				if (dto != null)
+					imoveis.put(chave, carrega(dto, c));
+			}
+		}
+		
+		// Remove as chaves que não existem no BD
+		int[] ausentes = new int[n];
+		int a = 0;
+		
+		for (int i = 0; i < n; i++)
+			if (imoveis.get(faltantes[i]) == null) {
+				imoveis.remove(faltantes[i]);
+				ausentes[a++] = faltantes[i];
+			}
+		
+		return new ResultadoBusca(imoveis, Arrays.copyOf(ausentes, a));
+	}
+	
+	/*
+	 * Consulta o BD pela chave, a não ser que outra thread já esteja consultando a mesma chave:
+	 * nesse caso espera e usa o DTO da consulta dela
+	 * O DTO é compartilhado, mas cada chamada cria o seu Imovel (ou usa o do cache)
+	 */
+	private static ImovelDTO buscaUnica(ConcurrentHashMap<Integer, CompletableFuture<ImovelDTO>> buscando,
+			int chave, IntFunction<ImovelDTO> busca) {
+		
+		CompletableFuture<ImovelDTO> minha = new CompletableFuture<>();
+		CompletableFuture<ImovelDTO> outra = buscando.putIfAbsent(chave, minha);
+		
+		if (outra != null) {
+			coalescidas.increment();
+			
+			try {
+				return outra.join();
+			}
+			catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				
+				throw new IllegalArgumentException(e.getCause());
+			}
+		}
+		
+		try {
+			ImovelDTO dto = busca.apply(chave);
+			minha.complete(dto);
+			return dto;
+		}
+		catch (RuntimeException e) {
+			minha.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			buscando.remove(chave, minha);
+		}
+	}
+	
+	/*
+	 * Dentro de DBConnection.inTransaction, as consultas usam a conexão da transação e podem ver
+	 * linhas ainda não confirmadas: o resultado não vai para o cache nem é compartilhado com outras
+	 * threads, e o cache não é consultado, já que pode não refletir o que a transação gravou
+	 */
+	private static boolean naTransacao() {
+		return DBConnection.emTransacao();
+	}
+	
+	private static int[] toArray(Collection<Integer> chaves) {
+		return chaves.stream().mapToInt(Integer::intValue).toArray();
+	}
+	
+	/*
+	 * Cria o Imovel a partir do DTO e o guarda no cache, se ele estiver ligado
+	 * Se o DTO retornou com ID = 0, então não recuperou o objeto do BD
+	 */
+	private static Imovel carrega(ImovelDTO dto, ImovelCache c) {
+		if (dto.id == 0)
+			return null;
+		
+		Imovel imovel = new Imovel(dto);
 		
-		// Se o DTO retornou com ID = 0, então não recuperou o objeto do BD
-		return dto.id != 0 ? new Imovel(dto) : null;
+		return c != null ? c.putIfAbsent(imovel) : imovel;
 	}
 }
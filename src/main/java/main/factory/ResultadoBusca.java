@@ -0,0 +1,29 @@
+package main.factory;
+
+import java.util.Map;
+
+import main.model.Imovel;
+
+/*
+ * Resultado de uma busca de vários imóveis por ID ou por inscrição
+ * imoveis é indexado pela chave buscada; ausentes tem as chaves que não existem no BD,
+ * na ordem em que foram pedidas e sem repetições
+ */
+public class ResultadoBusca {
+
+	public final Map<Integer, Imovel> imoveis;
+	public final int[] ausentes;
+
+	public ResultadoBusca(Map<Integer, Imovel> imoveis, int[] ausentes) {
+		this.imoveis = imoveis;
+		this.ausentes = ausentes;
+	}
+
+	public Imovel get(int chave) {
+		return imoveis.get(chave);
+	}
+
+	public boolean temAusentes() {
+		return ausentes.length > 0;
+	}
+}
@@ -0,0 +1,400 @@
+package main.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import main.dao.ImovelDAO;
+import main.util.Relogio;
+
+/*
+ * Calcula o IPTU de um conjunto de imóveis em paralelo
+ * Os imóveis são lidos da origem em blocos de tamanhoBloco, e cada bloco é calculado
+ * por uma tarefa do executor. No máximo 2 * paralelismo blocos ficam em memória ao mesmo tempo,
+ * então a origem pode ser um cursor sobre a base inteira
+ * O destino recebe cada imóvel com o seu ValorIPTU e é chamado por várias threads ao mesmo tempo
+ */
+public class CalculoIPTULote {
+
+	// Quantidade padrão de imóveis calculados por tarefa
+	public static final int TAMANHO_BLOCO = 1024;
+
+	/*
+	 * Destino do cálculo da base por colunas (calculaBase): recebe os resultados de um bloco,
+	 * na posição i de cada vetor, para i em [0, tamanho)
+	 * É chamado por várias threads ao mesmo tempo, e os vetores são reaproveitados depois que ele retorna
+	 */
+	public interface DestinoColunas {
+		void bloco(int[] inscricao, float[] valorIPTU, float[] valorAVista, int[] numParcelas, float[] valorParcela, int tamanho);
+	}
+
+	private final float percDescontoVista;
+	private final float percJurosParcelamento;
+
+	// Ano de referência usado por todos os imóveis do cálculo
+	private final int exercicio;
+
+	// Alíquotas do exercício, obtidas uma vez na criação do cálculo
+	private final TabelaAliquotas aliquotas;
+
+	private final int paralelismo;
+	private final int tamanhoBloco;
+
+	// Executor informado pelo chamador ou nulo, para usar um ForkJoinPool próprio em cada cálculo
+	private final ExecutorService executor;
+
+	public CalculoIPTULote(float percDescontoVista, float percJurosParcelamento) {
+		this(percDescontoVista, percJurosParcelamento, Runtime.getRuntime().availableProcessors(), TAMANHO_BLOCO);
+	}
+
+	/*
+	 * Usa um ForkJoinPool com o paralelismo informado, criado e encerrado a cada cálculo
+	 */
+	public CalculoIPTULote(float percDescontoVista, float percJurosParcelamento, int paralelismo, int tamanhoBloco) {
+		this(percDescontoVista, percJurosParcelamento, paralelismo, tamanhoBloco, null);
+	}
+
+	/*
+	 * Usa o executor informado, que não é encerrado ao final do cálculo
+	 * O paralelismo limita a quantidade de blocos enviados ao executor ao mesmo tempo
+	 */
+	public CalculoIPTULote(float percDescontoVista, float percJurosParcelamento, int paralelismo, int tamanhoBloco, ExecutorService executor) {
+		this(percDescontoVista, percJurosParcelamento, Relogio.exercicio(), paralelismo, tamanhoBloco, executor);
+	}
+
+	/*
+	 * Calcula o IPTU do exercício informado, em vez do exercício corrente
+	 * O executor pode ser nulo, para usar um ForkJoinPool próprio em cada cálculo
+	 * Usa as alíquotas de TabelaAliquotas.get, sem acessar o BD
+	 */
+	public CalculoIPTULote(float percDescontoVista, float percJurosParcelamento, int exercicio, int paralelismo, int tamanhoBloco, ExecutorService executor) {
+		this(percDescontoVista, percJurosParcelamento, exercicio, paralelismo, tamanhoBloco, executor, TabelaAliquotas.get(exercicio));
+	}
+
+	/*
+	 * Calcula o IPTU do exercício com as alíquotas informadas
+	 */
+	public CalculoIPTULote(float percDescontoVista, float percJurosParcelamento, int exercicio, int paralelismo, int tamanhoBloco,
+			ExecutorService executor, TabelaAliquotas aliquotas) {
+		
+		if (aliquotas == null)
+			throw new IllegalArgumentException("Tabela de alíquotas não foi definida");
+
+		if (percDescontoVista < 0 || percDescontoVista > 100)
+			throw new IllegalArgumentException("Desconto para pagamento à vista inválido");
+
+		if (percJurosParcelamento < 0)
+			throw new IllegalArgumentException("Juros do parcelamento inválido");
+
+		if (paralelismo <= 0)
+			throw new IllegalArgumentException("Paralelismo inválido");
+
+		if (tamanhoBloco <= 0)
+			throw new IllegalArgumentException("Tamanho do bloco inválido");
+
+		this.percDescontoVista = percDescontoVista;
+		this.percJurosParcelamento = percJurosParcelamento;
+		this.exercicio = exercicio;
+		this.aliquotas = aliquotas;
+		this.paralelismo = paralelismo;
+		this.tamanhoBloco = tamanhoBloco;
+		this.executor = executor;
+	}
+
+	/*
+	 * Carrega do BD a tabela de alíquotas vigente no exercício (TabelaAliquotas.carrega)
+	 * e cria o cálculo com ela; é o ponto de entrada do cálculo da base gravada no BD
+	 */
+	public static CalculoIPTULote doBD(float percDescontoVista, float percJurosParcelamento, int exercicio, int paralelismo,
+			int tamanhoBloco, ExecutorService executor) {
+		
+		return new CalculoIPTULote(percDescontoVista, percJurosParcelamento, exercicio, paralelismo, tamanhoBloco, executor,
+				TabelaAliquotas.carrega(exercicio));
+	}
+
+	/*
+	 * Calcula o IPTU dos imóveis da coleção
+	 * Retorna a quantidade de imóveis calculados
+	 */
+	public long calcula(Collection<Imovel> imoveis, BiConsumer<Imovel, ValorIPTU> destino) {
+		return calcula(imoveis.iterator(), destino);
+	}
+
+	/*
+	 * Calcula o IPTU dos imóveis lidos do Stream (ex.: ImovelDAO.stream()), que é fechado ao final
+	 * Retorna a quantidade de imóveis calculados
+	 */
+	public long calcula(Stream<ImovelDTO> origem, BiConsumer<Imovel, ValorIPTU> destino) {
+		try (Stream<ImovelDTO> s = origem) {
+			return calcula(s.map(Imovel::new).iterator(), destino);
+		}
+	}
+
+	/*
+	 * Calcula o IPTU dos imóveis lidos do iterador
+	 * Retorna a quantidade de imóveis calculados
+	 */
+	public long calcula(Iterator<Imovel> origem, BiConsumer<Imovel, ValorIPTU> destino) {
+		ExecutorService exec = executor != null ? executor : new ForkJoinPool(paralelismo);
+
+		try {
+			return distribui(origem, destino, exec);
+		}
+		finally {
+			if (exec != executor)
+				exec.shutdownNow();
+		}
+	}
+
+	/*
+	 * Lê a origem em blocos e envia cada bloco ao executor
+	 * A leitura espera quando já há 2 * paralelismo blocos pendentes
+	 */
+	private long distribui(Iterator<Imovel> origem, BiConsumer<Imovel, ValorIPTU> destino, ExecutorService exec) {
+		Semaphore pendentes = new Semaphore(2 * paralelismo);
+		List<Future<?>> tarefas = new ArrayList<>();
+		long total = 0;
+
+		try {
+			while (origem.hasNext()) {
+				Imovel[] bloco = new Imovel[tamanhoBloco];
+				int n = 0;
+
+				while (n < tamanhoBloco && origem.hasNext())
+					bloco[n++] = origem.next();
+
+				total += n;
+
+				pendentes.acquire();
+
+				int tamanho = n;
+				tarefas.add(exec.submit(() -> {
+					try {
+						calculaBloco(bloco, tamanho, destino);
+					}
+					finally {
+						pendentes.release();
+					}
+				}));
+
+				// Remove as tarefas concluídas para não acumular a lista
+				tarefas.removeIf(f -> f.isDone() && concluida(f));
+			}
+
+			for (Future<?> f : tarefas)
+				concluida(f);
+
+			return total;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Cálculo em lote interrompido", e);
+		}
+		catch (RuntimeException e) {
+			for (Future<?> f : tarefas)
+				f.cancel(true);
+
+			throw e;
+		}
+	}
+
+	/*
+	 * Calcula o IPTU de todos os imóveis do BD com KernelIPTU
+	 * Os imóveis são lidos por ImovelDAO.leColunasCalculo, que só traz as colunas do cálculo, direto para
+	 * os vetores de um bloco: nenhum ImovelDTO, Imovel ou ValorIPTU é criado por imóvel
+	 * Os 2 * paralelismo blocos são criados uma vez e reaproveitados; a leitura espera quando todos estão em uso
+	 * Retorna a quantidade de imóveis calculados
+	 */
+	public long calculaBase(DestinoColunas destino) {
+		ExecutorService exec = executor != null ? executor : new ForkJoinPool(paralelismo);
+
+		try {
+			LeituraColunas leitura = new LeituraColunas(destino, exec);
+			long total = ImovelDAO.leColunasCalculo(ImovelDAO.FETCH_SIZE, leitura);
+			leitura.termina();
+
+			return total;
+		}
+		finally {
+			if (exec != executor)
+				exec.shutdownNow();
+		}
+	}
+
+	/*
+	 * Vetores de entrada e de saída de KernelIPTU para um bloco de imóveis
+	 */
+	private static final class BlocoColunas {
+
+		final int[] inscricao;
+		final float[] valor;
+		final int[] area;
+		final char[] categoria;
+		final long[] dtLiberacao;
+
+		final float[] valorIPTU;
+		final float[] valorAVista;
+		final int[] numParcelas;
+		final float[] valorParcela;
+
+		int tamanho;
+
+		BlocoColunas(int capacidade) {
+			inscricao = new int[capacidade];
+			valor = new float[capacidade];
+			area = new int[capacidade];
+			categoria = new char[capacidade];
+			dtLiberacao = new long[capacidade];
+			valorIPTU = new float[capacidade];
+			valorAVista = new float[capacidade];
+			numParcelas = new int[capacidade];
+			valorParcela = new float[capacidade];
+		}
+	}
+
+	/*
+	 * Preenche os blocos com as linhas lidas do BD e envia cada bloco cheio ao executor
+	 * O bloco volta para os livres quando a tarefa termina, com ou sem erro
+	 */
+	private final class LeituraColunas implements ImovelDAO.LeitorCalculo {
+
+		private final DestinoColunas destino;
+		private final ExecutorService exec;
+		private final BlockingQueue<BlocoColunas> livres = new ArrayBlockingQueue<>(2 * paralelismo);
+		private final List<Future<?>> tarefas = new ArrayList<>();
+
+		private BlocoColunas atual;
+
+		LeituraColunas(DestinoColunas destino, ExecutorService exec) {
+			this.destino = destino;
+			this.exec = exec;
+
+			for (int i = 0; i < 2 * paralelismo; i++)
+				livres.add(new BlocoColunas(tamanhoBloco));
+
+			atual = livres.poll();
+		}
+
+		@Override
+		public void linha(int inscricao, float valor, int area, char categoria, long dtLiberacao) {
+			int i = atual.tamanho++;
+			atual.inscricao[i] = inscricao;
+			atual.valor[i] = valor;
+			atual.area[i] = area;
+			atual.categoria[i] = categoria;
+			atual.dtLiberacao[i] = dtLiberacao;
+
+			if (atual.tamanho == tamanhoBloco) {
+				envia(atual);
+				atual = proximoLivre();
+			}
+		}
+
+		/*
+		 * Envia o último bloco, incompleto, e espera todas as tarefas
+		 */
+		void termina() {
+			if (atual.tamanho > 0)
+				envia(atual);
+
+			atual = null;
+
+			for (Future<?> f : tarefas)
+				concluida(f);
+		}
+
+		private void envia(BlocoColunas bloco) {
+			try {
+				tarefas.add(exec.submit(() -> {
+					try {
+						KernelIPTU.calcula(bloco.valor, bloco.area, bloco.categoria, bloco.dtLiberacao, 0, bloco.tamanho,
+								exercicio, aliquotas, percDescontoVista, percJurosParcelamento,
+								bloco.valorIPTU, bloco.valorAVista, bloco.numParcelas, bloco.valorParcela);
+
+						destino.bloco(bloco.inscricao, bloco.valorIPTU, bloco.valorAVista, bloco.numParcelas, bloco.valorParcela, bloco.tamanho);
+					}
+					finally {
+						bloco.tamanho = 0;
+						livres.add(bloco);
+					}
+				}));
+
+				// Remove as tarefas concluídas para não acumular a lista
+				tarefas.removeIf(f -> f.isDone() && concluida(f));
+			}
+			catch (RuntimeException e) {
+				for (Future<?> f : tarefas)
+					f.cancel(true);
+
+				throw e;
+			}
+		}
+
+		private BlocoColunas proximoLivre() {
+			try {
+				return livres.take();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+
+				for (Future<?> f : tarefas)
+					f.cancel(true);
+
+				throw new IllegalStateException("Cálculo em lote interrompido", e);
+			}
+		}
+	}
+
+	private void calculaBloco(Imovel[] bloco, int tamanho, BiConsumer<Imovel, ValorIPTU> destino) {
+		for (int i = 0; i < tamanho; i++) {
+			IPTU iptu = new IPTU(bloco[i], exercicio, aliquotas);
+			destino.accept(bloco[i], iptu.calculaValor(percDescontoVista, percJurosParcelamento));
+		}
+	}
+
+	/*
+	 * Espera a tarefa terminar e repassa o erro dela, se houver
+	 */
+	private static boolean concluida(Future<?> f) {
+		try {
+			f.get();
+			return true;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Cálculo em lote interrompido", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	public int getExercicio() {
+		return exercicio;
+	}
+
+	public TabelaAliquotas getAliquotas() {
+		return aliquotas;
+	}
+
+	public int getParalelismo() {
+		return paralelismo;
+	}
+
+	public int getTamanhoBloco() {
+		return tamanhoBloco;
+	}
+}
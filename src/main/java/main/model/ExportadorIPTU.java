@@ -0,0 +1,326 @@
+package main.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import main.util.Money;
+
+/*
+ * Exporta o IPTU calculado para arquivo, uma linha por imóvel com inscrição, valor,
+ * valor à vista, quantidade de parcelas e valor da parcela
+ *
+ * Pode ser o destino de CalculoIPTULote.calcula e de CalculoIPTULote.calculaBase: cada imóvel é gravado assim que é calculado,
+ * então a exportação não guarda os resultados em memória. As linhas são formatadas direto
+ * em um ByteBuffer direto, sem criar Strings, e gravadas por um FileChannel quando o buffer enche
+ * Com gzip, o buffer é comprimido por um Deflater antes de ir para o arquivo
+ *
+ * Os métodos são sincronizados, porque o destino do cálculo em lote é chamado por várias threads
+ */
+public class ExportadorIPTU implements BiConsumer<Imovel, ValorIPTU>, CalculoIPTULote.DestinoColunas, AutoCloseable {
+
+	/*
+	 * CSV: campos separados por ';', valores em reais com ponto decimal e cabeçalho
+	 * FIXO: campos de largura fixa completados com zeros, valores em centavos e sem cabeçalho
+	 *   inscricao(8) valor(13) valorAVista(13) numParcelas(2) valorParcela(13)
+	 */
+	public enum Layout { CSV, FIXO }
+
+	// Tamanho padrão do buffer de gravação
+	public static final int TAMANHO_BUFFER = 1024 * 1024;
+
+	// Maior linha gravada, em bytes
+	private static final int MAX_LINHA = 128;
+
+	private static final int LARGURA_INSCRICAO = 8;
+	private static final int LARGURA_VALOR = 13;
+	private static final int LARGURA_PARCELAS = 2;
+
+	private static final byte[] CABECALHO_CSV =
+			"inscricao;valor;valor_a_vista;num_parcelas;valor_parcela\n".getBytes(StandardCharsets.US_ASCII);
+
+	// Cabeçalho gzip (RFC 1952): sem nome de arquivo nem data, sistema operacional desconhecido
+	private static final byte[] CABECALHO_GZIP = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	private static final ByteBuffer VAZIO = ByteBuffer.allocate(0);
+
+	private final Layout layout;
+	private final FileChannel canal;
+	private final ByteBuffer buffer;
+
+	// Compressão: nulos quando o arquivo não é gzip
+	private final Deflater deflater;
+	private final CRC32 crc;
+	private final ByteBuffer comprimido;
+
+	private long linhas = 0;
+	private boolean fechado = false;
+
+	public ExportadorIPTU(Path arquivo, Layout layout, boolean gzip) {
+		this(arquivo, layout, gzip, TAMANHO_BUFFER);
+	}
+
+	/*
+	 * Cria (ou substitui) o arquivo
+	 */
+	public ExportadorIPTU(Path arquivo, Layout layout, boolean gzip, int tamanhoBuffer) {
+		if (layout == null)
+			throw new IllegalArgumentException("Layout não foi definido");
+
+		if (tamanhoBuffer < MAX_LINHA)
+			throw new IllegalArgumentException("Tamanho do buffer inválido");
+
+		this.layout = layout;
+		this.buffer = ByteBuffer.allocateDirect(tamanhoBuffer);
+
+		if (gzip) {
+			this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			this.crc = new CRC32();
+			this.comprimido = ByteBuffer.allocateDirect(tamanhoBuffer);
+		}
+		else {
+			this.deflater = null;
+			this.crc = null;
+			this.comprimido = null;
+		}
+
+		try {
+			this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+
+			if (gzip)
+				grava(ByteBuffer.wrap(CABECALHO_GZIP));
+		}
+		catch (IOException e) {
+			if (deflater != null)
+				deflater.end();
+
+			throw new IllegalArgumentException(e);
+		}
+
+		if (layout == Layout.CSV)
+			buffer.put(CABECALHO_CSV);
+	}
+
+	/*
+	 * Grava a linha do imóvel
+	 */
+	@Override
+	public synchronized void accept(Imovel imovel, ValorIPTU valor) {
+		escreve(imovel.getInscricao(), valor.valor, valor.valorAVista,
+				valor.parcelamento.getNumParcelas(), valor.parcelamento.getValorParcela());
+	}
+
+	/*
+	 * Grava as linhas de um bloco de resultados do cálculo por colunas
+	 */
+	@Override
+	public synchronized void bloco(int[] inscricao, float[] valorIPTU, float[] valorAVista, int[] numParcelas, float[] valorParcela, int tamanho) {
+		for (int i = 0; i < tamanho; i++)
+			escreve(inscricao[i], valorIPTU[i], valorAVista[i], numParcelas[i], valorParcela[i]);
+	}
+
+	/*
+	 * Grava uma linha com os valores informados
+	 */
+	public synchronized void escreve(int inscricao, float valor, float valorAVista, int numParcelas, float valorParcela) {
+		if (fechado)
+			throw new IllegalArgumentException("Exportação já foi encerrada");
+
+		try {
+			if (buffer.remaining() < MAX_LINHA)
+				descarrega();
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		int inicioLinha = buffer.position();
+
+		try {
+			if (layout == Layout.CSV) {
+				inteiro(inscricao);
+				buffer.put((byte) ';');
+				reais(Money.toCentavos(valor));
+				buffer.put((byte) ';');
+				reais(Money.toCentavos(valorAVista));
+				buffer.put((byte) ';');
+				inteiro(numParcelas);
+				buffer.put((byte) ';');
+				reais(Money.toCentavos(valorParcela));
+			}
+			else {
+				fixo(inscricao, LARGURA_INSCRICAO);
+				fixo(Money.toCentavos(valor), LARGURA_VALOR);
+				fixo(Money.toCentavos(valorAVista), LARGURA_VALOR);
+				fixo(numParcelas, LARGURA_PARCELAS);
+				fixo(Money.toCentavos(valorParcela), LARGURA_VALOR);
+			}
+
+			buffer.put((byte) '\n');
+			linhas++;
+		}
+		catch (IllegalArgumentException e) {
+			// Descarta a linha incompleta
+			buffer.position(inicioLinha);
+			throw e;
+		}
+	}
+
+	/*
+	 * Quantidade de linhas de imóveis gravadas
+	 */
+	public synchronized long getLinhas() {
+		return linhas;
+	}
+
+	public Layout getLayout() {
+		return layout;
+	}
+
+	public boolean isGzip() {
+		return deflater != null;
+	}
+
+	/*
+	 * Grava o que está no buffer, termina a compressão e fecha o arquivo
+	 */
+	@Override
+	public synchronized void close() {
+		if (fechado)
+			return;
+
+		fechado = true;
+
+		try {
+			descarrega();
+
+			if (deflater != null) {
+				deflater.finish();
+
+				while (!deflater.finished())
+					comprime();
+
+				// Rodapé gzip: CRC32 e tamanho original, em little-endian
+				ByteBuffer rodape = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+				rodape.putInt((int) crc.getValue());
+				rodape.putInt((int) deflater.getBytesRead());
+				rodape.flip();
+				grava(rodape);
+			}
+
+			canal.close();
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+		finally {
+			if (deflater != null)
+				deflater.end();
+
+			// Fecha o arquivo mesmo depois de um erro de gravação
+			try {
+				canal.close();
+			} catch (IOException e) {
+				// O erro de gravação já foi lançado
+			}
+		}
+	}
+
+	/*
+	 * Envia o buffer de linhas para o arquivo, comprimindo se for gzip
+	 */
+	private void descarrega() throws IOException {
+		buffer.flip();
+
+		if (deflater == null)
+			grava(buffer);
+		else {
+			crc.update(buffer.duplicate());
+			deflater.setInput(buffer);
+
+			while (!deflater.needsInput())
+				comprime();
+
+			// O Deflater guarda a referência ao buffer, que vai ser reaproveitado
+			deflater.setInput(VAZIO);
+		}
+
+		buffer.clear();
+	}
+
+	private void comprime() throws IOException {
+		comprimido.clear();
+		deflater.deflate(comprimido);
+		comprimido.flip();
+		grava(comprimido);
+	}
+
+	private void grava(ByteBuffer dados) throws IOException {
+		while (dados.hasRemaining())
+			canal.write(dados);
+	}
+
+	/*
+	 * Valor em centavos como reais com duas casas decimais
+	 */
+	private void reais(long centavos) {
+		if (centavos < 0) {
+			buffer.put((byte) '-');
+			centavos = -centavos;
+		}
+
+		inteiro(centavos / 100);
+		buffer.put((byte) '.');
+		buffer.put((byte) ('0' + centavos % 100 / 10));
+		buffer.put((byte) ('0' + centavos % 10));
+	}
+
+	private void inteiro(long valor) {
+		if (valor < 0) {
+			buffer.put((byte) '-');
+			valor = -valor;
+		}
+
+		int inicio = buffer.position();
+
+		do {
+			buffer.put((byte) ('0' + valor % 10));
+			valor /= 10;
+		} while (valor > 0);
+
+		// Os dígitos foram gravados do menos para o mais significativo
+		for (int i = inicio, j = buffer.position() - 1; i < j; i++, j--) {
+			byte b = buffer.get(i);
+			buffer.put(i, buffer.get(j));
+			buffer.put(j, b);
+		}
+	}
+
+	/*
+	 * Número completado com zeros à esquerda até a largura do campo
+	 */
+	private void fixo(long valor, int largura) {
+		if (valor < 0)
+			throw new IllegalArgumentException("Valor negativo não cabe no layout fixo: " + valor);
+
+		int inicio = buffer.position();
+
+		for (int i = largura - 1; i >= 0; i--) {
+			buffer.put(inicio + i, (byte) ('0' + valor % 10));
+			valor /= 10;
+		}
+
+		if (valor != 0)
+			throw new IllegalArgumentException("Valor não cabe no campo de " + largura + " dígitos");
+
+		buffer.position(inicio + largura);
+	}
+}
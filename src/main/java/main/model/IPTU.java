@@ -1,16 +1,50 @@
 package main.model;
 
-import java.time.LocalDate;
-
 import main.util.Money;
+import main.util.Relogio;
 
 public class IPTU {
 
 	private Imovel imovel;
 	
+	// Ano de referência para o cálculo da idade do imóvel
+	private int exercicio;
+	
+	// Alíquotas vigentes no exercício
+	private TabelaAliquotas aliquotas;
+	
+	/*
+	 * Calcula o IPTU do exercício corrente, segundo o Relogio do sistema
+	 */
 	public IPTU(Imovel imovel) {
+		this(imovel, Relogio.exercicio());
+	}
+	
+	/*
+	 * Calcula o IPTU do exercício informado
+	 * Em cálculos em lote, o exercício deve ser obtido uma vez e repassado a todos os imóveis
+	 */
+	public IPTU(Imovel imovel, int exercicio) {
+		this(imovel, exercicio, TabelaAliquotas.get(exercicio));
+	}
+	
+	/*
+	 * Calcula o IPTU do exercício informado com a tabela de alíquotas informada
+	 * Em cálculos em lote, a tabela também deve ser obtida uma vez e repassada a todos os imóveis
+	 */
+	public IPTU(Imovel imovel, int exercicio, TabelaAliquotas aliquotas) {
 		super();
 		this.imovel = imovel;
+		this.exercicio = exercicio;
+		this.aliquotas = aliquotas;
+	}
+	
+	public int getExercicio() {
+		return exercicio;
+	}
+	
+	public TabelaAliquotas getAliquotas() {
+		return aliquotas;
 	}
 	
 	public ValorIPTU calculaValor(float percDescontoVista, float percJurosParcelamento) {	
@@ -23,32 +57,11 @@ public class IPTU {
 		float valorIPTU = 0;
 		
 		// Calcula a idade do imóvel 
-		int idade = LocalDate.now().getYear() - imovel.getDataLiberacao().getYear();
+		int idade = exercicio - imovel.getDataLiberacao().getYear();
 		
-		if (idade < 170 && imovel.getCategoria() != 'Z') {
-			// Calcula o percentual do IPTU
-			int area = imovel.getArea() / 20 + 1;
-			
-			if (imovel.getArea() % 20 == 0)
-				area--;
-			
-			float percIPTU = area * 0.05f;
-			
-			// Calcula valor do IPTU
-			valorIPTU = imovel.getValor() * (percIPTU / 100);
-			
-			// Calcula acréscimo por região
-			if (imovel.getCategoria() == 'A')
-				valorIPTU *= 1.1f;
-			else if (imovel.getCategoria() == 'B')
-				valorIPTU *= 1.07f;
-			else if (imovel.getCategoria() == 'C')
-				valorIPTU *= 1.05f;
-			
-			// Calcula desconto por idade
-			float percDescontoIdade = idade / 5 * 0.03f;
-			
-			valorIPTU *= 1 - percDescontoIdade;
+		// Isenções, faixas de área, acréscimo por categoria e desconto por idade vêm da tabela de alíquotas
+		if (aliquotas.isTributavel(idade, imovel.getCategoria())) {
+			valorIPTU = aliquotas.valorBruto(idade, imovel.getValor(), imovel.getArea(), imovel.getCategoria());
 			
 			valorIPTU = Money.round(valorIPTU);
 		}
@@ -1,9 +1,13 @@
 package main.model;
 
 import java.time.LocalDate;
+import java.util.Objects;
 
 import main.dao.ImovelDAO;
+import main.db.DBConnection;
 import main.db.IPersistent;
+import main.factory.ImovelFactory;
+import main.util.Relogio;
 
 public class Imovel implements IPersistent {
 	
@@ -14,6 +18,19 @@ public class Imovel implements IPersistent {
 	 */
 	private int id = 0; 
 	
+	/*
+	 * Campos alterados desde a carga do BD ou desde a última gravação, um bit por coluna
+	 * Usado por save() para não gravar objetos sem alteração e para gravar só as colunas alteradas
+	 */
+	public static final int INSCRICAO = 1;
+	public static final int DATA_LIBERACAO = 1 << 1;
+	public static final int VALOR = 1 << 2;
+	public static final int AREA = 1 << 3;
+	public static final int CATEGORIA = 1 << 4;
+	public static final int TODOS = INSCRICAO | DATA_LIBERACAO | VALOR | AREA | CATEGORIA;
+	
+	private int alterados = 0;
+	
 	private int inscricao;
 	private LocalDate dataLiberacao;
 	private float valor;
@@ -29,9 +46,15 @@ public class Imovel implements IPersistent {
 		this.area = area;
 		this.categoria = categoria;
 		
+		// Objeto novo: nenhum campo está gravado no BD
+		this.alterados = TODOS;
+		
 		verificaValidade();
 	}
 	
+	/*
+	 * Objeto recuperado do BD: começa sem campos alterados
+	 */
 	public Imovel(ImovelDTO dto) {
 		super();
 		this.id = dto.id;
@@ -49,6 +72,9 @@ public class Imovel implements IPersistent {
 	}
 	
 	public void setInscricao(int inscricao) {
+		if (this.inscricao != inscricao)
+			alterados |= INSCRICAO;
+		
 		this.inscricao = inscricao;
 	}
 	
@@ -57,6 +83,9 @@ public class Imovel implements IPersistent {
 	}
 	
 	public void setDataLiberacao(LocalDate dataLiberacao) {
+		if (!Objects.equals(this.dataLiberacao, dataLiberacao))
+			alterados |= DATA_LIBERACAO;
+		
 		this.dataLiberacao = dataLiberacao;
 	}
 	
@@ -65,6 +94,9 @@ public class Imovel implements IPersistent {
 	}
 	
 	public void setValor(float valor) {
+		if (Float.compare(this.valor, valor) != 0)
+			alterados |= VALOR;
+		
 		this.valor = valor;
 	}
 	
@@ -73,6 +105,9 @@ public class Imovel implements IPersistent {
 	}
 
 	public void setArea(int area) {
+		if (this.area != area)
+			alterados |= AREA;
+		
 		this.area = area;
 	}
 
@@ -81,9 +116,38 @@ public class Imovel implements IPersistent {
 	}
 	
 	public void setCategoria(char categoria) {
+		if (this.categoria != categoria)
+			alterados |= CATEGORIA;
+		
 		this.categoria = categoria;
 	}
 
+	/*
+	 * Retorna os campos alterados (bits INSCRICAO, DATA_LIBERACAO, VALOR, AREA e CATEGORIA)
+	 */
+	public int getAlterados() {
+		return alterados;
+	}
+	
+	public boolean isAlterado() {
+		return alterados != 0;
+	}
+	
+	/*
+	 * Marca o objeto como igual ao BD
+	 * Chamado depois que o objeto foi gravado
+	 */
+	public void limpaAlterados() {
+		alterados = 0;
+	}
+	
+	/*
+	 * Marca os campos como alterados, para que sejam gravados no próximo save()
+	 */
+	public void marcaAlterados(int campos) {
+		alterados |= campos & TODOS;
+	}
+
 	@Override
 	public int getID() {
 		return id;
@@ -97,15 +161,50 @@ public class Imovel implements IPersistent {
 	/*
 	 * Salva o imovel no BD
 	 * Gera um INSERT ou um UPDATE, dependendo do ID do imovel
+	 * O UPDATE grava só os campos alterados e não é feito se nenhum campo foi alterado
+	 * Dentro de DBConnection.inTransaction, o cache só é atualizado depois do commit
 	 */
 	@Override
 	public void save() {
-		if (this.id == 0)
+		int idAnterior = this.id;
+		int alteradosAnterior = this.alterados;
+		
+		if (this.id == 0) {
 			// Se ID == 0 então o objeto ainda não foi inserido no BD -> faz um INSERT
 			this.id = ImovelDAO.insert(this);
-		else
+			
+			if (this.id != 0)
+				limpaAlterados();
+			
+			aoTerminar(() -> ImovelFactory.atualizaCache(this), idAnterior, alteradosAnterior);
+		}
+		else if (isAlterado()) {
 			// Se ID != 0 então o objeto ainda já foi inserido no BD -> faz um UPDATE
-			ImovelDAO.update(this);
+			// Se o UPDATE falhar, o objeto em memória não corresponde mais ao BD e sai do cache
+			if (ImovelDAO.update(this)) {
+				limpaAlterados();
+				aoTerminar(() -> ImovelFactory.atualizaCache(this), idAnterior, alteradosAnterior);
+			}
+			else
+				ImovelFactory.removeDoCache(this.id, this.inscricao);
+		}
+	}
+
+	/*
+	 * Salva o imóvel no BD pela inscrição, sem precisar conhecer o ID
+	 * Insere o imóvel ou atualiza o que já tem a mesma inscrição, em um único comando,
+	 * e passa a usar o ID da linha gravada
+	 */
+	public void saveByInscricao() {
+		int idAnterior = this.id;
+		int alteradosAnterior = this.alterados;
+		int id = ImovelDAO.upsert(this);
+		
+		if (id != 0) {
+			this.id = id;
+			limpaAlterados();
+			aoTerminar(() -> ImovelFactory.atualizaCache(this), idAnterior, alteradosAnterior);
+		}
 	}
 
 	/*
@@ -116,8 +215,29 @@ public class Imovel implements IPersistent {
 	public void delete() {
 		// Só exclui o objeto do BD se ID != 0
 		if (this.id != 0)
-			if (ImovelDAO.delete(this))
+			if (ImovelDAO.delete(this)) {
+				int idAnterior = this.id;
 				this.id = 0;
+				aoTerminar(() -> ImovelFactory.removeDoCache(idAnterior, this.inscricao), idAnterior, this.alterados);
+			}
+	}
+
+	/*
+	 * Fora de uma transação, atualiza o cache na hora
+	 * Dentro de DBConnection.inTransaction, atualiza o cache só depois do commit e, se a transação
+	 * for desfeita, devolve o objeto ao ID e aos campos alterados de antes da gravação,
+	 * como UnidadeDeTrabalho.commit
+	 */
+	private void aoTerminar(Runnable cache, int idAnterior, int alteradosAnterior) {
+		if (!DBConnection.emTransacao()) {
+			cache.run();
+			return;
+		}
+		
+		DBConnection.aoTerminar(cache, () -> {
+			this.id = idAnterior;
+			this.alterados = alteradosAnterior;
+		});
 	}
 
 	
@@ -128,19 +248,33 @@ public class Imovel implements IPersistent {
 	}
 
 	private void verificaValidade() {
+		String erro = validacao(inscricao, dataLiberacao, valor, area, categoria);
+		
+		if (erro != null)
+			throw new IllegalArgumentException(erro);
+	}
+	
+	/*
+	 * Regras de validade dos dados de um imóvel
+	 * Retorna a mensagem do primeiro erro encontrado ou nulo, se os dados forem válidos
+	 * Usado também pela importação, que rejeita a linha sem criar o objeto
+	 */
+	public static String validacao(int inscricao, LocalDate dataLiberacao, float valor, int area, char categoria) {
 		if (inscricao < 10000000 || inscricao > 99999999)
-			throw new IllegalArgumentException("Inscrição inválida");
+			return "Inscrição inválida";
 		
-		if (dataLiberacao.isAfter(LocalDate.now()))
-			throw new IllegalArgumentException("Data de liberação inválida");
+		if (dataLiberacao.isAfter(Relogio.hoje()))
+			return "Data de liberação inválida";
 		
 		if (valor <= 0)
-			throw new IllegalArgumentException("Valor inválido");
+			return "Valor inválido";
 		
 		if (area <= 0)
-			throw new IllegalArgumentException("Área inválida");
+			return "Área inválida";
 		
 		if (categoria < 'A' || categoria > 'Z')
-			throw new IllegalArgumentException("Categoria inválida");
+			return "Categoria inválida";
+		
+		return null;
 	}
 }
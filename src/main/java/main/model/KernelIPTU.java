@@ -0,0 +1,118 @@
+package main.model;
+
+import main.util.Money;
+
+/*
+ * Cálculo do IPTU sobre colunas de tipos primitivos, sem criar objetos por imóvel
+ * Cada posição i dos vetores de entrada descreve um imóvel, e o resultado é gravado
+ * na mesma posição dos vetores de saída informados pelo chamador
+ * Os resultados são idênticos, bit a bit, aos de IPTU.calculaValor e de Parcelamento
+ */
+public class KernelIPTU {
+
+	// Constantes usadas por LocalDate.ofEpochDay
+	private static final long DIAS_POR_CICLO = 146097;
+	private static final long DIAS_0000_A_1970 = (DIAS_POR_CICLO * 5L) - (30L * 365L + 7L);
+
+	/*
+	 * Calcula o IPTU das posições [inicio, fim) dos vetores com as alíquotas vigentes em anoReferencia
+	 * A idade de cada imóvel é anoReferencia menos o ano de dtLiberacao (dias desde 1970-01-01)
+	 */
+	public static void calcula(float[] valor, int[] area, char[] categoria, long[] dtLiberacao, int inicio, int fim,
+			int anoReferencia, float percDescontoVista, float percJurosParcelamento,
+			float[] valorIPTU, float[] valorAVista, int[] numParcelas, float[] valorParcela) {
+
+		calcula(valor, area, categoria, dtLiberacao, inicio, fim, anoReferencia, TabelaAliquotas.get(anoReferencia),
+				percDescontoVista, percJurosParcelamento, valorIPTU, valorAVista, numParcelas, valorParcela);
+	}
+
+	/*
+	 * Calcula o IPTU das posições [inicio, fim) dos vetores com a tabela de alíquotas informada
+	 */
+	public static void calcula(float[] valor, int[] area, char[] categoria, long[] dtLiberacao, int inicio, int fim,
+			int anoReferencia, TabelaAliquotas aliquotas, float percDescontoVista, float percJurosParcelamento,
+			float[] valorIPTU, float[] valorAVista, int[] numParcelas, float[] valorParcela) {
+
+		if (percDescontoVista < 0 || percDescontoVista > 100)
+			throw new IllegalArgumentException("Desconto para pagamento à vista inválido");
+
+		if (percJurosParcelamento < 0)
+			throw new IllegalArgumentException("Juros do parcelamento inválido");
+
+		// Mesmos fatores de juros calculados por Parcelamento para 3, 5 e 10 parcelas
+		double fator3 = Parcelamento.fatorJuros(percJurosParcelamento, 3);
+		double fator5 = Parcelamento.fatorJuros(percJurosParcelamento, 5);
+		double fator10 = Parcelamento.fatorJuros(percJurosParcelamento, 10);
+
+		for (int i = inicio; i < fim; i++) {
+			float v = 0;
+
+			int idade = anoReferencia - ano(dtLiberacao[i]);
+			char c = categoria[i];
+
+			if (aliquotas.isTributavel(idade, c))
+				v = Money.round(aliquotas.valorBruto(idade, valor[i], area[i], c));
+
+			valorIPTU[i] = v;
+			valorAVista[i] = Money.round(v * (1 - percDescontoVista / 100));
+
+			// Parcelamento
+			int n;
+			double fator;
+
+			if (v == 0) {
+				n = 0;
+				fator = 1;
+			}
+			else if (v <= 300) {
+				n = 3;
+				fator = fator3;
+			}
+			else if (v <= 1000) {
+				n = 5;
+				fator = fator5;
+			}
+			else {
+				n = 10;
+				fator = fator10;
+			}
+
+			numParcelas[i] = n;
+			valorParcela[i] = Money.round((float) ((v * fator) / n));
+		}
+	}
+
+	/*
+	 * Retorna o ano da data informada em dias desde 1970-01-01
+	 * Mesmo algoritmo de LocalDate.ofEpochDay, sem criar o LocalDate
+	 */
+	public static int ano(long epochDay) {
+		long zeroDay = epochDay + DIAS_0000_A_1970;
+
+		// Ajusta para um ano que começa em março, para que o dia extra do ano bissexto fique no fim
+		zeroDay -= 60;
+
+		long ajuste = 0;
+
+		if (zeroDay < 0) {
+			long ciclos = (zeroDay + 1) / DIAS_POR_CICLO - 1;
+			ajuste = ciclos * 400;
+			zeroDay += -ciclos * DIAS_POR_CICLO;
+		}
+
+		long ano = (400 * zeroDay + 591) / DIAS_POR_CICLO;
+		long diaDoAno = zeroDay - (365 * ano + ano / 4 - ano / 100 + ano / 400);
+
+		if (diaDoAno < 0) {
+			ano--;
+			diaDoAno = zeroDay - (365 * ano + ano / 4 - ano / 100 + ano / 400);
+		}
+
+		ano += ajuste;
+
+		// Janeiro e fevereiro pertencem ao ano seguinte do calendário começado em março
+		int mesDesdeMarco = ((int) diaDoAno * 5 + 2) / 153;
+
+		return (int) (ano + mesDesdeMarco / 10);
+	}
+}
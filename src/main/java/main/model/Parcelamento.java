@@ -1,9 +1,38 @@
 package main.model;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import main.util.Money;
 
 public class Parcelamento {
 
+	// Maior quantidade de parcelas
+	private static final int MAX_PARCELAS = 10;
+	
+	// Limite de taxas de juros memorizadas; ao ser atingido, a memória é esvaziada
+	private static final int MAX_TAXAS = 64;
+	
+	/*
+	 * Fatores de juros de uma taxa, indexados pela quantidade de parcelas
+	 */
+	private static class Fatores {
+		final float percJuros;
+		final double[] porParcelas = new double[MAX_PARCELAS + 1];
+		
+		Fatores(float percJuros) {
+			this.percJuros = percJuros;
+			
+			for (int n = 0; n <= MAX_PARCELAS; n++)
+				porParcelas[n] = Math.pow(1 + percJuros / 100, n / 12f);
+		}
+	}
+	
+	// Fatores por taxa de juros (bits do float), compartilhados por todas as threads
+	private static final ConcurrentHashMap<Integer, Fatores> fatores = new ConcurrentHashMap<>();
+	
+	// Última taxa usada: em um cálculo em lote, a taxa costuma ser sempre a mesma
+	private static volatile Fatores ultimos = new Fatores(0f);
+	
 	private int numParcelas;
 	private float valorParcela;
 	
@@ -26,11 +55,32 @@ public class Parcelamento {
 			numParcelas = 10;
 		
 		// Calcula o valor da parcela e arredonda
-		valorParcela = (float) ((valorIPTU * Math.pow(1 + percJurosParcelameto / 100, numParcelas / 12f)) / numParcelas);
+		valorParcela = (float) ((valorIPTU * fatorJuros(percJurosParcelameto, numParcelas)) / numParcelas);
 		
 		valorParcela = Money.round(valorParcela);
 	}
 
+	/*
+	 * Fator de juros do parcelamento: (1 + percJuros/100) ^ (numParcelas/12)
+	 * Calculado uma vez por taxa e guardado, com resultado idêntico ao do Math.pow
+	 */
+	public static double fatorJuros(float percJuros, int numParcelas) {
+		if (numParcelas < 0 || numParcelas > MAX_PARCELAS)
+			return Math.pow(1 + percJuros / 100, numParcelas / 12f);
+		
+		Fatores f = ultimos;
+		
+		if (Float.floatToIntBits(f.percJuros) != Float.floatToIntBits(percJuros)) {
+			if (fatores.size() >= MAX_TAXAS)
+				fatores.clear();
+			
+			f = fatores.computeIfAbsent(Float.floatToIntBits(percJuros), bits -> new Fatores(percJuros));
+			ultimos = f;
+		}
+		
+		return f.porParcelas[numParcelas];
+	}
+	
 	public int getNumParcelas() {
 		return numParcelas;
 	}
@@ -0,0 +1,212 @@
+package main.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import main.dao.AliquotaDAO;
+
+/*
+ * Alíquotas do IPTU de um exercício, guardadas em vetores de tipos primitivos
+ * Os vetores por categoria são indexados por (categoria - 'A')
+ * O fator de idade é indexado pela faixa de idade (idade / passoIdade)
+ */
+public class TabelaAliquotas {
+
+	private static final int CATEGORIAS = 'Z' - 'A' + 1;
+
+	/*
+	 * Alíquotas vigentes antes da tabela por exercício
+	 * Usada quando nenhuma tabela foi carregada do BD
+	 */
+	public static final TabelaAliquotas PADRAO = padrao();
+
+	// Tabelas carregadas, por exercício de início da vigência
+	private static final Map<Integer, TabelaAliquotas> tabelas = new ConcurrentHashMap<>();
+
+	private final int exercicio;
+	private final int idadeMaxima;
+	private final int faixaArea;
+	private final float percFaixaArea;
+	private final int passoIdade;
+	private final float descontoPassoIdade;
+
+	private final float[] multiplicador = new float[CATEGORIAS];
+	private final boolean[] isenta = new boolean[CATEGORIAS];
+	private final float[] fatorIdade;
+
+	/*
+	 * exercicio: primeiro exercício em que a tabela vale
+	 * idadeMaxima: imóveis com essa idade ou mais não pagam IPTU
+	 * faixaArea, percFaixaArea: percentual do IPTU por faixa de área (ou fração) do imóvel
+	 * passoIdade, descontoPassoIdade: desconto por idade a cada passoIdade anos completos
+	 * multiplicador, isenta: acréscimo e isenção por categoria, indexados por (categoria - 'A')
+	 */
+	public TabelaAliquotas(int exercicio, int idadeMaxima, int faixaArea, float percFaixaArea, int passoIdade,
+			float descontoPassoIdade, float[] multiplicador, boolean[] isenta) {
+
+		if (idadeMaxima <= 0 || faixaArea <= 0 || passoIdade <= 0)
+			throw new IllegalArgumentException("Tabela de alíquotas inválida");
+
+		if (multiplicador.length != CATEGORIAS || isenta.length != CATEGORIAS)
+			throw new IllegalArgumentException("Tabela de alíquotas deve ter as categorias de A a Z");
+
+		this.exercicio = exercicio;
+		this.idadeMaxima = idadeMaxima;
+		this.faixaArea = faixaArea;
+		this.percFaixaArea = percFaixaArea;
+		this.passoIdade = passoIdade;
+		this.descontoPassoIdade = descontoPassoIdade;
+
+		System.arraycopy(multiplicador, 0, this.multiplicador, 0, CATEGORIAS);
+		System.arraycopy(isenta, 0, this.isenta, 0, CATEGORIAS);
+
+		// Um fator por faixa de idade tributável
+		fatorIdade = new float[(idadeMaxima - 1) / passoIdade + 1];
+
+		for (int faixa = 0; faixa < fatorIdade.length; faixa++)
+			fatorIdade[faixa] = 1 - faixa * descontoPassoIdade;
+	}
+
+	/*
+	 * Retorna a tabela vigente no exercício: a carregada com o maior exercício menor ou igual
+	 * ao informado, ou a tabela PADRAO se nenhuma foi carregada
+	 * Não acessa o BD: as tabelas do BD valem depois de carrega (ex.: CalculoIPTULote.doBD)
+	 */
+	public static TabelaAliquotas get(int exercicio) {
+		TabelaAliquotas tabela = tabelas.get(exercicio);
+
+		if (tabela != null)
+			return tabela;
+
+		TabelaAliquotas vigente = PADRAO;
+
+		for (TabelaAliquotas t : tabelas.values())
+			if (t.exercicio <= exercicio && (vigente == PADRAO || t.exercicio > vigente.exercicio))
+				vigente = t;
+
+		return vigente;
+	}
+
+	/*
+	 * Carrega do BD a tabela vigente no exercício e a registra
+	 * Se o BD não tiver tabela para o exercício, retorna a tabela PADRAO
+	 */
+	public static TabelaAliquotas carrega(int exercicio) {
+		TabelaAliquotas tabela = AliquotaDAO.getByExercicio(exercicio);
+
+		if (tabela == null)
+			return PADRAO;
+
+		registra(tabela);
+		return tabela;
+	}
+
+	/*
+	 * Registra a tabela para ser usada a partir do seu exercício
+	 */
+	public static void registra(TabelaAliquotas tabela) {
+		tabelas.put(tabela.exercicio, tabela);
+	}
+
+	/*
+	 * Descarta as tabelas registradas
+	 */
+	public static void limpa() {
+		tabelas.clear();
+	}
+
+	/*
+	 * Verifica se um imóvel com a idade e a categoria informadas paga IPTU
+	 */
+	public boolean isTributavel(int idade, char categoria) {
+		return idade < idadeMaxima && !isenta[categoria - 'A'];
+	}
+
+	/*
+	 * Calcula o valor do IPTU antes do arredondamento
+	 * Deve ser chamado apenas para imóveis tributáveis
+	 */
+	public float valorBruto(int idade, float valor, int area, char categoria) {
+		// Calcula o percentual do IPTU
+		int faixas = area / faixaArea + 1;
+
+		if (area % faixaArea == 0)
+			faixas--;
+
+		float percIPTU = faixas * percFaixaArea;
+
+		// Calcula valor do IPTU
+		float valorIPTU = valor * (percIPTU / 100);
+
+		// Calcula acréscimo por categoria
+		valorIPTU *= multiplicador[categoria - 'A'];
+
+		// Calcula desconto por idade
+		valorIPTU *= fatorIdade(idade);
+
+		return valorIPTU;
+	}
+
+	/*
+	 * Fator (1 - desconto) da idade
+	 * Idades negativas (imóvel liberado depois do exercício) ficam fora do vetor
+	 */
+	private float fatorIdade(int idade) {
+		int faixa = idade / passoIdade;
+
+		if (faixa >= 0 && faixa < fatorIdade.length)
+			return fatorIdade[faixa];
+
+		return 1 - faixa * descontoPassoIdade;
+	}
+
+	public int getExercicio() {
+		return exercicio;
+	}
+
+	public int getIdadeMaxima() {
+		return idadeMaxima;
+	}
+
+	public int getFaixaArea() {
+		return faixaArea;
+	}
+
+	public float getPercFaixaArea() {
+		return percFaixaArea;
+	}
+
+	public int getPassoIdade() {
+		return passoIdade;
+	}
+
+	public float getDescontoPassoIdade() {
+		return descontoPassoIdade;
+	}
+
+	public float getMultiplicador(char categoria) {
+		return multiplicador[categoria - 'A'];
+	}
+
+	public boolean isIsenta(char categoria) {
+		return isenta[categoria - 'A'];
+	}
+
+	/*
+	 * Regras originais do cálculo: categorias A, B e C com acréscimo, categoria Z isenta,
+	 * imóveis com 170 anos ou mais isentos, 0,05% a cada 20 m² e 3% de desconto a cada 5 anos
+	 */
+	private static TabelaAliquotas padrao() {
+		float[] multiplicador = new float[CATEGORIAS];
+		boolean[] isenta = new boolean[CATEGORIAS];
+
+		java.util.Arrays.fill(multiplicador, 1f);
+
+		multiplicador['A' - 'A'] = 1.1f;
+		multiplicador['B' - 'A'] = 1.07f;
+		multiplicador['C' - 'A'] = 1.05f;
+		isenta['Z' - 'A'] = true;
+
+		return new TabelaAliquotas(0, 170, 20, 0.05f, 5, 0.03f, multiplicador, isenta);
+	}
+}
@@ -17,4 +17,18 @@ public class Money  {
 	public static float round(float valor) {
 		return (((long) (valor * 1000) + 5) / 10) / 100f;
 	}
+	
+	/*
+	 * Converte o valor em reais para centavos, arredondando para o centavo mais próximo
+	 */
+	public static long toCentavos(float valor) {
+		return Math.round(valor * 100d);
+	}
+	
+	/*
+	 * Converte o valor em centavos para reais
+	 */
+	public static float fromCentavos(long centavos) {
+		return centavos / 100f;
+	}
 }
@@ -0,0 +1,68 @@
+package main.util;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/*
+ * Relógio usado pelo sistema para obter a data de hoje e o exercício (ano) corrente
+ * Por padrão usa o relógio do sistema, mas pode receber outro Clock ou ter a data fixada,
+ * para que todos os cálculos de uma execução usem a mesma data de referência
+ */
+public class Relogio {
+
+	private static volatile Clock clock = Clock.systemDefaultZone();
+
+	// Data fixada por fixa(), para não consultar o relógio a cada chamada
+	private static volatile LocalDate dataFixa = null;
+
+	/*
+	 * Retorna a data de hoje segundo o relógio configurado
+	 */
+	public static LocalDate hoje() {
+		LocalDate data = dataFixa;
+		return data != null ? data : LocalDate.now(clock);
+	}
+
+	/*
+	 * Retorna o exercício (ano) corrente segundo o relógio configurado
+	 */
+	public static int exercicio() {
+		return hoje().getYear();
+	}
+
+	public static Clock get() {
+		return clock;
+	}
+
+	/*
+	 * Passa a usar o relógio informado
+	 */
+	public static void set(Clock clock) {
+		if (clock == null)
+			throw new IllegalArgumentException("Relógio inválido");
+
+		Relogio.dataFixa = null;
+		Relogio.clock = clock;
+	}
+
+	/*
+	 * Fixa a data de hoje até que set() ou libera() seja chamado
+	 */
+	public static void fixa(LocalDate data) {
+		if (data == null)
+			throw new IllegalArgumentException("Data inválida");
+
+		ZoneId zona = ZoneId.systemDefault();
+
+		Relogio.clock = Clock.fixed(data.atStartOfDay(zona).toInstant(), zona);
+		Relogio.dataFixa = data;
+	}
+
+	/*
+	 * Volta a usar o relógio do sistema
+	 */
+	public static void libera() {
+		set(Clock.systemDefaultZone());
+	}
+}
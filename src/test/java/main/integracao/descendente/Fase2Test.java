@@ -93,8 +93,8 @@ public class Fase2Test {
         when(rs.next()).thenReturn(true); // Simula que encontrou resultado
         when(rs.getInt("id")).thenReturn(1);
         when(rs.getInt("inscricao")).thenReturn(10000000);
-        when(rs.getString("dt_liberacao")).thenReturn("20250101");
-        when(rs.getFloat("valor")).thenReturn(100000f);
+        when(rs.getLong("dt_liberacao")).thenReturn(LocalDate.of(2025, 1, 1).toEpochDay());
+        when(rs.getLong("valor")).thenReturn(10000000L);
         when(rs.getInt("area")).thenReturn(60);
         when(rs.getString("categoria")).thenReturn("A");
 
@@ -141,8 +141,8 @@ public class Fase2Test {
         when(rs.next()).thenReturn(true); // Simula que encontrou resultado
         when(rs.getInt("id")).thenReturn(1);
         when(rs.getInt("inscricao")).thenReturn(10000000);
-        when(rs.getString("dt_liberacao")).thenReturn("20250101");
-        when(rs.getFloat("valor")).thenReturn(100000f);
+        when(rs.getLong("dt_liberacao")).thenReturn(LocalDate.of(2025, 1, 1).toEpochDay());
+        when(rs.getLong("valor")).thenReturn(10000000L);
         when(rs.getInt("area")).thenReturn(60);
         when(rs.getString("categoria")).thenReturn("A");
 
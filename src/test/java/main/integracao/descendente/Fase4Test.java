@@ -1,5 +1,6 @@
 package main.integracao.descendente;
 import main.db.DBConnection;
+import main.db.Migracao;
 import main.factory.ImovelFactory;
 import main.model.*;
 import org.junit.jupiter.api.AfterAll;
@@ -23,16 +24,8 @@ import static org.junit.jupiter.api.Assertions.*;
             DBConnection.set("org.sqlite.JDBC", connectionUrl);
             setupConnection = DriverManager.getConnection(connectionUrl);
 
-            try (Statement stm = setupConnection.createStatement()) {
-                stm.execute("CREATE TABLE imovel (" +
-                        "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                        "inscricao INTEGER NOT NULL UNIQUE," +
-                        "dt_liberacao TEXT NOT NULL," +
-                        "valor REAL NOT NULL," +
-                        "area INTEGER NOT NULL," +
-                        "categoria TEXT NOT NULL" +
-                        ")");
-            }
+            // Cria a tabela imovel com o esquema atual
+            Migracao.atualiza(setupConnection);
         }
 
         @BeforeEach
@@ -102,7 +95,7 @@ import static org.junit.jupiter.api.Assertions.*;
             Connection conn = DBConnection.get();
             assertNotNull(conn);
             try (Statement stm = conn.createStatement()) {
-                stm.execute("INSERT INTO imovel (id, inscricao, dt_liberacao, valor, area, categoria) VALUES (1, 10000000, '20240115', 150000, 70, 'B')");
+                stm.execute("INSERT INTO imovel (id, inscricao, dt_liberacao, valor, area, categoria) VALUES (1, 10000000, 19737, 15000000, 70, 'B')");
             }
 
             Imovel imovel = ImovelFactory.getByID(1);
@@ -125,7 +118,7 @@ import static org.junit.jupiter.api.Assertions.*;
             Connection conn = DBConnection.get();
             assertNotNull(conn);
             try (Statement stm = conn.createStatement()) {
-                stm.execute("INSERT INTO imovel (inscricao, dt_liberacao, valor, area, categoria) VALUES (12345678, '20231020', 250000, 120, 'C')");
+                stm.execute("INSERT INTO imovel (inscricao, dt_liberacao, valor, area, categoria) VALUES (12345678, 19650, 25000000, 120, 'C')");
             }
 
             Imovel imovel = ImovelFactory.getByInscricao(12345678);
@@ -147,7 +140,7 @@ import static org.junit.jupiter.api.Assertions.*;
             Connection conn = DBConnection.get();
             assertNotNull(conn);
             try (Statement stm = conn.createStatement()) {
-                stm.execute("INSERT INTO imovel (id, inscricao, dt_liberacao, valor, area, categoria) VALUES (10, 40000000, '20240301', 800000, 300, 'F')");
+                stm.execute("INSERT INTO imovel (id, inscricao, dt_liberacao, valor, area, categoria) VALUES (10, 40000000, 19783, 80000000, 300, 'F')");
             }
             Imovel imovel = ImovelFactory.getByID(10);
             assertNotNull(imovel);
@@ -182,7 +175,7 @@ import static org.junit.jupiter.api.Assertions.*;
             Connection conn = DBConnection.get();
             assertNotNull(conn);
             try (Statement stm = conn.createStatement()) {
-                stm.execute("INSERT INTO imovel (id, inscricao, dt_liberacao, valor, area, categoria) VALUES (5, 30000000, '20240201', 500000, 200, 'E')");
+                stm.execute("INSERT INTO imovel (id, inscricao, dt_liberacao, valor, area, categoria) VALUES (5, 30000000, 19754, 50000000, 200, 'E')");
             }
             Imovel imovel = ImovelFactory.getByID(5);
             assertNotNull(imovel);
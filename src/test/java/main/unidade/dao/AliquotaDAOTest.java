@@ -0,0 +1,108 @@
+package main.unidade.dao;
+
+import main.dao.AliquotaDAO;
+import main.db.DBConnection;
+import main.db.Migracao;
+import main.model.TabelaAliquotas;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+class AliquotaDAOTest {
+
+    private static Connection bdMigrado() throws Exception {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        Migracao.atualiza(conn);
+        return conn;
+    }
+
+    @Test
+    void testCarregaTabelaPadraoDaMigracao() throws Exception {
+        Connection conn = bdMigrado();
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            TabelaAliquotas t = AliquotaDAO.getByExercicio(2026);
+            TabelaAliquotas p = TabelaAliquotas.PADRAO;
+
+            Assertions.assertEquals(0, t.getExercicio());
+            Assertions.assertEquals(p.getIdadeMaxima(), t.getIdadeMaxima());
+            Assertions.assertEquals(p.getFaixaArea(), t.getFaixaArea());
+            Assertions.assertEquals(p.getPercFaixaArea(), t.getPercFaixaArea());
+            Assertions.assertEquals(p.getPassoIdade(), t.getPassoIdade());
+            Assertions.assertEquals(p.getDescontoPassoIdade(), t.getDescontoPassoIdade());
+
+            for (char c = 'A'; c <= 'Z'; c++) {
+                Assertions.assertEquals(p.getMultiplicador(c), t.getMultiplicador(c));
+                Assertions.assertEquals(p.isIsenta(c), t.isIsenta(c));
+            }
+        }
+        finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    void testCarregaTabelaVigenteNoExercicio() throws Exception {
+        Connection conn = bdMigrado();
+
+        try (Statement stm = conn.createStatement()) {
+            stm.execute("insert into aliquota_exercicio values (2027, 150, 25, 0.06, 10, 0.02)");
+            stm.execute("insert into aliquota_categoria values (2027, 'D', 1.2, 0), (2027, 'Y', 1, 1)");
+        }
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            TabelaAliquotas t = AliquotaDAO.getByExercicio(2030);
+
+            Assertions.assertEquals(2027, t.getExercicio());
+            Assertions.assertEquals(150, t.getIdadeMaxima());
+            Assertions.assertEquals(25, t.getFaixaArea());
+            Assertions.assertEquals(0.06f, t.getPercFaixaArea());
+            Assertions.assertEquals(10, t.getPassoIdade());
+            Assertions.assertEquals(0.02f, t.getDescontoPassoIdade());
+            Assertions.assertEquals(1.2f, t.getMultiplicador('D'));
+            Assertions.assertEquals(1f, t.getMultiplicador('A'));
+            Assertions.assertTrue(t.isIsenta('Y'));
+            Assertions.assertFalse(t.isIsenta('Z'));
+        }
+        finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    void testSemTabelaNoExercicio() throws Exception {
+        Connection conn = bdMigrado();
+
+        try (Statement stm = conn.createStatement()) {
+            stm.execute("delete from aliquota_categoria");
+            stm.execute("delete from aliquota_exercicio");
+        }
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Assertions.assertNull(AliquotaDAO.getByExercicio(2026));
+        }
+        finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    void testGetByExercicioCatch() {
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenThrow(new RuntimeException("DB error"));
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> AliquotaDAO.getByExercicio(2026));
+        }
+    }
+}
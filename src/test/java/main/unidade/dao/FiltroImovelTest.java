@@ -0,0 +1,147 @@
+package main.unidade.dao;
+
+import main.dao.FiltroImovel;
+import main.dao.ImovelDAO;
+import main.dao.Pagina;
+import main.db.DBConnection;
+import main.db.Migracao;
+import main.model.Imovel;
+import main.model.ImovelDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class FiltroImovelTest {
+
+    private File arquivo;
+
+    @BeforeEach
+    void criaBD() throws Exception {
+        arquivo = File.createTempFile("iptu-filtro", ".db");
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + arquivo.getPath())) {
+            Migracao.atualiza(conn);
+        }
+
+        DBConnection.set("org.sqlite.JDBC", "jdbc:sqlite:" + arquivo.getPath());
+
+        // Valores repetidos a cada 10 imóveis, para que o ID desempate a ordenação
+        List<Imovel> imoveis = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++)
+            imoveis.add(new Imovel(10000000 + i, LocalDate.of(1950 + i % 70, 1, 1), 1000f + (i % 100) * 10, 20 + i % 300,
+                    (char) ('A' + i % 5)));
+
+        ImovelDAO.insertAll(imoveis);
+    }
+
+    @AfterEach
+    void apagaBD() {
+        DBConnection.close();
+        arquivo.delete();
+    }
+
+    private List<ImovelDTO> todasAsPaginas(FiltroImovel filtro, int limite) {
+        List<ImovelDTO> lidos = new ArrayList<>();
+        Pagina pagina = ImovelDAO.busca(filtro, limite);
+        lidos.addAll(pagina.imoveis);
+
+        while (pagina.temProxima) {
+            pagina = ImovelDAO.busca(filtro, pagina, limite);
+            Assertions.assertTrue(pagina.getTamanho() <= limite);
+            lidos.addAll(pagina.imoveis);
+        }
+
+        return lidos;
+    }
+
+    private List<ImovelDTO> todos(FiltroImovel filtro) {
+        try (Stream<ImovelDTO> s = ImovelDAO.stream(filtro, 100)) {
+            return s.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testPaginasPercorremTodaAConsulta() {
+        FiltroImovel filtro = FiltroImovel.TODOS.comCategorias('A', 'C').comValor(1200f, 1500f);
+
+        List<ImovelDTO> lidos = todasAsPaginas(filtro, 7);
+
+        Assertions.assertEquals(ImovelDAO.conta(filtro), lidos.size());
+        Assertions.assertFalse(lidos.isEmpty());
+
+        int idAnterior = 0;
+        for (ImovelDTO dto : lidos) {
+            Assertions.assertTrue(dto.categoria == 'A' || dto.categoria == 'C');
+            Assertions.assertTrue(dto.valor >= 1200f && dto.valor <= 1500f);
+            Assertions.assertTrue(dto.id > idAnterior);
+            idAnterior = dto.id;
+        }
+    }
+
+    @Test
+    void testOrdenacaoDecrescenteComEmpates() {
+        FiltroImovel filtro = FiltroImovel.TODOS.comArea(50, 150).ordenadoPor(FiltroImovel.Ordem.VALOR, true);
+
+        List<ImovelDTO> lidos = todasAsPaginas(filtro, 10);
+
+        Assertions.assertEquals(todos(filtro).stream().map(d -> d.id).collect(Collectors.toList()),
+                lidos.stream().map(d -> d.id).collect(Collectors.toList()));
+
+        for (int i = 1; i < lidos.size(); i++) {
+            ImovelDTO a = lidos.get(i - 1), b = lidos.get(i);
+            Assertions.assertTrue(a.valor > b.valor || (a.valor == b.valor && a.id > b.id));
+        }
+    }
+
+    @Test
+    void testFiltroPorDataDeLiberacao() {
+        FiltroImovel filtro = FiltroImovel.TODOS.comDataLiberacao(LocalDate.of(2000, 1, 1), null)
+                .ordenadoPor(FiltroImovel.Ordem.DT_LIBERACAO, false);
+
+        List<ImovelDTO> lidos = todasAsPaginas(filtro, 33);
+
+        // 20 anos (2000 a 2019) de cada ciclo de 70 imóveis
+        Assertions.assertEquals(280, lidos.size());
+        Assertions.assertEquals(LocalDate.of(2000, 1, 1), lidos.get(0).dataLiberacao);
+        Assertions.assertEquals(LocalDate.of(2019, 1, 1), lidos.get(lidos.size() - 1).dataLiberacao);
+    }
+
+    @Test
+    void testUltimaPaginaExata() {
+        FiltroImovel filtro = FiltroImovel.TODOS.comCategorias('B');
+
+        Pagina pagina = ImovelDAO.busca(filtro, 200);
+        Assertions.assertEquals(200, pagina.getTamanho());
+        Assertions.assertFalse(pagina.temProxima);
+        Assertions.assertEquals(pagina.ultimoID, pagina.ultimaChave);
+    }
+
+    @Test
+    void testSemResultados() {
+        Pagina pagina = ImovelDAO.busca(FiltroImovel.TODOS.comCategorias('Z'), 10);
+        Assertions.assertTrue(pagina.isVazia());
+        Assertions.assertFalse(pagina.temProxima);
+        Assertions.assertEquals(0, ImovelDAO.conta(FiltroImovel.TODOS.comCategorias('Z')));
+    }
+
+    @Test
+    void testCriteriosInvalidos() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FiltroImovel.TODOS.comArea(10, 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FiltroImovel.TODOS.comValor(10f, 5f));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> FiltroImovel.TODOS.comDataLiberacao(LocalDate.of(2000, 1, 2), LocalDate.of(2000, 1, 1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FiltroImovel.TODOS.ordenadoPor(null, false));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.busca(FiltroImovel.TODOS, 0));
+    }
+}
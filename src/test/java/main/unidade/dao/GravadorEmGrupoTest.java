@@ -0,0 +1,158 @@
+package main.unidade.dao;
+
+import main.dao.GravadorEmGrupo;
+import main.dao.ImovelDAO;
+import main.db.DBConnection;
+import main.db.Migracao;
+import main.db.PerfilSQLite;
+import main.model.Imovel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class GravadorEmGrupoTest {
+
+    private File arquivo;
+
+    @BeforeEach
+    void criaBD() throws Exception {
+        arquivo = File.createTempFile("iptu-grupo", ".db");
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + arquivo.getPath())) {
+            Migracao.atualiza(conn);
+        }
+
+        // WAL: as leituras das outras threads não esperam pelo commit do grupo
+        DBConnection.set("org.sqlite.JDBC", "jdbc:sqlite:" + arquivo.getPath(), PerfilSQLite.LEITURA);
+    }
+
+    @AfterEach
+    void apagaBD() {
+        ImovelDAO.setGravacaoEmGrupo(0, 0);
+        DBConnection.close();
+        DBConnection.setPerfil(PerfilSQLite.PADRAO);
+        arquivo.delete();
+    }
+
+    private static int contaImoveis() throws Exception {
+        try (Connection conn = DBConnection.get();
+             Statement stm = conn.createStatement();
+             ResultSet rs = stm.executeQuery("select count(*) from imovel")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void testGravacoesConcorrentesEmPoucasTransacoes() throws Exception {
+        ImovelDAO.setGravacaoEmGrupo(50, 64);
+
+        int threads = 8;
+        int porThread = 25;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int base = 10000000 + t * porThread;
+
+            futuros.add(pool.submit(() -> {
+                largada.await();
+
+                // Cada insert só retorna depois do commit
+                for (int i = 0; i < porThread; i++) {
+                    ImovelDAO.insert(new Imovel(base + i, LocalDate.of(2020, 1, 1), 1000f, 100, 'A'));
+                    Assertions.assertNotEquals(0, ImovelDAO.getByInscricao(base + i).id);
+                }
+
+                return null;
+            }));
+        }
+
+        largada.countDown();
+
+        for (Future<?> f : futuros)
+            f.get();
+
+        pool.shutdown();
+
+        Assertions.assertEquals(threads * porThread, contaImoveis());
+
+        GravadorEmGrupo g = ImovelDAO.getGravadorEmGrupo();
+        Assertions.assertEquals(threads * porThread, g.getOperacoes());
+        Assertions.assertTrue(g.getTransacoes() < threads * porThread);
+    }
+
+    @Test
+    void testFalhaDeUmaGravacaoNaoAfetaOGrupo() throws Exception {
+        ImovelDAO.setGravacaoEmGrupo(10, 16);
+
+        Imovel imovel = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+        ImovelDAO.insert(imovel);
+
+        // Inscrição duplicada
+        Assertions.assertEquals(0, ImovelDAO.insert(new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A')));
+        Assertions.assertEquals(1, contaImoveis());
+
+        int id = ImovelDAO.getByInscricao(12345678).id;
+        imovel.setID(id);
+        imovel.limpaAlterados();
+        imovel.setArea(200);
+        Assertions.assertTrue(ImovelDAO.update(imovel));
+        Assertions.assertEquals(200, ImovelDAO.getByID(id).area);
+
+        Assertions.assertTrue(ImovelDAO.delete(imovel));
+        Assertions.assertEquals(0, contaImoveis());
+    }
+
+    @Test
+    void testDesligarEncerraGravador() throws Exception {
+        ImovelDAO.setGravacaoEmGrupo(1000, 1000);
+        GravadorEmGrupo g = ImovelDAO.getGravadorEmGrupo();
+
+        ImovelDAO.insert(new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A'));
+        Assertions.assertEquals(1, contaImoveis());
+
+        ImovelDAO.setGravacaoEmGrupo(0, 0);
+        Assertions.assertNull(ImovelDAO.getGravadorEmGrupo());
+        Assertions.assertEquals(1, g.getTransacoes());
+    }
+
+    @Test
+    void testEscritoraInterrompidaRecusaNovasGravacoes() throws Exception {
+        ImovelDAO.setGravacaoEmGrupo(1000, 1000);
+
+        Thread escritora = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("gravador-em-grupo") && t.isAlive())
+                .findFirst().orElseThrow();
+
+        escritora.interrupt();
+        escritora.join(5000);
+        Assertions.assertFalse(escritora.isAlive());
+
+        // Sem a thread escritora, a gravação falha na hora em vez de esperar para sempre
+        Assertions.assertTimeoutPreemptively(java.time.Duration.ofSeconds(5), () ->
+                Assertions.assertEquals(0, ImovelDAO.insert(new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A'))));
+        Assertions.assertEquals(0, contaImoveis());
+    }
+
+    @Test
+    void testConfiguracaoInvalida() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.setGravacaoEmGrupo(10, -1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new GravadorEmGrupo(-1, 10));
+    }
+}
@@ -1,10 +1,14 @@
 package main.unidade.dao;
 
 import main.dao.ImovelDAO;
+import main.dao.Pagina;
+import main.dao.ResultadoLote;
 import main.db.DBConnection;
+import main.factory.ImovelFactory;
 import main.model.Imovel;
 import main.model.ImovelDTO;
 import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
@@ -12,6 +16,10 @@ import org.mockito.Mockito;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.mockito.Mockito.when;
 
@@ -37,8 +45,8 @@ class ImovelDAOTest {
         when(rs.next()).thenReturn(true);
         when(rs.getInt("id")).thenReturn(1);
         when(rs.getInt("inscricao")).thenReturn(12345678);
-        when(rs.getString("dt_liberacao")).thenReturn("20200101");
-        when(rs.getFloat("valor")).thenReturn(1000f);
+        when(rs.getLong("dt_liberacao")).thenReturn(LocalDate.of(2020, 1, 1).toEpochDay());
+        when(rs.getLong("valor")).thenReturn(100000L);
         when(rs.getInt("area")).thenReturn(100);
         when(rs.getString("categoria")).thenReturn("A");
 
@@ -211,8 +219,8 @@ class ImovelDAOTest {
         when(rs.next()).thenReturn(true);
         when(rs.getInt("id")).thenReturn(2);
         when(rs.getInt("inscricao")).thenReturn(87654321);
-        when(rs.getString("dt_liberacao")).thenReturn("20221231");
-        when(rs.getFloat("valor")).thenReturn(2000f);
+        when(rs.getLong("dt_liberacao")).thenReturn(LocalDate.of(2022, 12, 31).toEpochDay());
+        when(rs.getLong("valor")).thenReturn(200000L);
         when(rs.getInt("area")).thenReturn(80);
         when(rs.getString("categoria")).thenReturn("B");
 
@@ -236,4 +244,636 @@ class ImovelDAOTest {
             Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.getByInscricao(12345678));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testInsertAllEmLotes() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        PreparedStatement stmID = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.startsWith("insert"))).thenReturn(stm);
+        when(conn.prepareStatement("select last_insert_rowid()")).thenReturn(stmID);
+        when(stmID.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        // Último ID de cada lote: [10, 11] e [12]
+        when(rs.getInt(1)).thenReturn(11, 12);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Imovel i1 = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+            Imovel i2 = new Imovel(23456789, LocalDate.of(2020, 1, 1), 1000f, 100, 'B');
+            Imovel i3 = new Imovel(34567890, LocalDate.of(2020, 1, 1), 1000f, 100, 'C');
+
+            ResultadoLote resultado = ImovelDAO.insertAll(List.of(i1, i2, i3), 2);
+
+            Assertions.assertArrayEquals(new int[] {10, 11, 12}, resultado.ids);
+            Assertions.assertFalse(resultado.temFalhas());
+            Assertions.assertEquals(10, i1.getID());
+            Assertions.assertEquals(11, i2.getID());
+            Assertions.assertEquals(12, i3.getID());
+            Mockito.verify(stm, Mockito.times(2)).executeBatch();
+            Mockito.verify(conn).setAutoCommit(false);
+            Mockito.verify(conn).commit();
+        }
+    }
+
+    @Test
+    void testInsertAllInformaLinhasComFalha() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        PreparedStatement stmID = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.startsWith("insert"))).thenReturn(stm);
+        when(conn.prepareStatement("select last_insert_rowid()")).thenReturn(stmID);
+        when(stmID.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(7);
+        when(stm.executeBatch()).thenThrow(new BatchUpdateException());
+        // Refazendo linha a linha, a segunda linha tem inscrição duplicada
+        when(stm.executeUpdate()).thenReturn(1).thenThrow(new SQLException("UNIQUE constraint failed: imovel.inscricao"));
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Imovel i1 = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+            Imovel i2 = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'B');
+
+            ResultadoLote resultado = ImovelDAO.insertAll(List.of(i1, i2));
+
+            Assertions.assertEquals(1, resultado.getGravados());
+            Assertions.assertEquals(1, resultado.falhas.size());
+            Assertions.assertEquals(1, resultado.falhas.get(0).indice);
+            Assertions.assertSame(i2, resultado.falhas.get(0).imovel);
+            Assertions.assertEquals(7, i1.getID());
+            Assertions.assertEquals(0, i2.getID());
+            Mockito.verify(conn).commit();
+        }
+    }
+
+    @Test
+    void testInsertAllDesfazTransacaoEmErro() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeBatch()).thenThrow(new SQLException("disk I/O error"));
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Imovel imovel = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.insertAll(List.of(imovel)));
+            Assertions.assertEquals(0, imovel.getID());
+            Mockito.verify(conn).rollback();
+            Mockito.verify(conn, Mockito.never()).commit();
+        }
+    }
+
+    @Test
+    void testStreamPercorreCursorEFechaRecursos() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getInt("id")).thenReturn(1, 2);
+        when(rs.getInt("inscricao")).thenReturn(12345678, 23456789);
+        when(rs.getLong("dt_liberacao")).thenReturn(LocalDate.of(2020, 1, 1).toEpochDay());
+        when(rs.getLong("valor")).thenReturn(100000L);
+        when(rs.getInt("area")).thenReturn(100);
+        when(rs.getString("categoria")).thenReturn("A");
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            try (Stream<ImovelDTO> stream = ImovelDAO.stream(50)) {
+                List<ImovelDTO> dtos = stream.toList();
+                Assertions.assertEquals(2, dtos.size());
+                Assertions.assertEquals(2, dtos.get(1).id);
+                Assertions.assertEquals(23456789, dtos.get(1).inscricao);
+            }
+
+            Mockito.verify(stm).setFetchSize(50);
+            Mockito.verify(rs).close();
+            Mockito.verify(stm).close();
+            Mockito.verify(conn).close();
+        }
+    }
+
+    @Test
+    void testStreamFechadoAntesDoFim() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong("dt_liberacao")).thenReturn(LocalDate.of(2020, 1, 1).toEpochDay());
+        when(rs.getString("categoria")).thenReturn("B");
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            try (Stream<ImovelDTO> stream = ImovelDAO.streamByCategoria('B', 10)) {
+                Assertions.assertEquals(3, stream.limit(3).count());
+            }
+
+            Mockito.verify(stm).setString(1, "B");
+            Mockito.verify(rs).close();
+            Mockito.verify(conn).close();
+        }
+    }
+
+    @Test
+    void testGetByIDsConsultaEmBlocos() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, false, false);
+        when(rs.getInt("id")).thenReturn(7);
+        when(rs.getInt("inscricao")).thenReturn(12345678);
+        when(rs.getString("categoria")).thenReturn("A");
+
+        int[] ids = new int[1001];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = i + 1;
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Map<Integer, ImovelDTO> r = ImovelDAO.getByIDs(ids);
+
+            Assertions.assertEquals(1, r.size());
+            Assertions.assertEquals(12345678, r.get(7).inscricao);
+
+            // 999 IDs no primeiro bloco; os 2 restantes em um IN de 2 parâmetros
+            ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+            Mockito.verify(conn, Mockito.times(2)).prepareStatement(sql.capture());
+            Assertions.assertEquals(ImovelDAO.LIMITE_PARAMETROS, sql.getAllValues().get(0).chars().filter(c -> c == '?').count());
+            Assertions.assertTrue(sql.getAllValues().get(1).endsWith("where id in (?,?)"));
+            Mockito.verify(stm).setInt(2, 1001);
+            Mockito.verify(conn).close();
+        }
+    }
+
+    @Test
+    void testGetByInscricoesCompletaINComUltimaChave() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(false);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            // 3 inscrições distintas viram um IN de 4 parâmetros
+            Assertions.assertTrue(ImovelDAO.getByInscricoes(new int[] {12345678, 23456789, 12345678, 34567890}).isEmpty());
+
+            Mockito.verify(conn).prepareStatement("select * from imovel where inscricao in (?,?,?,?)");
+            Mockito.verify(stm).setInt(3, 34567890);
+            Mockito.verify(stm).setInt(4, 34567890);
+        }
+    }
+
+    @Test
+    void testGetByIDsVazioNaoConsultaBD() {
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            Assertions.assertTrue(ImovelDAO.getByIDs(new int[0]).isEmpty());
+            dbMock.verify(DBConnection::get, Mockito.never());
+        }
+    }
+
+    @Test
+    void testUpsertRetornaID() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(9);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Imovel imovel = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+            Assertions.assertEquals(9, ImovelDAO.upsert(imovel));
+
+            ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+            Mockito.verify(conn).prepareStatement(sql.capture());
+            Assertions.assertTrue(sql.getValue().contains("on conflict(inscricao) do update"));
+            Assertions.assertTrue(sql.getValue().endsWith("returning id"));
+            Mockito.verify(stm).setInt(1, 12345678);
+        }
+    }
+
+    @Test
+    void testUpsertFalha() {
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenThrow(new RuntimeException("DB error"));
+
+            Imovel imovel = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+            Assertions.assertEquals(0, ImovelDAO.upsert(imovel));
+        }
+    }
+
+    @Test
+    void testUpsertAllEmUmaTransacao() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs1 = Mockito.mock(ResultSet.class);
+        ResultSet rs3 = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs1).thenThrow(new SQLException("CHECK constraint failed")).thenReturn(rs3);
+        when(rs1.next()).thenReturn(true);
+        when(rs1.getInt(1)).thenReturn(4);
+        when(rs3.next()).thenReturn(true);
+        when(rs3.getInt(1)).thenReturn(11);
+
+        Imovel a = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+        Imovel b = new Imovel(23456789, LocalDate.of(2020, 1, 1), 1000f, 100, 'B');
+        Imovel c = new Imovel(34567890, LocalDate.of(2020, 1, 1), 1000f, 100, 'C');
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            ResultadoLote r = ImovelDAO.upsertAll(List.of(a, b, c));
+
+            Assertions.assertArrayEquals(new int[] {4, 0, 11}, r.ids);
+            Assertions.assertEquals(1, r.falhas.size());
+            Assertions.assertSame(b, r.falhas.get(0).imovel);
+            Assertions.assertEquals(4, a.getID());
+            Assertions.assertEquals(0, b.getID());
+            Assertions.assertEquals(11, c.getID());
+
+            Mockito.verify(conn).setAutoCommit(false);
+            Mockito.verify(conn).commit();
+            Mockito.verify(conn, Mockito.never()).rollback();
+        }
+    }
+
+    @Test
+    void testUpdateGravaSoCamposAlterados() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 3;
+        dto.inscricao = 12345678;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 1000f;
+        dto.area = 100;
+        dto.categoria = 'A';
+        Imovel imovel = new Imovel(dto);
+        imovel.setValor(1234.56f);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Assertions.assertTrue(ImovelDAO.update(imovel));
+
+            Mockito.verify(conn).prepareStatement("update imovel set valor=? where id=?");
+            Mockito.verify(stm).setLong(1, 123456L);
+            Mockito.verify(stm).setInt(2, 3);
+        }
+    }
+
+    @Test
+    void testUpdateSemAlteracaoNaoAcessaBD() {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 3;
+        dto.inscricao = 12345678;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 1000f;
+        dto.area = 100;
+        dto.categoria = 'A';
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            Assertions.assertTrue(ImovelDAO.update(new Imovel(dto)));
+            dbMock.verify(DBConnection::get, Mockito.never());
+        }
+    }
+
+    private Imovel imovelCarregado(int id, int inscricao) {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = id;
+        dto.inscricao = inscricao;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 1000f;
+        dto.area = 100;
+        dto.categoria = 'A';
+        return new Imovel(dto);
+    }
+
+    @Test
+    void testUpdateAllAgrupaPorCamposAlterados() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+
+        Imovel a = imovelCarregado(1, 12345678);
+        Imovel b = imovelCarregado(2, 12345679);
+        Imovel c = imovelCarregado(3, 12345680);
+        Imovel semAlteracao = imovelCarregado(4, 12345681);
+        a.setValor(2000f);
+        b.setValor(3000f);
+        c.setArea(200);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Assertions.assertEquals(3, ImovelDAO.updateAll(List.of(a, b, c, semAlteracao)));
+
+            Mockito.verify(conn).prepareStatement("update imovel set valor=? where id=?");
+            Mockito.verify(conn).prepareStatement("update imovel set area=? where id=?");
+            Mockito.verify(stm, Mockito.times(2)).executeBatch();
+            Mockito.verify(conn).setAutoCommit(false);
+            Mockito.verify(conn).commit();
+            Assertions.assertFalse(a.isAlterado());
+            Assertions.assertFalse(c.isAlterado());
+        }
+    }
+
+    @Test
+    void testUpdateAllDesfazTransacaoEmErro() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeBatch()).thenThrow(new SQLException("disk I/O error"));
+
+        Imovel imovel = imovelCarregado(1, 12345678);
+        imovel.setValor(2000f);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.updateAll(List.of(imovel)));
+            Assertions.assertEquals(Imovel.VALOR, imovel.getAlterados());
+            Mockito.verify(conn).rollback();
+            Mockito.verify(conn, Mockito.never()).commit();
+        }
+    }
+
+    @Test
+    void testDeleteAllEmUmLote() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+
+        Imovel a = imovelCarregado(1, 12345678);
+        Imovel b = imovelCarregado(2, 12345679);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Assertions.assertEquals(2, ImovelDAO.deleteAll(List.of(a, b)));
+
+            Mockito.verify(stm).setInt(1, 1);
+            Mockito.verify(stm).setInt(1, 2);
+            Mockito.verify(stm, Mockito.times(2)).addBatch();
+            Mockito.verify(stm).executeBatch();
+            Mockito.verify(conn).commit();
+            Assertions.assertEquals(0, a.getID());
+            Assertions.assertEquals(0, b.getID());
+        }
+    }
+
+    @Test
+    void testDeleteAllEUpdateAllAtualizamCache() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+
+        Imovel removido = imovelCarregado(1, 12345678);
+        Imovel alterado = imovelCarregado(2, 12345679);
+        Imovel emCache = imovelCarregado(2, 12345679);
+        alterado.setValor(2000f);
+
+        ImovelFactory.setCache(10);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+            ImovelFactory.atualizaCache(removido);
+            ImovelFactory.atualizaCache(emCache);
+
+            ImovelDAO.deleteAll(List.of(removido));
+            ImovelDAO.updateAll(List.of(alterado));
+
+            // O excluído sai do cache e o atualizado substitui a instância antiga
+            Assertions.assertNull(ImovelFactory.getCache().getByID(1));
+            Assertions.assertSame(alterado, ImovelFactory.getCache().getByID(2));
+        } finally {
+            ImovelFactory.setCache(0);
+        }
+    }
+
+    @Test
+    void testLoteNaTransacaoExternaDesfeitaRestauraObjetos() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        PreparedStatement ultimoID = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(conn.prepareStatement("select last_insert_rowid()")).thenReturn(ultimoID);
+        when(stm.executeBatch()).thenReturn(new int[] { 1 });
+        when(ultimoID.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(7);
+
+        Imovel novo = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 50, 'A');
+        Imovel removido = imovelCarregado(1, 87654321);
+        List<Runnable> desfazer = new ArrayList<>();
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+            dbMock.when(DBConnection::emTransacao).thenReturn(true);
+            dbMock.when(() -> DBConnection.aoTerminar(Mockito.any(), Mockito.any()))
+                    .thenAnswer(inv -> {
+                        desfazer.add(inv.getArgument(1));
+                        return null;
+                    });
+
+            ImovelDAO.insertAll(List.of(novo));
+            ImovelDAO.deleteAll(List.of(removido));
+            Assertions.assertEquals(7, novo.getID());
+            Assertions.assertEquals(0, removido.getID());
+
+            // A transação externa foi desfeita
+            desfazer.forEach(Runnable::run);
+            Assertions.assertEquals(0, novo.getID());
+            Assertions.assertEquals(Imovel.TODOS, novo.getAlterados());
+            Assertions.assertEquals(1, removido.getID());
+        }
+    }
+
+    @Test
+    void testDeleteAllDentroDaTransacaoExterna() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+            dbMock.when(DBConnection::emTransacao).thenReturn(true);
+
+            Assertions.assertEquals(1, ImovelDAO.deleteAll(List.of(imovelCarregado(1, 12345678))));
+
+            // Quem confirma é a transação externa
+            Mockito.verify(conn, Mockito.never()).setAutoCommit(Mockito.anyBoolean());
+            Mockito.verify(conn, Mockito.never()).commit();
+        }
+    }
+
+    @Test
+    void testFalhaDentroDaTransacaoLancaExcecao() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenThrow(new SQLException("Erro"));
+        when(conn.prepareStatement(Mockito.anyString(), Mockito.anyInt())).thenThrow(new SQLException("Erro"));
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Imovel novo = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 50, 'A');
+            Imovel carregado = imovelCarregado(1, 87654321);
+            carregado.setArea(90);
+
+            // Fora de uma transação, a falha é informada pelo retorno
+            Assertions.assertEquals(0, ImovelDAO.insert(novo));
+            Assertions.assertEquals(0, ImovelDAO.upsert(novo));
+            Assertions.assertFalse(ImovelDAO.update(carregado));
+            Assertions.assertFalse(ImovelDAO.delete(carregado));
+
+            // Dentro, a falha precisa desfazer a transação inteira
+            dbMock.when(DBConnection::emTransacao).thenReturn(true);
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.insert(novo));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.upsert(novo));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.update(carregado));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.delete(carregado));
+        }
+    }
+
+    @Test
+    void testPageBuscaUmaLinhaAMaisParaSaberSeHaProxima() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, true, false);
+        when(rs.getInt("id")).thenReturn(11, 12, 13);
+        when(rs.getLong("id")).thenReturn(11L, 12L, 13L);
+        when(rs.getLong("dt_liberacao")).thenReturn(LocalDate.of(2020, 1, 1).toEpochDay());
+        when(rs.getString("categoria")).thenReturn("A");
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Pagina pagina = ImovelDAO.page(10, 2);
+
+            Mockito.verify(conn).prepareStatement("select * from imovel where id > ? order by id limit ?");
+            Mockito.verify(stm).setInt(1, 10);
+            Mockito.verify(stm).setInt(2, 3);
+
+            Assertions.assertEquals(2, pagina.getTamanho());
+            Assertions.assertTrue(pagina.temProxima);
+            Assertions.assertEquals(12, pagina.ultimaChave);
+            Assertions.assertEquals(12, pagina.ultimoID);
+            Mockito.verify(conn).close();
+        }
+    }
+
+    @Test
+    void testPageByInscricaoUltimaPagina() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getInt("id")).thenReturn(5);
+        when(rs.getInt("inscricao")).thenReturn(56789012);
+        when(rs.getLong("inscricao")).thenReturn(56789012L);
+        when(rs.getLong("dt_liberacao")).thenReturn(LocalDate.of(2020, 1, 1).toEpochDay());
+        when(rs.getString("categoria")).thenReturn("E");
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            Pagina pagina = ImovelDAO.pageByInscricao(45678901, 50);
+
+            Mockito.verify(conn).prepareStatement("select * from imovel where inscricao > ? order by inscricao limit ?");
+            Mockito.verify(stm).setInt(1, 45678901);
+            Assertions.assertEquals(1, pagina.getTamanho());
+            Assertions.assertFalse(pagina.temProxima);
+            Assertions.assertEquals(56789012, pagina.ultimaChave);
+            Assertions.assertEquals(5, pagina.ultimoID);
+        }
+    }
+
+    @Test
+    void testPageLimiteInvalido() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.page(0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelDAO.pageByInscricao(0, -1));
+    }
+
+    @Test
+    void testLeColunasCalculoPorIndice() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement stm = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+
+        when(conn.prepareStatement(Mockito.anyString())).thenReturn(stm);
+        when(stm.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getInt(1)).thenReturn(12345678, 23456789);
+        when(rs.getLong(2)).thenReturn(150000000L, 2055L);
+        when(rs.getInt(3)).thenReturn(500, 40);
+        when(rs.getInt(4)).thenReturn((int) 'A', (int) 'E');
+        when(rs.getLong(5)).thenReturn(18389L, -980L);
+
+        List<String> linhas = new ArrayList<>();
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::get).thenReturn(conn);
+
+            long total = ImovelDAO.leColunasCalculo(200, (inscricao, valor, area, categoria, dtLiberacao) ->
+                    linhas.add(inscricao + ";" + valor + ";" + area + ";" + categoria + ";" + dtLiberacao));
+
+            Assertions.assertEquals(2, total);
+            Assertions.assertEquals(List.of("12345678;1500000.0;500;A;18389", "23456789;20.55;40;E;-980"), linhas);
+
+            Mockito.verify(conn).prepareStatement("select inscricao, valor, area, unicode(categoria), dt_liberacao from imovel order by id");
+            Mockito.verify(stm).setFetchSize(200);
+            Mockito.verify(rs, Mockito.never()).getString(Mockito.anyString());
+            Mockito.verify(rs, Mockito.never()).getInt(Mockito.anyString());
+            Mockito.verify(conn).close();
+        }
+    }
+}
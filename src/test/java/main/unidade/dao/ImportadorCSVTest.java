@@ -0,0 +1,140 @@
+package main.unidade.dao;
+
+import main.dao.ImovelDAO;
+import main.dao.ImportadorCSV;
+import main.dao.ResultadoImportacao;
+import main.db.DBConnection;
+import main.db.Migracao;
+import main.model.ImovelDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.LocalDate;
+import java.util.List;
+
+class ImportadorCSVTest {
+
+    private File arquivo;
+    private Path csv;
+    private Path relatorio;
+
+    @BeforeEach
+    void criaBD() throws Exception {
+        arquivo = File.createTempFile("iptu-importacao", ".db");
+        csv = Files.createTempFile("cadastro", ".csv");
+        relatorio = Files.createTempFile("rejeitadas", ".csv");
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + arquivo.getPath())) {
+            Migracao.atualiza(conn);
+        }
+
+        DBConnection.set("org.sqlite.JDBC", "jdbc:sqlite:" + arquivo.getPath());
+    }
+
+    @AfterEach
+    void apagaBD() throws Exception {
+        DBConnection.close();
+        arquivo.delete();
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(relatorio);
+    }
+
+    @Test
+    void testImportaComBlocosPequenos() throws Exception {
+        StringBuilder sb = new StringBuilder("inscricao;dt_liberacao;valor;area;categoria\r\n");
+
+        for (int i = 0; i < 5000; i++)
+            sb.append(10000000 + i).append(";2020-01-15;1234,56;").append(50 + i % 100).append(';')
+                    .append((char) ('A' + i % 26)).append("\r\n");
+
+        Files.writeString(csv, sb.toString());
+
+        ImportadorCSV importador = new ImportadorCSV();
+        importador.setTamanhoBloco(4096);
+        importador.setTamanhoLote(100);
+        importador.setIntervaloCommit(1000);
+        importador.setParalelismo(3);
+
+        ResultadoImportacao r = importador.importa(csv);
+
+        Assertions.assertEquals(5000, r.lidas);
+        Assertions.assertEquals(5000, r.importadas);
+        Assertions.assertFalse(r.temRejeitadas());
+        Assertions.assertTrue(r.commits > 1);
+
+        ImovelDTO dto = ImovelDAO.getByInscricao(10004999);
+        Assertions.assertEquals(LocalDate.of(2020, 1, 15), dto.dataLiberacao);
+        Assertions.assertEquals(1234.56f, dto.valor);
+        Assertions.assertEquals(149, dto.area);
+        Assertions.assertEquals('H', dto.categoria);
+    }
+
+    @Test
+    void testRelatorioDeLinhasRejeitadas() throws Exception {
+        Files.writeString(csv, String.join("\n",
+                "inscricao;dt_liberacao;valor;area;categoria",
+                "12345678;15/01/2020;1000.00;100;A",
+                "12345678;2020-01-01;10;10;A",
+                "123;2020-01-01;10;10;A",
+                "",
+                "12345679;2020-13-01;10;10;A",
+                "12345680;2020-01-01;abc;10;A",
+                "12345681;2020-01-01;10;10",
+                "12345682;2020-01-01;10;10;a",
+                "12345683;2020-01-01;10;10;B"));
+
+        ImportadorCSV importador = new ImportadorCSV();
+        importador.setRelatorio(relatorio);
+
+        ResultadoImportacao r = importador.importa(csv);
+
+        Assertions.assertEquals(8, r.lidas);
+        Assertions.assertEquals(2, r.importadas);
+        Assertions.assertEquals(6, r.rejeitadas);
+
+        List<String> linhas = Files.readAllLines(relatorio);
+        Assertions.assertEquals(7, linhas.size());
+        Assertions.assertTrue(linhas.contains("4;Inscrição inválida;123;2020-01-01;10;10;A"));
+        Assertions.assertTrue(linhas.contains("6;Data de liberação inválida;12345679;2020-13-01;10;10;A"));
+        Assertions.assertTrue(linhas.contains("7;Valor inválido;12345680;2020-01-01;abc;10;A"));
+        Assertions.assertTrue(linhas.contains("8;Quantidade de campos inválida;12345681;2020-01-01;10;10"));
+        Assertions.assertTrue(linhas.contains("9;Categoria inválida;12345682;2020-01-01;10;10;a"));
+        Assertions.assertTrue(linhas.stream().anyMatch(l -> l.startsWith("3;")));
+    }
+
+    @Test
+    void testConfiguracaoInvalida() {
+        ImportadorCSV importador = new ImportadorCSV();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> importador.setIntervaloCommit(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> importador.setParalelismo(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> importador.setSeparador(','));
+    }
+
+    @Test
+    void testImportaDentroDaTransacao() throws Exception {
+        Files.writeString(csv, "inscricao;dt_liberacao;valor;area;categoria\r\n12345678;2020-01-01;10;10;A\r\n");
+
+        ImportadorCSV importador = new ImportadorCSV();
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> DBConnection.inTransaction(() -> {
+                    importador.importa(csv);
+                }));
+
+        Assertions.assertTrue(e.getMessage().contains("transação"));
+        Assertions.assertEquals(0, ImovelDAO.getByInscricao(12345678).id);
+    }
+
+    @Test
+    void testArquivoInexistente() {
+        ImportadorCSV importador = new ImportadorCSV();
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> importador.importa(csv.resolveSibling("nao-existe.csv")));
+    }
+}
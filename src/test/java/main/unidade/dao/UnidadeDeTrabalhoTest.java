@@ -0,0 +1,204 @@
+package main.unidade.dao;
+
+import main.dao.ImovelDAO;
+import main.dao.ResultadoLote;
+import main.dao.UnidadeDeTrabalho;
+import main.db.DBConnection;
+import main.db.IPersistent;
+import main.factory.ImovelCache;
+import main.factory.ImovelFactory;
+import main.model.Imovel;
+import main.model.ImovelDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+class UnidadeDeTrabalhoTest {
+
+    @AfterEach
+    void desligaCache() {
+        ImovelFactory.setCache(0);
+    }
+
+    private Imovel imovelCarregado(int id, int inscricao) {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = id;
+        dto.inscricao = inscricao;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 1000f;
+        dto.area = 100;
+        dto.categoria = 'A';
+        return new Imovel(dto);
+    }
+
+    private void executaTransacao(MockedStatic<DBConnection> dbMock) {
+        dbMock.when(() -> DBConnection.inTransaction(Mockito.any(Runnable.class))).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(0).run();
+            return null;
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCommitAgrupaOperacoes() {
+        ImovelFactory.setCache(10);
+
+        Imovel novo = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+        Imovel alterado = imovelCarregado(2, 12345679);
+        Imovel semAlteracao = imovelCarregado(3, 12345680);
+        Imovel removido = imovelCarregado(4, 12345681);
+        IPersistent outro = Mockito.mock(IPersistent.class);
+        alterado.setArea(200);
+
+        ResultadoLote lote = new ResultadoLote(1);
+        lote.ids[0] = 1;
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class);
+             MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            executaTransacao(dbMock);
+            daoMock.when(() -> ImovelDAO.insertAll(Mockito.anyCollection())).thenAnswer(inv -> {
+                inv.<Collection<Imovel>>getArgument(0).forEach(i -> i.setID(1));
+                return lote;
+            });
+
+            UnidadeDeTrabalho uow = new UnidadeDeTrabalho();
+            uow.salva(novo);
+            uow.salva(alterado);
+            uow.salva(semAlteracao);
+            uow.salva(outro);
+            uow.exclui(removido);
+            Assertions.assertEquals(5, uow.getPendentes());
+
+            uow.commit();
+
+            dbMock.verify(() -> DBConnection.inTransaction(Mockito.any(Runnable.class)), Mockito.times(1));
+            daoMock.verify(() -> ImovelDAO.insertAll(List.of(novo)));
+            daoMock.verify(() -> ImovelDAO.updateAll(List.of(alterado)));
+            daoMock.verify(() -> ImovelDAO.deleteAll(List.of(removido)));
+            Mockito.verify(outro).save();
+            Assertions.assertTrue(uow.isVazia());
+
+            ImovelCache cache = ImovelFactory.getCache();
+            Assertions.assertSame(novo, cache.getByID(1));
+            Assertions.assertSame(alterado, cache.getByID(2));
+            Assertions.assertNull(cache.getByID(4));
+        }
+    }
+
+    @Test
+    void testCommitComFalhaRestauraObjetos() {
+        Imovel novo = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+        Imovel alterado = imovelCarregado(2, 12345679);
+        alterado.setValor(2000f);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class);
+             MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            executaTransacao(dbMock);
+            daoMock.when(() -> ImovelDAO.insertAll(Mockito.anyCollection())).thenAnswer(inv -> {
+                novo.setID(1);
+                novo.limpaAlterados();
+                return new ResultadoLote(1);
+            });
+            daoMock.when(() -> ImovelDAO.updateAll(Mockito.anyCollection()))
+                    .thenThrow(new IllegalArgumentException("disk I/O error"));
+
+            UnidadeDeTrabalho uow = new UnidadeDeTrabalho();
+            uow.salva(novo);
+            uow.salva(alterado);
+
+            Assertions.assertThrows(IllegalArgumentException.class, uow::commit);
+
+            // A transação foi desfeita: os objetos voltam ao estado anterior e continuam pendentes
+            Assertions.assertEquals(0, novo.getID());
+            Assertions.assertEquals(Imovel.TODOS, novo.getAlterados());
+            Assertions.assertEquals(Imovel.VALOR, alterado.getAlterados());
+            Assertions.assertEquals(2, uow.getPendentes());
+        }
+    }
+
+    @Test
+    void testCommitNaTransacaoExternaEsperaOCommitDela() {
+        ImovelFactory.setCache(10);
+
+        Imovel removido = imovelCarregado(4, 12345681);
+        Imovel alterado = imovelCarregado(2, 12345679);
+        alterado.setArea(200);
+        List<Runnable> confirmar = new ArrayList<>();
+        List<Runnable> desfazer = new ArrayList<>();
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class);
+             MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            executaTransacao(dbMock);
+            dbMock.when(DBConnection::emTransacao).thenReturn(true);
+            dbMock.when(() -> DBConnection.aoTerminar(Mockito.any(), Mockito.any())).thenAnswer(inv -> {
+                confirmar.add(inv.getArgument(0));
+                desfazer.add(inv.getArgument(1));
+                return null;
+            });
+            daoMock.when(() -> ImovelDAO.updateAll(Mockito.anyCollection())).thenAnswer(inv -> {
+                alterado.limpaAlterados();
+                return 1;
+            });
+            daoMock.when(() -> ImovelDAO.deleteAll(Mockito.anyCollection())).thenAnswer(inv -> {
+                removido.setID(0);
+                return 1;
+            });
+
+            UnidadeDeTrabalho uow = new UnidadeDeTrabalho();
+            uow.salva(alterado);
+            uow.exclui(removido);
+            uow.commit();
+
+            // Nada muda no cache antes do commit da transação externa
+            Assertions.assertEquals(0, ImovelFactory.getCache().size());
+            Assertions.assertEquals(1, confirmar.size());
+
+            // O rollback da transação externa restaura os objetos
+            desfazer.forEach(Runnable::run);
+            Assertions.assertEquals(4, removido.getID());
+            Assertions.assertEquals(Imovel.AREA, alterado.getAlterados());
+            Assertions.assertEquals(0, ImovelFactory.getCache().size());
+        }
+    }
+
+    @Test
+    void testCommitComLinhaRecusadaDesfazTudo() {
+        Imovel novo = new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+
+        ResultadoLote lote = new ResultadoLote(1);
+        lote.falhas.add(new ResultadoLote.Falha(0, novo, "UNIQUE constraint failed"));
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class);
+             MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            executaTransacao(dbMock);
+            daoMock.when(() -> ImovelDAO.insertAll(Mockito.anyCollection())).thenReturn(lote);
+
+            UnidadeDeTrabalho uow = new UnidadeDeTrabalho();
+            uow.salva(novo);
+
+            Assertions.assertThrows(IllegalArgumentException.class, uow::commit);
+            daoMock.verify(() -> ImovelDAO.updateAll(Mockito.anyCollection()), Mockito.never());
+        }
+    }
+
+    @Test
+    void testExcluiDepoisDeSalvar() {
+        Imovel imovel = imovelCarregado(2, 12345679);
+
+        UnidadeDeTrabalho uow = new UnidadeDeTrabalho();
+        uow.salva(imovel);
+        uow.exclui(imovel);
+        Assertions.assertEquals(1, uow.getPendentes());
+
+        uow.descarta();
+        Assertions.assertTrue(uow.isVazia());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> uow.salva(null));
+    }
+}
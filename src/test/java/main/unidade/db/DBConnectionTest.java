@@ -2,12 +2,23 @@ package main.unidade.db;
 
 import main.dao.ImovelDAO;
 import main.db.DBConnection;
+import main.db.Migracao;
+import main.db.PerfilSQLite;
 import org.junit.jupiter.api.*;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 class DBConnectionTest {
 
@@ -15,13 +26,31 @@ class DBConnectionTest {
     void resetDBConnection() throws Exception {
         var driverField = DBConnection.class.getDeclaredField("driver");
         var connStrField = DBConnection.class.getDeclaredField("connectionString");
-        var connField = DBConnection.class.getDeclaredField("conn");
+        var poolField = DBConnection.class.getDeclaredField("pool");
         driverField.setAccessible(true);
         connStrField.setAccessible(true);
-        connField.setAccessible(true);
+        poolField.setAccessible(true);
         driverField.set(null, null);
         connStrField.set(null, null);
-        connField.set(null, null);
+        poolField.set(null, null);
+        DBConnection.setPool(DBConnection.MIN_POOL_SIZE, DBConnection.MAX_POOL_SIZE, DBConnection.BORROW_TIMEOUT);
+        DBConnection.setStatementCache(DBConnection.STATEMENT_CACHE_SIZE);
+        DBConnection.setPerfil(PerfilSQLite.PADRAO);
+    }
+
+    @Test
+    void testIsConfigurado() {
+        DBConnection.set("org.h2.Driver", null);
+        Assertions.assertFalse(DBConnection.isConfigurado());
+
+        DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+        Assertions.assertTrue(DBConnection.isConfigurado());
+    }
+
+    @AfterAll
+    static void descartaConfiguracao() {
+        // As conexões de teste (H2 e mocks) não devem valer para as classes de teste seguintes
+        DBConnection.set(null, null);
     }
 
     @Test
@@ -40,75 +69,191 @@ class DBConnectionTest {
     @Test
     void testGetDriverNotSet() throws Exception {
         DBConnection.set(null, "jdbc:h2:mem:testdb");
-        var connField = DBConnection.class.getDeclaredField("conn");
-        connField.setAccessible(true);
-        connField.set(null, null);
         Assertions.assertThrows(IllegalArgumentException.class, DBConnection::get);
     }
 
     @Test
     void testGetConnectionStringNotSet() throws Exception {
         DBConnection.set("org.h2.Driver", null);
-        var connField = DBConnection.class.getDeclaredField("conn");
-        connField.setAccessible(true);
-        connField.set(null, null);
         Assertions.assertThrows(IllegalArgumentException.class, DBConnection::get);
     }
 
     @Test
     void testGetInvalidDriver() throws Exception {
         DBConnection.set("invalid.Driver", "jdbc:h2:mem:testdb");
-        var connField = DBConnection.class.getDeclaredField("conn");
-        connField.setAccessible(true);
-        connField.set(null, null);
         Assertions.assertThrows(IllegalArgumentException.class, DBConnection::get);
     }
 
+    @Test
+    void testCloseDevolveConexaoAoPool() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.isClosed()).thenReturn(false);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            Mockito.when(mockConn.getAutoCommit()).thenReturn(true);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+
+            Connection c1 = DBConnection.get();
+            c1.close();
+            Assertions.assertTrue(c1.isClosed());
+
+            Connection c2 = DBConnection.get();
+            c2.close();
+
+            // A conexão física é reaproveitada e nunca fechada
+            dmMock.verify(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", ""), Mockito.times(1));
+            Mockito.verify(mockConn, Mockito.never()).close();
+        }
+    }
+
+    @Test
+    void testConexaoInvalidaDescartada() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection invalida = Mockito.mock(Connection.class);
+            Connection valida = Mockito.mock(Connection.class);
+            Mockito.when(invalida.isValid(500)).thenReturn(false);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(invalida, valida);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+
+            Connection conn = DBConnection.get();
+            Assertions.assertNotNull(conn);
+
+            // A conexão aberta na criação do pool não passou na validação
+            Mockito.verify(invalida).close();
+            dmMock.verify(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", ""), Mockito.times(2));
+        }
+    }
+
+    @Test
+    void testTempoDeEsperaEsgotado() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.setPool(0, 1, 50);
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+
+            Connection conn = DBConnection.get();
+            Assertions.assertNotNull(conn);
+            Assertions.assertThrows(IllegalArgumentException.class, DBConnection::get);
+
+            conn.close();
+            Assertions.assertNotNull(DBConnection.get());
+        }
+    }
+
+    @Test
+    void testEmprestimosParalelos() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection[] conexoes = new Connection[4];
+            for (int i = 0; i < 4; i++) {
+                conexoes[i] = Mockito.mock(Connection.class);
+                Mockito.when(conexoes[i].isValid(500)).thenReturn(true);
+            }
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", ""))
+                    .thenReturn(conexoes[0], conexoes[1], conexoes[2], conexoes[3]);
+
+            // O mock estático só vale nesta thread: o pool abre as quatro conexões aqui
+            DBConnection.setPool(4, 4, 1000);
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+            DBConnection.get().close();
+
+            // Quatro threads seguram uma conexão cada ao mesmo tempo
+            CountDownLatch todas = new CountDownLatch(4);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                Future<?>[] futures = new Future<?>[4];
+                for (int i = 0; i < 4; i++) {
+                    futures[i] = executor.submit(() -> {
+                        try (Connection conn = DBConnection.get()) {
+                            Assertions.assertNotNull(conn);
+                            todas.countDown();
+                            Assertions.assertTrue(todas.await(5, TimeUnit.SECONDS));
+                        }
+                        return null;
+                    });
+                }
+                for (Future<?> f : futures)
+                    f.get(5, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
     @Test
     void testIsAliveTrue() throws Exception {
-        Connection mockConn = Mockito.mock(Connection.class);
-        Mockito.when(mockConn.isClosed()).thenReturn(false);
-        Mockito.when(mockConn.isValid(500)).thenReturn(true);
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.isClosed()).thenReturn(false);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
 
-        var field = DBConnection.class.getDeclaredField("conn");
-        field.setAccessible(true);
-        field.set(null, mockConn);
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+            DBConnection.get().close();
 
-        Assertions.assertTrue(DBConnection.isAlive());
+            Assertions.assertTrue(DBConnection.isAlive());
+        }
     }
 
     @Test
     void testIsAliveFalse() throws Exception {
-        Connection mockConn = Mockito.mock(Connection.class);
-        Mockito.when(mockConn.isClosed()).thenReturn(true);
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.isClosed()).thenReturn(true);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+            DBConnection.get().close();
 
-        var field = DBConnection.class.getDeclaredField("conn");
-        field.setAccessible(true);
-        field.set(null, mockConn);
+            Assertions.assertFalse(DBConnection.isAlive());
+        }
+    }
 
+    @Test
+    void testIsAliveSemPool() {
         Assertions.assertFalse(DBConnection.isAlive());
     }
 
     @Test
     void testCloseSuccess() throws Exception {
-        Connection mockConn = Mockito.mock(Connection.class);
-        Mockito.when(mockConn.isClosed()).thenReturn(false);
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.isClosed()).thenReturn(false);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+            DBConnection.get().close();
 
-        var field = DBConnection.class.getDeclaredField("conn");
-        field.setAccessible(true);
-        field.set(null, mockConn);
+            DBConnection.close();
+            Mockito.verify(mockConn).close();
+        }
+    }
+
+    @Test
+    void testCloseFechaConexoesEmprestadas() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+            Assertions.assertNotNull(DBConnection.get());
 
-        DBConnection.close();
-        Mockito.verify(mockConn).close();
+            DBConnection.close();
+            Mockito.verify(mockConn).close();
+        }
     }
 
     @Test
     void testCloseNoConnection() throws Exception {
-        var field = DBConnection.class.getDeclaredField("conn");
-        field.setAccessible(true);
-        field.set(null, null);
         Assertions.assertThrows(IllegalArgumentException.class, DBConnection::close);
     }
+
     @Test
     void testGetByIDCatch() {
         try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
@@ -120,35 +265,59 @@ class DBConnectionTest {
 
     @Test
     void testIsAliveThrowsException() throws Exception {
-        Connection mockConn = Mockito.mock(Connection.class);
-        Mockito.when(mockConn.isClosed()).thenThrow(new RuntimeException("Erro inesperado"));
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.isClosed()).thenThrow(new RuntimeException("Erro inesperado"));
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
 
-        var field = DBConnection.class.getDeclaredField("conn");
-        field.setAccessible(true);
-        field.set(null, mockConn);
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+            DBConnection.get().close();
 
-        Assertions.assertFalse(DBConnection.isAlive());
+            Assertions.assertFalse(DBConnection.isAlive());
+        }
     }
 
     @Test
     void testCloseThrowsException() throws Exception {
-        Connection mockConn = Mockito.mock(Connection.class);
-        Mockito.when(mockConn.isClosed()).thenReturn(false);
-        Mockito.doThrow(new RuntimeException("Erro ao fechar")).when(mockConn).close();
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.isClosed()).thenReturn(false);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            Mockito.doThrow(new RuntimeException("Erro ao fechar")).when(mockConn).close();
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
 
-        var field = DBConnection.class.getDeclaredField("conn");
-        field.setAccessible(true);
-        field.set(null, mockConn);
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+            DBConnection.get().close();
 
-        Assertions.assertThrows(IllegalArgumentException.class, DBConnection::close);
+            Assertions.assertThrows(IllegalArgumentException.class, DBConnection::close);
+
+            // O pool é descartado mesmo que a conexão falhe ao fechar
+            Assertions.assertFalse(DBConnection.isAlive());
+        }
+    }
+
+    @Test
+    void testIsAliveComPoolEsgotadoNaoEsperaOEmprestimo() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.setPool(1, 1, 30000);
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+
+            try (Connection emprestada = DBConnection.get()) {
+                long inicio = System.nanoTime();
+
+                Assertions.assertTrue(DBConnection.isAlive());
+                Assertions.assertTrue(System.nanoTime() - inicio < 5_000_000_000L);
+            }
+        }
     }
 
     @Test
     void testGetConnectionThrowsException() throws Exception {
         DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
-        var connField = DBConnection.class.getDeclaredField("conn");
-        connField.setAccessible(true);
-        connField.set(null, null);
 
         // Mocka DriverManager.getConnection para lançar exceção
         try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
@@ -158,4 +327,327 @@ class DBConnectionTest {
             Assertions.assertNull(conn);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testStatementReaproveitadoEntreEmprestimos() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            PreparedStatement mockStm = Mockito.mock(PreparedStatement.class);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            Mockito.when(mockConn.getAutoCommit()).thenReturn(true);
+            Mockito.when(mockConn.prepareStatement("select * from imovel where id=?")).thenReturn(mockStm);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+
+            for (int i = 0; i < 3; i++) {
+                try (Connection conn = DBConnection.get();
+                     PreparedStatement stm = conn.prepareStatement("select * from imovel where id=?")) {
+                    stm.setInt(1, i);
+                    Assertions.assertSame(conn, stm.getConnection());
+                }
+            }
+
+            // O SGBD prepara o SQL uma vez; fechar o statement só limpa os parâmetros
+            Mockito.verify(mockConn, Mockito.times(1)).prepareStatement("select * from imovel where id=?");
+            Mockito.verify(mockStm, Mockito.times(3)).clearParameters();
+            Mockito.verify(mockStm, Mockito.never()).close();
+            Assertions.assertEquals(2, DBConnection.getStatementCacheHits());
+            Assertions.assertEquals(1, DBConnection.getStatementCacheMisses());
+
+            // Fechar o pool fecha os statements do cache
+            DBConnection.close();
+            Mockito.verify(mockStm).close();
+        }
+    }
+
+    @Test
+    void testStatementEmUsoNaoECompartilhado() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            PreparedStatement doCache = Mockito.mock(PreparedStatement.class);
+            PreparedStatement avulso = Mockito.mock(PreparedStatement.class);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            Mockito.when(mockConn.prepareStatement("delete from imovel where id=?")).thenReturn(doCache, avulso);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+
+            try (Connection conn = DBConnection.get()) {
+                PreparedStatement s1 = conn.prepareStatement("delete from imovel where id=?");
+                PreparedStatement s2 = conn.prepareStatement("delete from imovel where id=?");
+
+                Assertions.assertSame(avulso, s2);
+
+                s2.close();
+                s1.close();
+            }
+
+            Mockito.verify(avulso).close();
+            Mockito.verify(doCache, Mockito.never()).close();
+            Assertions.assertEquals(2, DBConnection.getStatementCacheMisses());
+        }
+    }
+
+    @Test
+    void testStatementCacheLRU() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            PreparedStatement s1 = Mockito.mock(PreparedStatement.class);
+            PreparedStatement s2 = Mockito.mock(PreparedStatement.class);
+            PreparedStatement s3 = Mockito.mock(PreparedStatement.class);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            Mockito.when(mockConn.prepareStatement("sql1")).thenReturn(s1);
+            Mockito.when(mockConn.prepareStatement("sql2")).thenReturn(s2);
+            Mockito.when(mockConn.prepareStatement("sql3")).thenReturn(s3);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.setStatementCache(2);
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+
+            try (Connection conn = DBConnection.get()) {
+                conn.prepareStatement("sql1").close();
+                conn.prepareStatement("sql2").close();
+                conn.prepareStatement("sql1").close();
+                conn.prepareStatement("sql3").close();
+            }
+
+            // sql2 era o usado há mais tempo
+            Mockito.verify(s2).close();
+            Mockito.verify(s1, Mockito.never()).close();
+            Mockito.verify(s3, Mockito.never()).close();
+            Assertions.assertEquals(1, DBConnection.getStatementCacheHits());
+        }
+    }
+
+    @Test
+    void testStatementCacheDesligado() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            PreparedStatement mockStm = Mockito.mock(PreparedStatement.class);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            Mockito.when(mockConn.prepareStatement("sql")).thenReturn(mockStm);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.setStatementCache(0);
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+
+            try (Connection conn = DBConnection.get()) {
+                Assertions.assertSame(mockStm, conn.prepareStatement("sql"));
+            }
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> DBConnection.setStatementCache(-1));
+        }
+    }
+
+    @Test
+    void testPerfilAplicadoEmCadaConexaoAberta() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Statement mockStm = Mockito.mock(Statement.class);
+            Mockito.when(mockConn.isValid(500)).thenReturn(true);
+            Mockito.when(mockConn.createStatement()).thenReturn(mockStm);
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb", PerfilSQLite.LEITURA);
+            DBConnection.get().close();
+
+            Assertions.assertSame(PerfilSQLite.LEITURA, DBConnection.getPerfil());
+            Mockito.verify(mockStm).execute("pragma journal_mode = WAL");
+            Mockito.verify(mockStm).execute("pragma synchronous = NORMAL");
+            Mockito.verify(mockStm).close();
+        }
+    }
+
+    @Test
+    void testPerfilComErroFechaConexao() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = Mockito.mock(Connection.class);
+            Mockito.when(mockConn.createStatement()).thenThrow(new java.sql.SQLException("Erro no pragma"));
+            dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+
+            DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb", PerfilSQLite.CARGA_EM_LOTE);
+
+            Assertions.assertNull(DBConnection.get());
+            Mockito.verify(mockConn).close();
+        }
+    }
+
+    private Connection conexaoValida(MockedStatic<DriverManager> dmMock) throws Exception {
+        Connection mockConn = Mockito.mock(Connection.class);
+        Mockito.when(mockConn.isClosed()).thenReturn(false);
+        Mockito.when(mockConn.isValid(500)).thenReturn(true);
+        dmMock.when(() -> DriverManager.getConnection("jdbc:h2:mem:testdb", "", "")).thenReturn(mockConn);
+        DBConnection.set("org.h2.Driver", "jdbc:h2:mem:testdb");
+        return mockConn;
+    }
+
+    @Test
+    void testInTransactionConfirma() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = conexaoValida(dmMock);
+
+            int resultado = DBConnection.inTransaction(() -> {
+                Assertions.assertTrue(DBConnection.emTransacao());
+
+                // Todas as conexões da thread são a conexão da transação
+                Connection c1 = DBConnection.get();
+                Connection c2 = DBConnection.get();
+                Assertions.assertSame(c1, c2);
+
+                // Fechar a conexão não a devolve ao pool nem confirma a transação
+                c1.close();
+                Assertions.assertThrows(java.sql.SQLException.class, c1::commit);
+                Assertions.assertThrows(java.sql.SQLException.class, c1::rollback);
+                return 42;
+            });
+
+            Assertions.assertEquals(42, resultado);
+            Assertions.assertFalse(DBConnection.emTransacao());
+            Mockito.verify(mockConn).setAutoCommit(false);
+            Mockito.verify(mockConn).commit();
+            Mockito.verify(mockConn, Mockito.never()).rollback();
+            Mockito.verify(mockConn, Mockito.never()).close();
+        }
+    }
+
+    @Test
+    void testInTransactionDesfaz() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = conexaoValida(dmMock);
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> DBConnection.inTransaction(() -> {
+                DBConnection.get().prepareStatement("delete from imovel");
+                throw new java.sql.SQLException("Erro");
+            }));
+
+            Assertions.assertFalse(DBConnection.emTransacao());
+            Mockito.verify(mockConn).rollback();
+            Mockito.verify(mockConn, Mockito.never()).commit();
+        }
+    }
+
+    @Test
+    void testInTransactionAninhada() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = conexaoValida(dmMock);
+
+            DBConnection.inTransaction(() -> {
+                Connection externa = DBConnection.get();
+                DBConnection.inTransaction(() -> Assertions.assertSame(externa, DBConnection.get()));
+                Assertions.assertTrue(DBConnection.emTransacao());
+            });
+
+            Mockito.verify(mockConn, Mockito.times(1)).setAutoCommit(false);
+            Mockito.verify(mockConn, Mockito.times(1)).commit();
+        }
+    }
+
+    @Test
+    void testAoTerminarDepoisDoCommit() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = conexaoValida(dmMock);
+            java.util.List<String> acoes = new java.util.ArrayList<>();
+
+            DBConnection.inTransaction(() -> {
+                DBConnection.aoTerminar(() -> acoes.add("confirma"), () -> acoes.add("desfaz"));
+                DBConnection.inTransaction(() -> DBConnection.aoTerminar(() -> acoes.add("aninhada"), null));
+
+                // Nada roda antes do commit
+                Assertions.assertTrue(acoes.isEmpty());
+            });
+
+            Assertions.assertEquals(java.util.List.of("confirma", "aninhada"), acoes);
+            Mockito.verify(mockConn).commit();
+        }
+    }
+
+    @Test
+    void testAoTerminarDepoisDoRollback() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            Connection mockConn = conexaoValida(dmMock);
+            java.util.List<String> acoes = new java.util.ArrayList<>();
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> DBConnection.inTransaction(() -> {
+                DBConnection.aoTerminar(() -> acoes.add("confirma 1"), () -> acoes.add("desfaz 1"));
+                DBConnection.aoTerminar(() -> acoes.add("confirma 2"), () -> acoes.add("desfaz 2"));
+                throw new IllegalArgumentException("Erro");
+            }));
+
+            // Desfaz na ordem inversa e não confirma nada
+            Assertions.assertEquals(java.util.List.of("desfaz 2", "desfaz 1"), acoes);
+            Mockito.verify(mockConn).rollback();
+
+            // Fora da transação, confirma na hora
+            acoes.clear();
+            DBConnection.aoTerminar(() -> acoes.add("confirma"), () -> acoes.add("desfaz"));
+            Assertions.assertEquals(java.util.List.of("confirma"), acoes);
+        }
+    }
+
+    @Test
+    void testInTransactionConexaoVoltaAoPool() throws Exception {
+        try (MockedStatic<DriverManager> dmMock = Mockito.mockStatic(DriverManager.class)) {
+            conexaoValida(dmMock);
+            DBConnection.setPool(1, 1, 100);
+
+            DBConnection.inTransaction(() -> { });
+
+            // Com pool de uma conexão, o empréstimo só funciona se a transação a devolveu
+            try (Connection c = DBConnection.get()) {
+                Assertions.assertNotNull(c);
+            }
+        }
+    }
+
+    @Test
+    void testCriacaoDoPoolMigraEsquemaAntigo() throws Exception {
+        File arquivo = File.createTempFile("iptu-antigo", ".db");
+
+        try {
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + arquivo.getPath());
+                 Statement stm = conn.createStatement()) {
+                stm.execute("create table imovel (id integer primary key autoincrement, inscricao integer not null unique, "
+                        + "dt_liberacao text not null, valor decimal(10,2) not null, area integer not null, categoria char not null)");
+                stm.execute("insert into imovel values(1, 12345678, '20200507', 1500000, 500, 'A')");
+            }
+
+            DBConnection.set("org.sqlite.JDBC", "jdbc:sqlite:" + arquivo.getPath());
+
+            try (Connection conn = DBConnection.get()) {
+                Assertions.assertEquals(Migracao.VERSAO, Migracao.getVersao(conn));
+
+                try (Statement stm = conn.createStatement();
+                     ResultSet rs = stm.executeQuery("select dt_liberacao, valor from imovel")) {
+                    rs.next();
+                    Assertions.assertEquals(18389, rs.getLong(1));
+                    Assertions.assertEquals(150000000L, rs.getLong(2));
+                }
+            }
+        }
+        finally {
+            DBConnection.close();
+            arquivo.delete();
+        }
+    }
+
+    @Test
+    void testEsquemaMaisNovoImpedeAberturaDoPool() throws Exception {
+        File arquivo = File.createTempFile("iptu-novo", ".db");
+
+        try {
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + arquivo.getPath());
+                 Statement stm = conn.createStatement()) {
+                stm.execute("pragma user_version = " + (Migracao.VERSAO + 1));
+            }
+
+            DBConnection.set("org.sqlite.JDBC", "jdbc:sqlite:" + arquivo.getPath());
+
+            Assertions.assertThrows(IllegalArgumentException.class, DBConnection::get);
+            Assertions.assertFalse(DBConnection.isAlive());
+        }
+        finally {
+            arquivo.delete();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package main.unidade.db;
+
+import main.db.Migracao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+class MigracaoTest {
+
+    private Connection conn;
+
+    @BeforeEach
+    void abreBD() throws Exception {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void fechaBD() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    void testCriaEsquemaEmBDVazio() throws Exception {
+        Assertions.assertEquals(0, Migracao.getVersao(conn));
+
+        Assertions.assertEquals(Migracao.VERSAO, Migracao.atualiza(conn));
+        Assertions.assertEquals(Migracao.VERSAO, Migracao.getVersao(conn));
+
+        try (Statement stm = conn.createStatement();
+             ResultSet rs = stm.executeQuery("select count(*) from imovel")) {
+            rs.next();
+            Assertions.assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testConverteDataEValorDoEsquemaOriginal() throws Exception {
+        try (Statement stm = conn.createStatement()) {
+            stm.execute("create table imovel (id integer primary key autoincrement, inscricao integer not null unique, "
+                    + "dt_liberacao text not null, valor decimal(10,2) not null, area integer not null, categoria char not null)");
+            stm.execute("insert into imovel values(1, 12345678, '20200507', 1500000, 500, 'A')");
+            stm.execute("insert into imovel values(5, 56789012, '19670427', 2300.55, 40, 'E')");
+        }
+
+        Migracao.atualiza(conn);
+
+        try (Statement stm = conn.createStatement();
+             ResultSet rs = stm.executeQuery("select id, inscricao, dt_liberacao, valor, area, categoria, typeof(dt_liberacao), typeof(valor) from imovel order by id")) {
+            Assertions.assertTrue(rs.next());
+            Assertions.assertEquals(1, rs.getInt(1));
+            Assertions.assertEquals(LocalDate.of(2020, 5, 7).toEpochDay(), rs.getLong(3));
+            Assertions.assertEquals(150000000L, rs.getLong(4));
+            Assertions.assertEquals("integer", rs.getString(7));
+            Assertions.assertEquals("integer", rs.getString(8));
+
+            Assertions.assertTrue(rs.next());
+            Assertions.assertEquals(5, rs.getInt(1));
+            Assertions.assertEquals(LocalDate.of(1967, 4, 27).toEpochDay(), rs.getLong(3));
+            Assertions.assertEquals(230055L, rs.getLong(4));
+            Assertions.assertEquals('E', rs.getString(6).charAt(0));
+
+            Assertions.assertFalse(rs.next());
+        }
+
+        // Os IDs novos continuam depois do maior ID migrado
+        try (Statement stm = conn.createStatement()) {
+            stm.execute("insert into imovel (inscricao, dt_liberacao, valor, area, categoria) values (23456789, 0, 100, 10, 'B')");
+            try (ResultSet rs = stm.executeQuery("select max(id) from imovel")) {
+                rs.next();
+                Assertions.assertEquals(6, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void testMantemSequenciaDosIDsExcluidos() throws Exception {
+        try (Statement stm = conn.createStatement()) {
+            stm.execute("create table imovel (id integer primary key autoincrement, inscricao integer not null unique, "
+                    + "dt_liberacao text not null, valor decimal(10,2) not null, area integer not null, categoria char not null)");
+            stm.execute("insert into imovel (inscricao, dt_liberacao, valor, area, categoria) values (12345678, '20200507', 1500, 500, 'A')");
+            stm.execute("insert into imovel (inscricao, dt_liberacao, valor, area, categoria) values (56789012, '20200507', 1500, 500, 'A')");
+            stm.execute("insert into imovel (inscricao, dt_liberacao, valor, area, categoria) values (34567890, '20200507', 1500, 500, 'A')");
+            stm.execute("delete from imovel where id in (2, 3)");
+        }
+
+        Migracao.atualiza(conn);
+
+        // Os IDs excluídos antes da migração não são reaproveitados
+        try (Statement stm = conn.createStatement()) {
+            stm.execute("insert into imovel (inscricao, dt_liberacao, valor, area, categoria) values (23456789, 0, 100, 10, 'B')");
+            try (ResultSet rs = stm.executeQuery("select id from imovel where inscricao = 23456789")) {
+                rs.next();
+                Assertions.assertEquals(4, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void testAtualizaNovamenteNaoFazNada() throws Exception {
+        Migracao.atualiza(conn);
+
+        try (Statement stm = conn.createStatement()) {
+            stm.execute("insert into imovel (inscricao, dt_liberacao, valor, area, categoria) values (12345678, 18389, 150000000, 500, 'A')");
+        }
+
+        Assertions.assertEquals(Migracao.VERSAO, Migracao.atualiza(conn));
+
+        try (Statement stm = conn.createStatement();
+             ResultSet rs = stm.executeQuery("select dt_liberacao, valor from imovel")) {
+            rs.next();
+            Assertions.assertEquals(18389, rs.getLong(1));
+            Assertions.assertEquals(150000000L, rs.getLong(2));
+        }
+    }
+
+    @Test
+    void testCriaIndicesDasConsultasFiltradas() throws Exception {
+        Migracao.atualiza(conn);
+
+        try (Statement stm = conn.createStatement();
+             ResultSet rs = stm.executeQuery("explain query plan select count(*) from imovel where categoria = 'A' and valor between 100 and 200")) {
+            Assertions.assertTrue(rs.next());
+            Assertions.assertTrue(rs.getString("detail").contains("COVERING INDEX imovel_categoria"));
+        }
+
+        try (Statement stm = conn.createStatement();
+             ResultSet rs = stm.executeQuery("select count(*) from sqlite_master where type = 'index' and name in "
+                     + "('imovel_categoria', 'imovel_dt_liberacao', 'imovel_valor', 'imovel_area')")) {
+            rs.next();
+            Assertions.assertEquals(4, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testVersaoMaisNovaQueOSistema() throws Exception {
+        try (Statement stm = conn.createStatement()) {
+            stm.execute("pragma user_version = " + (Migracao.VERSAO + 1));
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Migracao.atualiza(conn));
+    }
+}
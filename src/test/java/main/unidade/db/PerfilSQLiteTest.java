@@ -0,0 +1,80 @@
+package main.unidade.db;
+
+import main.db.PerfilSQLite;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+class PerfilSQLiteTest {
+
+    private static String pragma(Connection conn, String nome) throws Exception {
+        try (Statement stm = conn.createStatement();
+             ResultSet rs = stm.executeQuery("pragma " + nome)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    void testPadraoNaoTemPragmas() {
+        Assertions.assertTrue(PerfilSQLite.PADRAO.getPragmas().isEmpty());
+    }
+
+    @Test
+    void testPragmasDoPerfil() {
+        PerfilSQLite p = PerfilSQLite.LEITURA.comCacheKiB(1024).comSynchronous(PerfilSQLite.Synchronous.FULL);
+
+        List<String> pragmas = p.getPragmas();
+
+        Assertions.assertEquals("pragma busy_timeout = 5000", pragmas.get(0));
+        Assertions.assertTrue(pragmas.contains("pragma journal_mode = WAL"));
+        Assertions.assertTrue(pragmas.contains("pragma synchronous = FULL"));
+        Assertions.assertTrue(pragmas.contains("pragma cache_size = -1024"));
+        Assertions.assertTrue(pragmas.contains("pragma mmap_size = 268435456"));
+        Assertions.assertTrue(pragmas.contains("pragma temp_store = MEMORY"));
+
+        // O perfil original não muda
+        Assertions.assertEquals(PerfilSQLite.Synchronous.NORMAL, PerfilSQLite.LEITURA.getSynchronous());
+    }
+
+    @Test
+    void testPorNome() {
+        Assertions.assertSame(PerfilSQLite.CARGA_EM_LOTE, PerfilSQLite.porNome("bulk-load"));
+        Assertions.assertSame(PerfilSQLite.LEITURA, PerfilSQLite.porNome("read-mostly"));
+        Assertions.assertSame(PerfilSQLite.PADRAO, PerfilSQLite.porNome("padrao"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PerfilSQLite.porNome("turbo"));
+    }
+
+    @Test
+    void testValoresInvalidos() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PerfilSQLite.PADRAO.comCacheKiB(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PerfilSQLite.PADRAO.comMmapSize(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PerfilSQLite.PADRAO.comBusyTimeout(-1));
+    }
+
+    @Test
+    void testAplicaNoSQLite() throws Exception {
+        File arquivo = File.createTempFile("perfil", ".db");
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + arquivo.getAbsolutePath())) {
+            PerfilSQLite.CARGA_EM_LOTE.aplica(conn);
+
+            Assertions.assertEquals("wal", pragma(conn, "journal_mode"));
+            Assertions.assertEquals("0", pragma(conn, "synchronous"));
+            Assertions.assertEquals("-131072", pragma(conn, "cache_size"));
+            Assertions.assertEquals("2", pragma(conn, "temp_store"));
+            Assertions.assertEquals("30000", pragma(conn, "busy_timeout"));
+        }
+        finally {
+            arquivo.delete();
+            new File(arquivo.getPath() + "-wal").delete();
+            new File(arquivo.getPath() + "-shm").delete();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package main.unidade.factory;
+
+import main.db.DBConnection;
+import main.factory.ImovelAsync;
+import main.factory.ImovelFactory;
+import main.model.Imovel;
+import main.model.ImovelDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ImovelAsyncTest {
+
+    @AfterEach
+    void restauraPadrao() {
+        ImovelAsync.setConcorrencia(0);
+        ImovelFactory.setCache(0);
+    }
+
+    @Test
+    void testConcorrenciaPadraoEOTamanhoDoPool() {
+        ImovelAsync.setConcorrencia(0);
+        Assertions.assertEquals(DBConnection.getMaxPoolSize(), ImovelAsync.getConcorrencia());
+    }
+
+    @Test
+    void testConcorrenciaPadraoAcompanhaOPool() {
+        ImovelAsync.setConcorrencia(0);
+
+        try {
+            DBConnection.setPool(DBConnection.MIN_POOL_SIZE, 3, DBConnection.BORROW_TIMEOUT);
+            Assertions.assertEquals(3, ImovelAsync.getConcorrencia());
+
+            // Limite explícito não muda com o pool
+            ImovelAsync.setConcorrencia(5);
+            DBConnection.setPool(DBConnection.MIN_POOL_SIZE, 4, DBConnection.BORROW_TIMEOUT);
+            Assertions.assertEquals(5, ImovelAsync.getConcorrencia());
+        } finally {
+            DBConnection.setPool(DBConnection.MIN_POOL_SIZE, DBConnection.MAX_POOL_SIZE, DBConnection.BORROW_TIMEOUT);
+        }
+    }
+
+    @Test
+    void testTrocaDeConcorrenciaNaoRecusaOperacoes() throws Exception {
+        List<CompletableFuture<Integer>> resultados = java.util.Collections.synchronizedList(new ArrayList<>());
+
+        Thread submissor = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                int n = i;
+                resultados.add(ImovelAsync.executa(() -> n));
+            }
+        });
+
+        submissor.start();
+
+        for (int i = 0; submissor.isAlive(); i++)
+            ImovelAsync.setConcorrencia(1 + i % 4);
+
+        submissor.join();
+
+        Assertions.assertEquals(2000, resultados.size());
+        Assertions.assertEquals(1999 * 1000, resultados.stream().mapToInt(CompletableFuture::join).sum());
+    }
+
+    @Test
+    void testLimitaOperacoesSimultaneas() {
+        ImovelAsync.setConcorrencia(2);
+
+        AtomicInteger emExecucao = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        List<CompletableFuture<Integer>> resultados = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+
+            resultados.add(ImovelAsync.executa(() -> {
+                maximo.accumulateAndGet(emExecucao.incrementAndGet(), Math::max);
+
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                emExecucao.decrementAndGet();
+                return n;
+            }));
+        }
+
+        int soma = resultados.stream().mapToInt(CompletableFuture::join).sum();
+
+        Assertions.assertEquals(190, soma);
+        Assertions.assertTrue(maximo.get() <= 2);
+        Assertions.assertEquals(0, ImovelAsync.getEmExecucao());
+    }
+
+    @Test
+    void testErroCompletaOResultado() {
+        CompletableFuture<Object> f = ImovelAsync.executa(() -> {
+            throw new IllegalArgumentException("Erro");
+        });
+
+        CompletionException e = Assertions.assertThrows(CompletionException.class, f::join);
+        Assertions.assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void testGetByIDAsyncUsaCache() {
+        ImovelFactory.setCache(10);
+
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 7;
+        dto.inscricao = 12345678;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 1000f;
+        dto.area = 80;
+        dto.categoria = 'A';
+        Imovel imovel = new Imovel(dto);
+        ImovelFactory.atualizaCache(imovel);
+
+        Assertions.assertSame(imovel, ImovelAsync.getByIDAsync(7).join());
+        Assertions.assertSame(imovel, ImovelAsync.getByInscricaoAsync(12345678).join());
+        Assertions.assertSame(imovel, ImovelAsync.getByIDsAsync(new int[] { 7 }).join().get(7));
+    }
+
+    @Test
+    void testGravacaoDentroDaTransacaoERecusada() {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 7;
+        dto.inscricao = 12345678;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 1000f;
+        dto.area = 80;
+        dto.categoria = 'A';
+        Imovel imovel = new Imovel(dto);
+
+        try (MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::emTransacao).thenReturn(true);
+
+            // Rodariam em outra conexão e escapariam do rollback da transação
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelAsync.saveAsync(imovel));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelAsync.deleteAsync(imovel));
+
+            dbMock.verify(DBConnection::get, Mockito.never());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package main.unidade.factory;
+
+import main.factory.ImovelCache;
+import main.model.Imovel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+class ImovelCacheTest {
+
+    private static Imovel imovel(int id, int inscricao) {
+        Imovel imovel = new Imovel(inscricao, LocalDate.of(2020, 1, 1), 1000f, 100, 'A');
+        imovel.setID(id);
+        return imovel;
+    }
+
+    @Test
+    void testCapacidadeInvalida() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ImovelCache(0));
+    }
+
+    @Test
+    void testBuscaPorIDEPorInscricao() {
+        ImovelCache cache = new ImovelCache(10);
+        Imovel imovel = imovel(1, 12345678);
+
+        cache.put(imovel);
+
+        Assertions.assertSame(imovel, cache.getByID(1));
+        Assertions.assertSame(imovel, cache.getByInscricao(12345678));
+        Assertions.assertNull(cache.getByID(2));
+        Assertions.assertEquals(2, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testRemoveUsadoHaMaisTempo() {
+        ImovelCache cache = new ImovelCache(2);
+        cache.put(imovel(1, 11111111));
+        cache.put(imovel(2, 22222222));
+
+        // Acessa o 1 para que o 2 seja o usado há mais tempo
+        cache.getByID(1);
+        cache.put(imovel(3, 33333333));
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertNotNull(cache.getByID(1));
+        Assertions.assertNull(cache.getByID(2));
+        Assertions.assertNull(cache.getByInscricao(22222222));
+        Assertions.assertNotNull(cache.getByInscricao(33333333));
+    }
+
+    @Test
+    void testPutIfAbsentMantemInstancia() {
+        ImovelCache cache = new ImovelCache(10);
+        Imovel primeiro = imovel(1, 12345678);
+        Imovel segundo = imovel(1, 12345678);
+
+        Assertions.assertSame(primeiro, cache.putIfAbsent(primeiro));
+        Assertions.assertSame(primeiro, cache.putIfAbsent(segundo));
+    }
+
+    @Test
+    void testPutReindexaInscricaoAlterada() {
+        ImovelCache cache = new ImovelCache(10);
+        Imovel imovel = imovel(1, 12345678);
+        cache.put(imovel);
+
+        imovel.setInscricao(87654321);
+        cache.put(imovel);
+
+        Assertions.assertNull(cache.getByInscricao(12345678));
+        Assertions.assertSame(imovel, cache.getByInscricao(87654321));
+    }
+
+    @Test
+    void testRemove() {
+        ImovelCache cache = new ImovelCache(10);
+        cache.put(imovel(1, 12345678));
+
+        cache.remove(1);
+
+        Assertions.assertNull(cache.getByID(1));
+        Assertions.assertNull(cache.getByInscricao(12345678));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testImovelNaoPersistente() {
+        ImovelCache cache = new ImovelCache(10);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cache.put(imovel(0, 12345678)));
+    }
+}
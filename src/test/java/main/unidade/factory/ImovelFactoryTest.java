@@ -1,7 +1,9 @@
 package main.unidade.factory;
 
 import main.dao.ImovelDAO;
+import main.db.DBConnection;
 import main.factory.ImovelFactory;
+import main.factory.ResultadoBusca;
 import main.model.Imovel;
 import main.model.ImovelDTO;
 import org.junit.jupiter.api.Assertions;
@@ -10,6 +12,13 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 class ImovelFactoryTest {
 
@@ -91,4 +100,245 @@ class ImovelFactoryTest {
             Assertions.assertNull(result);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCacheAtendeIDEInscricao() {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 3;
+        dto.inscricao = 34567890;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 1000f;
+        dto.area = 80;
+        dto.categoria = 'C';
+
+        ImovelFactory.setCache(10);
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.getByID(3)).thenReturn(dto);
+
+            Imovel porID = ImovelFactory.getByID(3);
+            Imovel denovo = ImovelFactory.getByID(3);
+            Imovel porInscricao = ImovelFactory.getByInscricao(34567890);
+
+            Assertions.assertSame(porID, denovo);
+            Assertions.assertSame(porID, porInscricao);
+            daoMock.verify(() -> ImovelDAO.getByID(3), Mockito.times(1));
+            daoMock.verify(() -> ImovelDAO.getByInscricao(Mockito.anyInt()), Mockito.never());
+            Assertions.assertEquals(2, ImovelFactory.getCache().getHits());
+            Assertions.assertEquals(1, ImovelFactory.getCache().getMisses());
+        } finally {
+            ImovelFactory.setCache(0);
+        }
+    }
+
+    @Test
+    void testSaveEDeleteAtualizamCache() {
+        ImovelFactory.setCache(10);
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.insert(Mockito.any(Imovel.class))).thenReturn(5);
+            daoMock.when(() -> ImovelDAO.delete(Mockito.any(Imovel.class))).thenReturn(true);
+
+            Imovel imovel = ImovelFactory.create(56789012, LocalDate.of(2020, 1, 1), 1000f, 80, 'E');
+            imovel.save();
+
+            Assertions.assertSame(imovel, ImovelFactory.getByID(5));
+            Assertions.assertSame(imovel, ImovelFactory.getByInscricao(56789012));
+
+            imovel.delete();
+
+            Assertions.assertEquals(0, ImovelFactory.getCache().size());
+        } finally {
+            ImovelFactory.setCache(0);
+        }
+    }
+
+    @Test
+    void testDentroDaTransacaoNaoUsaCache() {
+        ImovelFactory.setCache(10);
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class);
+             MockedStatic<DBConnection> dbMock = Mockito.mockStatic(DBConnection.class)) {
+            dbMock.when(DBConnection::emTransacao).thenReturn(true);
+            daoMock.when(() -> ImovelDAO.getByID(3)).thenReturn(dto(3, 34567890));
+            daoMock.when(() -> ImovelDAO.getByIDs(Mockito.any(int[].class))).thenReturn(Map.of(3, dto(3, 34567890)));
+
+            // A linha lida pode não ter sido confirmada: não vai para o cache
+            Imovel primeiro = ImovelFactory.getByID(3);
+            Imovel segundo = ImovelFactory.getByID(3);
+            ImovelFactory.getByIDs(new int[] { 3 });
+
+            Assertions.assertNotSame(primeiro, segundo);
+            Assertions.assertEquals(0, ImovelFactory.getCache().size());
+            daoMock.verify(() -> ImovelDAO.getByID(3), Mockito.times(2));
+        } finally {
+            ImovelFactory.setCache(0);
+        }
+    }
+
+    private static ImovelDTO dto(int id, int inscricao) {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = id;
+        dto.inscricao = inscricao;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 1000f;
+        dto.area = 80;
+        dto.categoria = 'C';
+        return dto;
+    }
+
+    @Test
+    void testGetByIDsInformaAusentes() {
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.getByIDs(new int[] {1, 2, 3}))
+                    .thenReturn(Map.of(1, dto(1, 12345678), 3, dto(3, 34567890)));
+
+            ResultadoBusca r = ImovelFactory.getByIDs(List.of(1, 2, 3, 1));
+
+            Assertions.assertEquals(List.of(1, 3), List.copyOf(r.imoveis.keySet()));
+            Assertions.assertEquals(34567890, r.get(3).getInscricao());
+            Assertions.assertArrayEquals(new int[] {2}, r.ausentes);
+            Assertions.assertTrue(r.temAusentes());
+        }
+    }
+
+    @Test
+    void testGetByInscricoesConsultaCachePrimeiro() {
+        ImovelFactory.setCache(10);
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.getByID(1)).thenReturn(dto(1, 12345678));
+            daoMock.when(() -> ImovelDAO.getByInscricoes(new int[] {23456789}))
+                    .thenReturn(Map.of(23456789, dto(2, 23456789)));
+
+            Imovel emCache = ImovelFactory.getByID(1);
+
+            ResultadoBusca r = ImovelFactory.getByInscricoes(new int[] {12345678, 23456789});
+
+            Assertions.assertSame(emCache, r.get(12345678));
+            Assertions.assertEquals(2, r.get(23456789).getID());
+            Assertions.assertFalse(r.temAusentes());
+
+            // O imóvel buscado no BD também vai para o cache
+            Assertions.assertSame(r.get(23456789), ImovelFactory.getByID(2));
+            daoMock.verify(() -> ImovelDAO.getByInscricoes(Mockito.any()), Mockito.times(1));
+        } finally {
+            ImovelFactory.setCache(0);
+        }
+    }
+
+    @Test
+    void testGetByIDsTodosNoCacheNaoConsultaBD() {
+        ImovelFactory.setCache(10);
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.getByID(1)).thenReturn(dto(1, 12345678));
+            ImovelFactory.getByID(1);
+
+            ResultadoBusca r = ImovelFactory.getByIDs(new int[] {1});
+
+            Assertions.assertEquals(1, r.imoveis.size());
+            daoMock.verify(() -> ImovelDAO.getByIDs(Mockito.any()), Mockito.never());
+        } finally {
+            ImovelFactory.setCache(0);
+        }
+    }
+
+    @Test
+    void testGetByIDSimultaneosCompartilhamConsulta() throws Exception {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 5;
+        dto.inscricao = 12345678;
+        dto.dataLiberacao = LocalDate.now();
+        dto.valor = 1000f;
+        dto.area = 80;
+        dto.categoria = 'A';
+
+        int outras = 4;
+        long antes = ImovelFactory.getCoalescidas();
+        ExecutorService pool = Executors.newFixedThreadPool(outras);
+        List<Future<Imovel>> resultados = new ArrayList<>();
+
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            // Enquanto a consulta desta thread está em andamento, as outras pedem o mesmo ID
+            // O mock estático só vale nesta thread: as outras só conseguem o imóvel pela consulta compartilhada
+            daoMock.when(() -> ImovelDAO.getByID(5)).thenAnswer(inv -> {
+                for (int i = 0; i < outras; i++)
+                    resultados.add(pool.submit(() -> ImovelFactory.getByID(5)));
+
+                long limite = System.currentTimeMillis() + 5000;
+
+                while (ImovelFactory.getCoalescidas() - antes < outras && System.currentTimeMillis() < limite)
+                    Thread.sleep(1);
+
+                return dto;
+            });
+
+            Imovel result = ImovelFactory.getByID(5);
+            Assertions.assertEquals(12345678, result.getInscricao());
+
+            for (Future<Imovel> f : resultados)
+                Assertions.assertEquals(12345678, f.get().getInscricao());
+
+            daoMock.verify(() -> ImovelDAO.getByID(5), Mockito.times(1));
+            Assertions.assertEquals(outras, ImovelFactory.getCoalescidas() - antes);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testGetByInscricaoErroNaoFicaEmAndamento() {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 5;
+        dto.inscricao = 12345678;
+        dto.dataLiberacao = LocalDate.now();
+        dto.valor = 1000f;
+        dto.area = 80;
+        dto.categoria = 'A';
+
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.getByInscricao(12345678))
+                    .thenThrow(new IllegalArgumentException("DB error"))
+                    .thenReturn(dto);
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ImovelFactory.getByInscricao(12345678));
+            Assertions.assertEquals(5, ImovelFactory.getByInscricao(12345678).getID());
+        }
+    }
+
+    @Test
+    void testRemoveDoCacheDescartaConsultaPelaInscricao() throws Exception {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 5;
+        dto.inscricao = 12345678;
+        dto.dataLiberacao = LocalDate.now();
+        dto.valor = 1000f;
+        dto.area = 80;
+        dto.categoria = 'A';
+
+        long antes = ImovelFactory.getCoalescidas();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.getByInscricao(12345678)).thenAnswer(inv -> {
+                // O imóvel é excluído enquanto a consulta está em andamento
+                ImovelFactory.removeDoCache(5, 12345678);
+
+                // Quem pede a inscrição depois da exclusão faz uma consulta nova, sem esperar por esta
+                Future<Object> depois = pool.submit(() -> {
+                    try {
+                        return ImovelFactory.getByInscricao(12345678);
+                    } catch (RuntimeException e) {
+                        return e;
+                    }
+                });
+
+                depois.get(5, TimeUnit.SECONDS);
+                return dto;
+            });
+
+            Assertions.assertEquals(5, ImovelFactory.getByInscricao(12345678).getID());
+            Assertions.assertEquals(0, ImovelFactory.getCoalescidas() - antes);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package main.unidade.model;
+
+import main.dao.AliquotaDAO;
+import main.dao.ImovelDAO;
+import main.model.CalculoIPTULote;
+import main.model.IPTU;
+import main.model.Imovel;
+import main.model.ImovelDTO;
+import main.model.TabelaAliquotas;
+import main.model.ValorIPTU;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+class CalculoIPTULoteTest {
+
+    private static final char[] CATEGORIAS = {'A', 'B', 'C', 'D', 'Z'};
+
+    private static List<Imovel> imoveis(int quantidade) {
+        List<Imovel> imoveis = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            imoveis.add(new Imovel(10000000 + i, LocalDate.now().minusYears(i % 60), 50000f + i * 37, 20 + i % 300, CATEGORIAS[i % CATEGORIAS.length]));
+        }
+        return imoveis;
+    }
+
+    private static void confere(Imovel imovel, ValorIPTU valor) {
+        ValorIPTU esperado = new IPTU(imovel).calculaValor(10f, 5f);
+        Assertions.assertEquals(esperado.valor, valor.valor);
+        Assertions.assertEquals(esperado.valorAVista, valor.valorAVista);
+        Assertions.assertEquals(esperado.parcelamento.getNumParcelas(), valor.parcelamento.getNumParcelas());
+        Assertions.assertEquals(esperado.parcelamento.getValorParcela(), valor.parcelamento.getValorParcela());
+    }
+
+    @Test
+    void testCalculaColecaoEmParalelo() {
+        List<Imovel> imoveis = imoveis(5000);
+        Map<Imovel, ValorIPTU> resultados = new ConcurrentHashMap<>();
+
+        long total = new CalculoIPTULote(10f, 5f, 4, 100).calcula(imoveis, resultados::put);
+
+        Assertions.assertEquals(5000, total);
+        Assertions.assertEquals(5000, resultados.size());
+        for (Imovel imovel : imoveis)
+            confere(imovel, resultados.get(imovel));
+    }
+
+    @Test
+    void testCalculaStreamEFechaOrigem() {
+        AtomicBoolean fechado = new AtomicBoolean(false);
+        Stream<ImovelDTO> origem = IntStream.range(0, 777).mapToObj(i -> {
+            ImovelDTO dto = new ImovelDTO();
+            dto.id = i + 1;
+            dto.inscricao = 20000000 + i;
+            dto.dataLiberacao = LocalDate.of(2000, 1, 1);
+            dto.valor = 100000f;
+            dto.area = 60;
+            dto.categoria = 'B';
+            return dto;
+        }).onClose(() -> fechado.set(true));
+
+        Map<Integer, ValorIPTU> resultados = new ConcurrentHashMap<>();
+        long total = new CalculoIPTULote(10f, 5f, 3, 64).calcula(origem, (imovel, valor) -> resultados.put(imovel.getID(), valor));
+
+        Assertions.assertEquals(777, total);
+        Assertions.assertEquals(777, resultados.size());
+        Assertions.assertTrue(fechado.get());
+    }
+
+    @Test
+    void testUsaExecutorInformadoSemEncerrar() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Map<Imovel, ValorIPTU> resultados = new ConcurrentHashMap<>();
+            new CalculoIPTULote(0f, 0f, 2, 10, executor).calcula(imoveis(95), resultados::put);
+
+            Assertions.assertEquals(95, resultados.size());
+            Assertions.assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testErroNoDestinoInterrompeCalculo() {
+        CalculoIPTULote calculo = new CalculoIPTULote(0f, 0f, 2, 10);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> calculo.calcula(imoveis(100), (imovel, valor) -> {
+            throw new IllegalStateException("Destino indisponível");
+        }));
+    }
+
+    @Test
+    void testCalculaBasePorColunas() {
+        List<Imovel> imoveis = imoveis(2500);
+        Map<Integer, float[]> resultados = new ConcurrentHashMap<>();
+
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.leColunasCalculo(Mockito.anyInt(), Mockito.any())).thenAnswer(inv -> {
+                ImovelDAO.LeitorCalculo leitor = inv.getArgument(1);
+                for (Imovel i : imoveis)
+                    leitor.linha(i.getInscricao(), i.getValor(), i.getArea(), i.getCategoria(), i.getDataLiberacao().toEpochDay());
+                return (long) imoveis.size();
+            });
+
+            long total = new CalculoIPTULote(10f, 5f, 3, 100).calculaBase((inscricao, valor, valorAVista, numParcelas, valorParcela, tamanho) -> {
+                for (int i = 0; i < tamanho; i++)
+                    resultados.put(inscricao[i], new float[] {valor[i], valorAVista[i], numParcelas[i], valorParcela[i]});
+            });
+
+            Assertions.assertEquals(2500, total);
+        }
+
+        Assertions.assertEquals(2500, resultados.size());
+        for (Imovel imovel : imoveis) {
+            ValorIPTU esperado = new IPTU(imovel).calculaValor(10f, 5f);
+            float[] r = resultados.get(imovel.getInscricao());
+            Assertions.assertEquals(esperado.valor, r[0]);
+            Assertions.assertEquals(esperado.valorAVista, r[1]);
+            Assertions.assertEquals(esperado.parcelamento.getNumParcelas(), (int) r[2]);
+            Assertions.assertEquals(esperado.parcelamento.getValorParcela(), r[3]);
+        }
+    }
+
+    @Test
+    void testErroNoDestinoDaBaseInterrompeCalculo() {
+        try (MockedStatic<ImovelDAO> daoMock = Mockito.mockStatic(ImovelDAO.class)) {
+            daoMock.when(() -> ImovelDAO.leColunasCalculo(Mockito.anyInt(), Mockito.any())).thenAnswer(inv -> {
+                ImovelDAO.LeitorCalculo leitor = inv.getArgument(1);
+                for (int i = 0; i < 1000; i++)
+                    leitor.linha(10000000 + i, 100000f, 60, 'A', 0);
+                return 1000L;
+            });
+
+            CalculoIPTULote calculo = new CalculoIPTULote(0f, 0f, 2, 10);
+            Assertions.assertThrows(IllegalStateException.class, () -> calculo.calculaBase((inscricao, valor, valorAVista, numParcelas, valorParcela, tamanho) -> {
+                throw new IllegalStateException("Destino indisponível");
+            }));
+        }
+    }
+
+    @Test
+    void testParametrosInvalidos() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CalculoIPTULote(-1f, 0f));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CalculoIPTULote(0f, -1f));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CalculoIPTULote(0f, 0f, 0, 10));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CalculoIPTULote(0f, 0f, 2, 0));
+    }
+
+    @Test
+    void testDoBDCarregaAliquotasDoExercicio() {
+        float[] multiplicador = new float[26];
+        java.util.Arrays.fill(multiplicador, 2f);
+        TabelaAliquotas doBD = new TabelaAliquotas(2027, 100, 10, 0.1f, 10, 0.05f, multiplicador, new boolean[26]);
+
+        try (MockedStatic<AliquotaDAO> daoMock = Mockito.mockStatic(AliquotaDAO.class)) {
+            daoMock.when(() -> AliquotaDAO.getByExercicio(2028)).thenReturn(doBD);
+
+            // Só doBD consulta o BD; os construtores usam as tabelas já registradas
+            Assertions.assertSame(TabelaAliquotas.PADRAO, new CalculoIPTULote(10f, 5f, 2028, 1, 10, null).getAliquotas());
+            daoMock.verifyNoInteractions();
+
+            Assertions.assertSame(doBD, CalculoIPTULote.doBD(10f, 5f, 2028, 1, 10, null).getAliquotas());
+            daoMock.verify(() -> AliquotaDAO.getByExercicio(2028), Mockito.times(1));
+        } finally {
+            TabelaAliquotas.limpa();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package main.unidade.model;
+
+import main.model.CalculoIPTULote;
+import main.model.ExportadorIPTU;
+import main.model.Imovel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+class ExportadorIPTUTest {
+
+    private Path arquivo;
+
+    @BeforeEach
+    void criaArquivo() throws Exception {
+        arquivo = Files.createTempFile("iptu", ".txt");
+    }
+
+    @AfterEach
+    void apagaArquivo() throws Exception {
+        Files.deleteIfExists(arquivo);
+    }
+
+    private List<String> leGzip() throws Exception {
+        List<String> linhas = new ArrayList<>();
+
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(arquivo)), StandardCharsets.US_ASCII))) {
+            for (String l = r.readLine(); l != null; l = r.readLine())
+                linhas.add(l);
+        }
+
+        return linhas;
+    }
+
+    @Test
+    void testLayoutCSV() throws Exception {
+        try (ExportadorIPTU e = new ExportadorIPTU(arquivo, ExportadorIPTU.Layout.CSV, false)) {
+            e.escreve(12345678, 1234.56f, 1111.1f, 10, 130f);
+            e.escreve(23456789, 0.07f, 0f, 3, 0.02f);
+            Assertions.assertEquals(2, e.getLinhas());
+        }
+
+        List<String> linhas = Files.readAllLines(arquivo);
+        Assertions.assertEquals(List.of(
+                "inscricao;valor;valor_a_vista;num_parcelas;valor_parcela",
+                "12345678;1234.56;1111.10;10;130.00",
+                "23456789;0.07;0.00;3;0.02"), linhas);
+    }
+
+    @Test
+    void testLayoutFixo() throws Exception {
+        try (ExportadorIPTU e = new ExportadorIPTU(arquivo, ExportadorIPTU.Layout.FIXO, false)) {
+            e.escreve(12345678, 1234.56f, 1111.1f, 5, 130f);
+
+            // Valor maior que o campo: a linha não é gravada
+            Assertions.assertThrows(IllegalArgumentException.class, () -> e.escreve(12345679, 1e12f, 0f, 3, 0f));
+        }
+
+        List<String> linhas = Files.readAllLines(arquivo);
+        Assertions.assertEquals(List.of("12345678" + "0000000123456" + "0000000111110" + "05" + "0000000013000"), linhas);
+    }
+
+    @Test
+    void testGzipComVariosDescarregamentos() throws Exception {
+        try (ExportadorIPTU e = new ExportadorIPTU(arquivo, ExportadorIPTU.Layout.CSV, true, 256)) {
+            for (int i = 0; i < 10000; i++)
+                e.escreve(10000000 + i, 100f + i, 90f, 3, 33.33f);
+        }
+
+        List<String> linhas = leGzip();
+        Assertions.assertEquals(10001, linhas.size());
+        Assertions.assertEquals("10000000;100.00;90.00;3;33.33", linhas.get(1));
+        Assertions.assertEquals("10009999;10099.00;90.00;3;33.33", linhas.get(10000));
+    }
+
+    @Test
+    void testDestinoDoCalculoEmLote() throws Exception {
+        List<Imovel> imoveis = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++)
+            imoveis.add(new Imovel(10000000 + i, LocalDate.of(2000, 1, 1), 100000f, 80, 'A'));
+
+        CalculoIPTULote calculo = new CalculoIPTULote(10f, 2f, 2026, 4, 64, null);
+
+        try (ExportadorIPTU e = new ExportadorIPTU(arquivo, ExportadorIPTU.Layout.CSV, true)) {
+            Assertions.assertEquals(500, calculo.calcula(imoveis, e));
+            Assertions.assertEquals(500, e.getLinhas());
+        }
+
+        Assertions.assertEquals(501, leGzip().size());
+    }
+
+    @Test
+    void testEscreveDepoisDeFechar() {
+        ExportadorIPTU e = new ExportadorIPTU(arquivo, ExportadorIPTU.Layout.CSV, false);
+        e.close();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> e.escreve(12345678, 1f, 1f, 3, 1f));
+    }
+}
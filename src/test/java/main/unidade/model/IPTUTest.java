@@ -3,6 +3,7 @@ package main.unidade.model;
 import main.model.IPTU;
 import main.model.Imovel;
 import main.model.ValorIPTU;
+import main.util.Relogio;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -102,4 +103,33 @@ class IPTUTest {
         Assertions.assertEquals(126f, valor.valorAVista, 0.01f);
         Assertions.assertNotNull(valor.parcelamento);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCalculaValorComExercicioInformado() {
+        Imovel imovel = new Imovel(12345678, LocalDate.of(2000, 6, 1), 100000f, 100, 'A');
+
+        // Idade 10 anos: mesmo resultado de testCalculaValorPadrao
+        ValorIPTU valor = new IPTU(imovel, 2010).calculaValor(0f, 0f);
+        Assertions.assertEquals(258.5f, valor.valor, 0.01f);
+
+        // Idade 170 anos: não calcula IPTU
+        Assertions.assertEquals(0f, new IPTU(imovel, 2170).calculaValor(0f, 0f).valor);
+    }
+
+    @Test
+    void testExercicioPadraoVemDoRelogio() {
+        Imovel imovel = new Imovel(12345678, LocalDate.of(2000, 6, 1), 100000f, 100, 'A');
+        try {
+            Relogio.fixa(LocalDate.of(2010, 12, 31));
+            IPTU iptu = new IPTU(imovel);
+
+            // Virar o ano depois de criado não muda o exercício do cálculo
+            Relogio.fixa(LocalDate.of(2011, 1, 1));
+
+            Assertions.assertEquals(2010, iptu.getExercicio());
+            Assertions.assertEquals(258.5f, iptu.calculaValor(0f, 0f).valor, 0.01f);
+        } finally {
+            Relogio.libera();
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package main.unidade.model;
 
 import main.dao.ImovelDAO;
+import main.db.DBConnection;
+import main.factory.ImovelFactory;
 import main.model.Imovel;
 import main.model.ImovelDTO;
+import main.util.Relogio;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 class ImovelTest {
 
@@ -159,4 +164,183 @@ class ImovelTest {
             mock.verify(() -> ImovelDAO.delete(imovel));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDataLiberacaoFuturaSegundoRelogio() {
+        try {
+            Relogio.fixa(LocalDate.of(2020, 1, 1));
+
+            Assertions.assertDoesNotThrow(() -> new Imovel(12345678, LocalDate.of(2020, 1, 1), 1000f, 50, 'A'));
+            Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    new Imovel(12345678, LocalDate.of(2020, 1, 2), 1000f, 50, 'A'));
+        } finally {
+            Relogio.libera();
+        }
+    }
+
+    @Test
+    void testSaveByInscricao() {
+        Imovel imovel = new Imovel(12345678, LocalDate.now().minusYears(1), 1000f, 50, 'A');
+        try (MockedStatic<ImovelDAO> mock = org.mockito.Mockito.mockStatic(ImovelDAO.class)) {
+            mock.when(() -> ImovelDAO.upsert(imovel)).thenReturn(7);
+            imovel.saveByInscricao();
+            Assertions.assertEquals(7, imovel.getID());
+            mock.verify(() -> ImovelDAO.insert(imovel), org.mockito.Mockito.never());
+            mock.verify(() -> ImovelDAO.getByInscricao(org.mockito.Mockito.anyInt()), org.mockito.Mockito.never());
+        }
+    }
+
+    @Test
+    void testSaveByInscricaoComFalha() {
+        Imovel imovel = new Imovel(12345678, LocalDate.now().minusYears(1), 1000f, 50, 'A');
+        imovel.setID(3);
+        try (MockedStatic<ImovelDAO> mock = org.mockito.Mockito.mockStatic(ImovelDAO.class)) {
+            mock.when(() -> ImovelDAO.upsert(imovel)).thenReturn(0);
+            imovel.saveByInscricao();
+            Assertions.assertEquals(3, imovel.getID());
+        }
+    }
+
+    private static Imovel carregado() {
+        ImovelDTO dto = new ImovelDTO();
+        dto.id = 5;
+        dto.inscricao = 87654321;
+        dto.dataLiberacao = LocalDate.of(2020, 1, 1);
+        dto.valor = 2000f;
+        dto.area = 80;
+        dto.categoria = 'B';
+        return new Imovel(dto);
+    }
+
+    @Test
+    void testAlterados() {
+        Imovel novo = new Imovel(12345678, LocalDate.now().minusYears(1), 1000f, 50, 'A');
+        Assertions.assertEquals(Imovel.TODOS, novo.getAlterados());
+
+        Imovel imovel = carregado();
+        Assertions.assertFalse(imovel.isAlterado());
+
+        // Setters com o mesmo valor não marcam o campo
+        imovel.setValor(2000f);
+        imovel.setDataLiberacao(LocalDate.of(2020, 1, 1));
+        Assertions.assertFalse(imovel.isAlterado());
+
+        imovel.setValor(2500f);
+        imovel.setCategoria('C');
+        Assertions.assertEquals(Imovel.VALOR | Imovel.CATEGORIA, imovel.getAlterados());
+    }
+
+    @Test
+    void testSaveSemAlteracaoNaoAcessaBD() {
+        Imovel imovel = carregado();
+        try (MockedStatic<ImovelDAO> mock = org.mockito.Mockito.mockStatic(ImovelDAO.class)) {
+            imovel.save();
+            mock.verifyNoInteractions();
+        }
+    }
+
+    @Test
+    void testSaveLimpaAlterados() {
+        Imovel imovel = carregado();
+        imovel.setArea(90);
+        try (MockedStatic<ImovelDAO> mock = org.mockito.Mockito.mockStatic(ImovelDAO.class)) {
+            mock.when(() -> ImovelDAO.update(imovel)).thenReturn(true);
+            imovel.save();
+            Assertions.assertFalse(imovel.isAlterado());
+
+            // Segunda gravação sem alterações não gera UPDATE
+            imovel.save();
+            mock.verify(() -> ImovelDAO.update(imovel), org.mockito.Mockito.times(1));
+        }
+    }
+
+    @Test
+    void testSaveComFalhaMantemAlterados() {
+        Imovel imovel = carregado();
+        imovel.setArea(90);
+        try (MockedStatic<ImovelDAO> mock = org.mockito.Mockito.mockStatic(ImovelDAO.class)) {
+            mock.when(() -> ImovelDAO.update(imovel)).thenReturn(false);
+            imovel.save();
+            Assertions.assertEquals(Imovel.AREA, imovel.getAlterados());
+        }
+    }
+
+    /*
+     * Simula a transação de DBConnection.inTransaction: guarda as ações de aoTerminar
+     */
+    private static MockedStatic<DBConnection> emTransacao(List<Runnable> confirmar, List<Runnable> desfazer) {
+        MockedStatic<DBConnection> db = org.mockito.Mockito.mockStatic(DBConnection.class);
+        db.when(DBConnection::emTransacao).thenReturn(true);
+        db.when(() -> DBConnection.aoTerminar(org.mockito.Mockito.any(), org.mockito.Mockito.any())).thenAnswer(i -> {
+            confirmar.add(i.getArgument(0));
+            desfazer.add(i.getArgument(1));
+            return null;
+        });
+        return db;
+    }
+
+    @Test
+    void testSaveNaTransacaoDesfeitaRestauraObjeto() {
+        List<Runnable> confirmar = new ArrayList<>();
+        List<Runnable> desfazer = new ArrayList<>();
+        Imovel imovel = new Imovel(12345678, LocalDate.now().minusYears(1), 1000f, 50, 'A');
+
+        try (MockedStatic<DBConnection> db = emTransacao(confirmar, desfazer);
+             MockedStatic<ImovelDAO> dao = org.mockito.Mockito.mockStatic(ImovelDAO.class);
+             MockedStatic<ImovelFactory> cache = org.mockito.Mockito.mockStatic(ImovelFactory.class)) {
+            dao.when(() -> ImovelDAO.insert(imovel)).thenReturn(42);
+
+            imovel.save();
+            Assertions.assertEquals(42, imovel.getID());
+
+            // O cache só muda depois do commit
+            cache.verifyNoInteractions();
+
+            desfazer.forEach(Runnable::run);
+            Assertions.assertEquals(0, imovel.getID());
+            Assertions.assertEquals(Imovel.TODOS, imovel.getAlterados());
+            cache.verifyNoInteractions();
+        }
+    }
+
+    @Test
+    void testSaveNaTransacaoConfirmadaAtualizaCache() {
+        List<Runnable> confirmar = new ArrayList<>();
+        List<Runnable> desfazer = new ArrayList<>();
+        Imovel imovel = carregado();
+        imovel.setArea(90);
+
+        try (MockedStatic<DBConnection> db = emTransacao(confirmar, desfazer);
+             MockedStatic<ImovelDAO> dao = org.mockito.Mockito.mockStatic(ImovelDAO.class);
+             MockedStatic<ImovelFactory> cache = org.mockito.Mockito.mockStatic(ImovelFactory.class)) {
+            dao.when(() -> ImovelDAO.update(imovel)).thenReturn(true);
+
+            imovel.save();
+            cache.verifyNoInteractions();
+
+            confirmar.forEach(Runnable::run);
+            cache.verify(() -> ImovelFactory.atualizaCache(imovel));
+            Assertions.assertFalse(imovel.isAlterado());
+        }
+    }
+
+    @Test
+    void testDeleteNaTransacaoDesfeitaRestauraID() {
+        List<Runnable> confirmar = new ArrayList<>();
+        List<Runnable> desfazer = new ArrayList<>();
+        Imovel imovel = carregado();
+
+        try (MockedStatic<DBConnection> db = emTransacao(confirmar, desfazer);
+             MockedStatic<ImovelDAO> dao = org.mockito.Mockito.mockStatic(ImovelDAO.class);
+             MockedStatic<ImovelFactory> cache = org.mockito.Mockito.mockStatic(ImovelFactory.class)) {
+            dao.when(() -> ImovelDAO.delete(imovel)).thenReturn(true);
+
+            imovel.delete();
+            Assertions.assertEquals(0, imovel.getID());
+
+            desfazer.forEach(Runnable::run);
+            Assertions.assertEquals(5, imovel.getID());
+            cache.verifyNoInteractions();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package main.unidade.model;
+
+import main.model.IPTU;
+import main.model.Imovel;
+import main.model.KernelIPTU;
+import main.model.ValorIPTU;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+class KernelIPTUTest {
+
+    @ParameterizedTest
+    @ValueSource(floats = {0f, 0.7f, 5f, 12.5f})
+    void testResultadosIdenticosACalculaValor(float percJuros) {
+        Random random = new Random(20240101L + Float.floatToIntBits(percJuros));
+        int n = 20000;
+        int ano = LocalDate.now().getYear();
+        long hoje = LocalDate.now().toEpochDay();
+
+        float[] valor = new float[n];
+        int[] area = new int[n];
+        char[] categoria = new char[n];
+        long[] dtLiberacao = new long[n];
+        Imovel[] imoveis = new Imovel[n];
+
+        for (int i = 0; i < n; i++) {
+            valor[i] = 1 + random.nextFloat() * 5_000_000f;
+            area[i] = 1 + random.nextInt(2000);
+            categoria[i] = (char) ('A' + random.nextInt(26));
+            dtLiberacao[i] = hoje - random.nextInt(250 * 366);
+            imoveis[i] = new Imovel(10000000 + i, LocalDate.ofEpochDay(dtLiberacao[i]), valor[i], area[i], categoria[i]);
+        }
+
+        float[] valorIPTU = new float[n];
+        float[] valorAVista = new float[n];
+        int[] numParcelas = new int[n];
+        float[] valorParcela = new float[n];
+
+        KernelIPTU.calcula(valor, area, categoria, dtLiberacao, 0, n, ano, 10f, percJuros,
+                valorIPTU, valorAVista, numParcelas, valorParcela);
+
+        for (int i = 0; i < n; i++) {
+            ValorIPTU esperado = new IPTU(imoveis[i]).calculaValor(10f, percJuros);
+
+            // assertEquals(float, float) compara os bits dos valores
+            Assertions.assertEquals(esperado.valor, valorIPTU[i], "valor " + imoveis[i]);
+            Assertions.assertEquals(esperado.valorAVista, valorAVista[i], "valorAVista " + imoveis[i]);
+            Assertions.assertEquals(esperado.parcelamento.getNumParcelas(), numParcelas[i], "numParcelas " + imoveis[i]);
+            Assertions.assertEquals(esperado.parcelamento.getValorParcela(), valorParcela[i], "valorParcela " + imoveis[i]);
+        }
+    }
+
+    @Test
+    void testCalculaSomenteIntervalo() {
+        float[] valor = {100000f, 100000f, 100000f};
+        int[] area = {100, 100, 100};
+        char[] categoria = {'A', 'A', 'A'};
+        long[] dtLiberacao = new long[3];
+        float[] valorIPTU = new float[3];
+        float[] valorAVista = new float[3];
+        int[] numParcelas = new int[3];
+        float[] valorParcela = new float[3];
+
+        KernelIPTU.calcula(valor, area, categoria, dtLiberacao, 1, 2, 1970, 0f, 0f,
+                valorIPTU, valorAVista, numParcelas, valorParcela);
+
+        Assertions.assertEquals(0f, valorIPTU[0]);
+        Assertions.assertEquals(275f, valorIPTU[1]);
+        Assertions.assertEquals(0f, valorIPTU[2]);
+    }
+
+    @Test
+    void testAnoIgualAoDeLocalDate() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            long dia = random.nextInt(2_000_000) - 1_000_000;
+            Assertions.assertEquals(LocalDate.ofEpochDay(dia).getYear(), KernelIPTU.ano(dia));
+        }
+    }
+
+    @Test
+    void testParametrosInvalidos() {
+        float[] f = new float[1];
+        int[] a = new int[1];
+        char[] c = {'A'};
+        long[] d = new long[1];
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> KernelIPTU.calcula(f, a, c, d, 0, 1, 2024, 101f, 0f, f, f, a, f));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> KernelIPTU.calcula(f, a, c, d, 0, 1, 2024, 0f, -1f, f, f, a, f));
+    }
+}
@@ -62,4 +62,27 @@ class ParcelamentoTest {
         Parcelamento p = new Parcelamento(1000f, 5f);
         Assertions.assertEquals(p.getNumParcelas() * p.getValorParcela(), p.getValorTotal());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFatorJurosIgualAoMathPow() {
+        for (float juros : new float[] { 0f, 1.5f, 3f, 12.75f, 3f }) {
+            for (int n : new int[] { 0, 3, 5, 10 }) {
+                Assertions.assertEquals(Math.pow(1 + juros / 100, n / 12f), Parcelamento.fatorJuros(juros, n));
+            }
+        }
+    }
+
+    @Test
+    void testFatorJurosForaDaTabela() {
+        Assertions.assertEquals(Math.pow(1 + 2f / 100, 24 / 12f), Parcelamento.fatorJuros(2f, 24));
+    }
+
+    @Test
+    void testParcelaComJurosUsaFatorMemorizado() {
+        Parcelamento p1 = new Parcelamento(2000f, 2.5f);
+        Parcelamento p2 = new Parcelamento(2000f, 2.5f);
+        float esperado = Money.round((float) ((2000f * Math.pow(1 + 2.5f / 100, 10 / 12f)) / 10));
+        Assertions.assertEquals(esperado, p1.getValorParcela());
+        Assertions.assertEquals(esperado, p2.getValorParcela());
+    }
+}
@@ -0,0 +1,130 @@
+package main.unidade.model;
+
+import main.dao.AliquotaDAO;
+import main.model.IPTU;
+import main.model.Imovel;
+import main.model.TabelaAliquotas;
+import main.model.ValorIPTU;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+class TabelaAliquotasTest {
+
+    private static TabelaAliquotas tabela(int exercicio, char categoria, float multiplicador) {
+        float[] m = new float[26];
+        boolean[] isenta = new boolean[26];
+        Arrays.fill(m, 1f);
+        m[categoria - 'A'] = multiplicador;
+        return new TabelaAliquotas(exercicio, 100, 10, 0.1f, 10, 0.05f, m, isenta);
+    }
+
+    @BeforeEach
+    void limpaTabelas() {
+        TabelaAliquotas.limpa();
+    }
+
+    @Test
+    void testTabelaPadraoReproduzRegrasOriginais() {
+        TabelaAliquotas t = TabelaAliquotas.PADRAO;
+
+        Assertions.assertTrue(t.isTributavel(169, 'A'));
+        Assertions.assertFalse(t.isTributavel(170, 'A'));
+        Assertions.assertFalse(t.isTributavel(0, 'Z'));
+
+        // 100 m² = 5 faixas de 20 m², 0,25%; categoria A +10%; 10 anos -6%
+        Assertions.assertEquals(100000f * (5 * 0.05f / 100) * 1.1f * (1 - 2 * 0.03f),
+                t.valorBruto(10, 100000f, 100, 'A'));
+
+        // 41 m² = 3 faixas; categoria sem acréscimo
+        Assertions.assertEquals(100000f * (3 * 0.05f / 100), t.valorBruto(4, 100000f, 41, 'D'));
+    }
+
+    @Test
+    void testIdadeNegativaAumentaValor() {
+        // Imóvel liberado depois do exercício: a faixa negativa vira acréscimo, como no cálculo original
+        Assertions.assertEquals(1000f * (1 * 0.05f / 100) * (1 - (-1) * 0.03f),
+                TabelaAliquotas.PADRAO.valorBruto(-5, 1000f, 20, 'D'));
+    }
+
+    @Test
+    void testTabelaInvalida() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new TabelaAliquotas(0, 170, 0, 0.05f, 5, 0.03f, new float[26], new boolean[26]));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new TabelaAliquotas(0, 170, 20, 0.05f, 5, 0.03f, new float[3], new boolean[26]));
+    }
+
+    @Test
+    void testGetRetornaTabelaVigente() {
+        try {
+            TabelaAliquotas t2025 = tabela(2025, 'D', 1.5f);
+            TabelaAliquotas t2028 = tabela(2028, 'D', 2f);
+
+            Assertions.assertSame(TabelaAliquotas.PADRAO, TabelaAliquotas.get(2026));
+
+            TabelaAliquotas.registra(t2025);
+            TabelaAliquotas.registra(t2028);
+
+            Assertions.assertSame(TabelaAliquotas.PADRAO, TabelaAliquotas.get(2024));
+            Assertions.assertSame(t2025, TabelaAliquotas.get(2025));
+            Assertions.assertSame(t2025, TabelaAliquotas.get(2027));
+            Assertions.assertSame(t2028, TabelaAliquotas.get(2030));
+        }
+        finally {
+            TabelaAliquotas.limpa();
+        }
+    }
+
+    @Test
+    void testIPTUUsaTabelaDoExercicio() {
+        try {
+            TabelaAliquotas.registra(tabela(2030, 'D', 2f));
+
+            Imovel imovel = new Imovel(12345678, LocalDate.of(2020, 1, 1), 100000f, 100, 'D');
+            ValorIPTU padrao = new IPTU(imovel, 2029).calculaValor(0f, 0f);
+            ValorIPTU novo = new IPTU(imovel, 2030).calculaValor(0f, 0f);
+
+            // 2029: 5 faixas × 0,05% = 250, 9 anos -3% = 242,5
+            Assertions.assertEquals(242.5f, padrao.valor, 0.01f);
+            // 2030: 10 faixas × 0,1% = 1000, ×2 = 2000, 10 anos -5% = 1900
+            Assertions.assertEquals(1900f, novo.valor, 0.01f);
+        }
+        finally {
+            TabelaAliquotas.limpa();
+        }
+    }
+
+    @Test
+    void testCarregaRegistraTabelaDoBD() {
+        TabelaAliquotas t2027 = tabela(2027, 'A', 1.3f);
+
+        try (MockedStatic<AliquotaDAO> daoMock = Mockito.mockStatic(AliquotaDAO.class)) {
+            daoMock.when(() -> AliquotaDAO.getByExercicio(2028)).thenReturn(t2027);
+            daoMock.when(() -> AliquotaDAO.getByExercicio(2020)).thenReturn(null);
+
+            Assertions.assertSame(TabelaAliquotas.PADRAO, TabelaAliquotas.carrega(2020));
+            Assertions.assertSame(t2027, TabelaAliquotas.carrega(2028));
+            Assertions.assertSame(t2027, TabelaAliquotas.get(2029));
+        }
+        finally {
+            TabelaAliquotas.limpa();
+        }
+    }
+
+    @Test
+    void testGetNaoAcessaBD() {
+        try (MockedStatic<AliquotaDAO> daoMock = Mockito.mockStatic(AliquotaDAO.class)) {
+            Imovel imovel = new Imovel(12345678, LocalDate.of(2020, 1, 1), 100000f, 100, 'B');
+
+            Assertions.assertSame(TabelaAliquotas.PADRAO, TabelaAliquotas.get(2026));
+            Assertions.assertSame(TabelaAliquotas.PADRAO, new IPTU(imovel, 2026).getAliquotas());
+            daoMock.verifyNoInteractions();
+        }
+    }
+}